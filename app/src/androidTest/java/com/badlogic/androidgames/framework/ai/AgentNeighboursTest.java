@@ -0,0 +1,108 @@
+package com.badlogic.androidgames.framework.ai;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Checks the neighbours AgentNeighbours finds against every pair of agents,
+ * over ticks where the agents move and only some of them are inserted again,
+ * and that agents left out of a tick are no longer found.
+ */
+public class AgentNeighboursTest extends TestCase {
+    static final float WORLD = 1000;
+    static final float RADIUS = 50;
+    static final int MAX_NEIGHBOURS = 5;
+
+    public void testFindsTheClosest() {
+        Random random = new Random(23);
+        int capacity = 800;
+        float[] x = new float[capacity];
+        float[] y = new float[capacity];
+        boolean[] inserted = new boolean[capacity];
+        AgentNeighbours neighbours = new AgentNeighbours(WORLD, WORLD, RADIUS, capacity, MAX_NEIGHBOURS);
+
+        for (int i = 0; i < capacity; i++) {
+            x[i] = random.nextFloat() * WORLD;
+            y[i] = random.nextFloat() * WORLD;
+        }
+
+        for (int tick = 0; tick < 10; tick++) {
+            // everybody moves a little, or jumps across the world, and only some
+            // of them are inserted.
+            neighbours.clear();
+            for (int i = 0; i < capacity; i++) {
+                if (random.nextInt(10) == 0) {
+                    x[i] = random.nextFloat() * WORLD;
+                    y[i] = random.nextFloat() * WORLD;
+                } else {
+                    x[i] = Math.max(Math.min(x[i] + random.nextFloat() * 40 - 20, WORLD), 0);
+                    y[i] = Math.max(Math.min(y[i] + random.nextFloat() * 40 - 20, WORLD), 0);
+                }
+                inserted[i] = tick == 0 || random.nextInt(4) != 0;
+                if (inserted[i])
+                    neighbours.insert(i, x[i], y[i]);
+            }
+
+            for (int i = 0; i < capacity; i++) {
+                if (!inserted[i])
+                    continue;
+
+                int[] expected = closest(i, x, y, inserted);
+                int count = neighbours.find(i, x[i], y[i]);
+                assertEquals("agent " + i + " on tick " + tick, expected.length, count);
+                assertEquals(count, neighbours.getCount(i));
+                int[] found = Arrays.copyOfRange(neighbours.getNeighbours(), neighbours.getOffset(i), neighbours.getOffset(i) + count);
+                assertTrue("agent " + i + " on tick " + tick, Arrays.equals(expected, found));
+            }
+        }
+    }
+
+    public void testStaleAgentsAreSwept() {
+        AgentNeighbours neighbours = new AgentNeighbours(WORLD, WORLD, RADIUS, 3, MAX_NEIGHBOURS);
+        neighbours.clear();
+        neighbours.insert(0, 500, 500);
+        neighbours.insert(1, 510, 500);
+        neighbours.insert(2, 500, 510);
+        assertEquals(2, neighbours.find(0, 500, 500));
+
+        // agent 1 moves away, and agent 2 isn't inserted again.
+        neighbours.clear();
+        neighbours.insert(0, 500, 500);
+        neighbours.insert(1, 900, 900);
+        assertEquals(0, neighbours.find(0, 500, 500));
+        assertEquals(0, neighbours.find(1, 900, 900));
+
+        // nor on the tick after.
+        neighbours.clear();
+        neighbours.insert(0, 500, 500);
+        neighbours.insert(1, 505, 500);
+        assertEquals(1, neighbours.find(0, 500, 500));
+        assertEquals(1, neighbours.getNeighbours()[neighbours.getOffset(0)]);
+    }
+
+    /**
+     * The closest MAX_NEIGHBOURS inserted agents within RADIUS of agent i,
+     * from the closest on.
+     */
+    static int[] closest(int i, float[] x, float[] y, boolean[] inserted) {
+        int count = 0;
+        long[] keyed = new long[x.length];
+        for (int j = 0; j < x.length; j++) {
+            if (j == i || !inserted[j])
+                continue;
+            float dx = x[j] - x[i];
+            float dy = y[j] - y[i];
+            float distanceSquared = dx * dx + dy * dy;
+            if (distanceSquared <= RADIUS * RADIUS)
+                keyed[count++] = ((long) Float.floatToIntBits(distanceSquared) << 32) | j;
+        }
+        Arrays.sort(keyed, 0, count);
+
+        int[] result = new int[Math.min(count, MAX_NEIGHBOURS)];
+        for (int n = 0; n < result.length; n++)
+            result[n] = (int) keyed[n];
+        return result;
+    }
+}
@@ -0,0 +1,170 @@
+package com.badlogic.androidgames.framework.ai;
+
+import android.util.Log;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks what the nodes of a BehaviourTree return and how running nodes are
+ * carried on, and logs how long a small tree takes per agent on the device
+ * running the tests.
+ */
+public class BehaviourTreeTest extends TestCase {
+    static final int AGENTS = 10000;
+    static final int TICKS = 200;
+
+    /** A leaf returning the status in an int slot, and counting its ticks. */
+    static class Constant implements BehaviourTree.Leaf {
+        final int slot;
+        int ticks;
+
+        Constant(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public int tick(int agent, Blackboard blackboard) {
+            ticks++;
+            return blackboard.getInt(slot, agent);
+        }
+    }
+
+    Blackboard blackboard;
+    BehaviourTree tree;
+    Constant a;
+    Constant b;
+
+    @Override
+    protected void setUp() {
+        blackboard = new Blackboard(2);
+        tree = new BehaviourTree(blackboard);
+        a = new Constant(blackboard.addInt("a"));
+        b = new Constant(blackboard.addInt("b"));
+    }
+
+    void set(int agent, int statusA, int statusB) {
+        blackboard.setInt(0, agent, statusA);
+        blackboard.setInt(1, agent, statusB);
+    }
+
+    public void testSequence() {
+        tree.setRoot(tree.sequence(tree.leaf(a), tree.leaf(b)));
+
+        set(0, BehaviourTree.SUCCESS, BehaviourTree.SUCCESS);
+        assertEquals(BehaviourTree.SUCCESS, tree.tick(0));
+        set(0, BehaviourTree.FAILURE, BehaviourTree.SUCCESS);
+        assertEquals(BehaviourTree.FAILURE, tree.tick(0));
+        assertEquals(2, a.ticks);
+        assertEquals(1, b.ticks);
+    }
+
+    public void testSelector() {
+        tree.setRoot(tree.selector(tree.leaf(a), tree.leaf(b)));
+
+        set(0, BehaviourTree.SUCCESS, BehaviourTree.FAILURE);
+        assertEquals(BehaviourTree.SUCCESS, tree.tick(0));
+        set(0, BehaviourTree.FAILURE, BehaviourTree.FAILURE);
+        assertEquals(BehaviourTree.FAILURE, tree.tick(0));
+        assertEquals(1, b.ticks);
+    }
+
+    public void testDecorators() {
+        int leaf = tree.leaf(a);
+        tree.setRoot(tree.sequence(tree.invert(leaf), tree.succeed(tree.fail(leaf))));
+
+        set(0, BehaviourTree.FAILURE, 0);
+        assertEquals(BehaviourTree.SUCCESS, tree.tick(0));
+        set(0, BehaviourTree.SUCCESS, 0);
+        assertEquals(BehaviourTree.FAILURE, tree.tick(0));
+        set(0, BehaviourTree.RUNNING, 0);
+        assertEquals(BehaviourTree.RUNNING, tree.tick(0));
+    }
+
+    public void testRunningChildIsCarriedOnPerAgent() {
+        tree.setRoot(tree.sequence(tree.leaf(a), tree.leaf(b)));
+
+        set(0, BehaviourTree.SUCCESS, BehaviourTree.RUNNING);
+        set(1, BehaviourTree.SUCCESS, BehaviourTree.SUCCESS);
+        assertEquals(BehaviourTree.RUNNING, tree.tick(0));
+        assertEquals(BehaviourTree.SUCCESS, tree.tick(1));
+        assertEquals(2, a.ticks);
+
+        // agent 0 goes straight back to b, agent 1 starts from a again.
+        set(0, BehaviourTree.FAILURE, BehaviourTree.SUCCESS);
+        tree.tick(0, 2);
+        assertEquals(BehaviourTree.SUCCESS, tree.getStatus(0));
+        assertEquals(BehaviourTree.SUCCESS, tree.getStatus(1));
+        assertEquals(3, a.ticks);
+
+        // and once done, from the start.
+        assertEquals(BehaviourTree.FAILURE, tree.tick(0));
+        assertEquals(4, a.ticks);
+    }
+
+    public void testReset() {
+        tree.setRoot(tree.sequence(tree.leaf(a), tree.leaf(b)));
+
+        set(0, BehaviourTree.SUCCESS, BehaviourTree.RUNNING);
+        tree.tick(0);
+        tree.reset(0);
+        tree.tick(0);
+        assertEquals(2, a.ticks);
+    }
+
+    public void testTreeIsFinishedByItsRoot() {
+        tree.setRoot(tree.leaf(a));
+        try {
+            tree.leaf(b);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    public void testManyAgents() {
+        final Blackboard blackboard = new Blackboard(AGENTS);
+        final int distance = blackboard.addFloat("distance");
+        final int waited = blackboard.addInt("waited");
+        BehaviourTree tree = new BehaviourTree(blackboard);
+
+        // close in every tick when close, else every third tick.
+        int isClose = tree.leaf(new BehaviourTree.Leaf() {
+            @Override
+            public int tick(int agent, Blackboard blackboard) {
+                return blackboard.getFloat(distance, agent) < 250 ? BehaviourTree.SUCCESS : BehaviourTree.FAILURE;
+            }
+        });
+        int move = tree.leaf(new BehaviourTree.Leaf() {
+            @Override
+            public int tick(int agent, Blackboard blackboard) {
+                float[] distances = blackboard.getFloats(distance);
+                distances[agent] = Math.max(0, distances[agent] - 5);
+                return BehaviourTree.SUCCESS;
+            }
+        });
+        int wait = tree.leaf(new BehaviourTree.Leaf() {
+            @Override
+            public int tick(int agent, Blackboard blackboard) {
+                int[] ticks = blackboard.getInts(waited);
+                if (++ticks[agent] < 3)
+                    return BehaviourTree.RUNNING;
+                ticks[agent] = 0;
+                return BehaviourTree.SUCCESS;
+            }
+        });
+        tree.setRoot(tree.selector(tree.sequence(isClose, move), tree.sequence(wait, move)));
+
+        for (int i = 0; i < AGENTS; i++)
+            blackboard.setFloat(distance, i, i % 500);
+
+        long start = System.nanoTime();
+        for (int t = 0; t < TICKS; t++)
+            tree.tick(0, AGENTS);
+        long elapsed = System.nanoTime() - start;
+
+        for (int i = 0; i < AGENTS; i++)
+            assertTrue(blackboard.getFloat(distance, i) < 250);
+
+        Log.i("BehaviourTreeTest", AGENTS + " agents: " + elapsed / ((long) AGENTS * TICKS) + " ns per agent");
+    }
+}
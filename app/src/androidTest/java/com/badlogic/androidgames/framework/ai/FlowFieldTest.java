@@ -0,0 +1,100 @@
+package com.badlogic.androidgames.framework.ai;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+/**
+ * Checks that following a FlowField from any cell takes a shortest way to its
+ * target, and that a rebuild spread over many updates gives the same field.
+ */
+public class FlowFieldTest extends TestCase {
+    public void testOpenGridGoesStraight() {
+        ObstacleGrid grid = new ObstacleGrid(200, 200, 10);
+        FlowField field = new FlowField(grid);
+        field.setTarget(15, 15);
+        field.rebuild();
+
+        // 10 across and 5 up: 5 diagonal steps and 5 straight ones.
+        assertEquals(5 * (float) Math.sqrt(2) + 5, follow(grid, field, 11, 6), 1e-3f);
+        assertEquals(FlowField.NONE, field.getFlow(1, 1));
+    }
+
+    public void testMatchesDijkstra() {
+        Random random = new Random(17);
+        for (int round = 0; round < 20; round++) {
+            ObstacleGrid grid = PathServiceTest.randomGrid(random, 10 + random.nextInt(30), random.nextFloat() * 0.4f);
+            FlowField field = new FlowField(grid);
+            int targetX, targetY;
+            do {
+                targetX = random.nextInt(grid.width);
+                targetY = random.nextInt(grid.height);
+            } while (grid.isBlocked(targetX, targetY));
+            field.setTarget((targetX + 0.5f) * grid.cellSize, (targetY + 0.5f) * grid.cellSize);
+            field.rebuild();
+
+            float[] expected = PathServiceTest.dijkstra(grid, targetX + targetY * grid.width);
+            for (int y = 0; y < grid.height; y++) {
+                for (int x = 0; x < grid.width; x++) {
+                    float cost = expected[x + y * grid.width];
+                    if (cost == Float.POSITIVE_INFINITY || cost == 0)
+                        assertEquals(FlowField.NONE, field.getFlow(x, y));
+                    else
+                        assertEquals(cost, follow(grid, field, x, y), 1e-3f);
+                }
+            }
+        }
+    }
+
+    public void testTimeSlicedRebuild() {
+        Random random = new Random(19);
+        ObstacleGrid grid = PathServiceTest.randomGrid(random, 40, 0.3f);
+        FlowField whole = new FlowField(grid);
+        FlowField sliced = new FlowField(grid);
+        whole.setTarget(105, 105);
+        whole.rebuild();
+        sliced.setTarget(105, 105);
+        sliced.rebuild();
+
+        // a new target: the field agents read stays the old one until the
+        // rebuild is done.
+        whole.setTarget(305, 205);
+        whole.rebuild();
+        sliced.setTarget(305, 205);
+        int updates = 1;
+        while (!sliced.update(7)) {
+            assertEquals(10 + 10 * grid.width, sliced.targetCell);
+            updates++;
+        }
+        assertTrue(updates > grid.width * grid.height / 7);
+
+        for (int y = 0; y < grid.height; y++) {
+            for (int x = 0; x < grid.width; x++)
+                assertEquals(whole.getFlow(x, y), sliced.getFlow(x, y));
+        }
+    }
+
+    /**
+     * The cost of following the field from the given cell to its target,
+     * checking that it never enters a wall nor cuts one of its corners.
+     */
+    static float follow(ObstacleGrid grid, FlowField field, int x, int y) {
+        float cost = 0;
+        for (int steps = 0; steps < grid.width * grid.height; steps++) {
+            int direction = field.getFlow(x, y);
+            if (direction == FlowField.NONE)
+                return cost;
+
+            int dx = FlowField.DX[direction];
+            int dy = FlowField.DY[direction];
+            assertFalse(grid.isBlocked(x + dx, y + dy));
+            assertFalse(grid.isBlocked(x + dx, y));
+            assertFalse(grid.isBlocked(x, y + dy));
+            cost += FlowField.COST[direction];
+            x += dx;
+            y += dy;
+        }
+        fail("the flow goes round in circles");
+        return cost;
+    }
+}
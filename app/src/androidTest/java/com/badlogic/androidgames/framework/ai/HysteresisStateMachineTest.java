@@ -0,0 +1,154 @@
+package com.badlogic.androidgames.framework.ai;
+
+import junit.framework.TestCase;
+
+/**
+ * Walks an agent in and out of the bands of a HysteresisStateMachine, and
+ * checks that it only changes state once past the margins, and that the
+ * counters add up.
+ */
+public class HysteresisStateMachineTest extends TestCase {
+    static final byte FAR = 0;
+    static final byte NEAR = 1;
+    static final byte CLOSE = 2;
+
+    HysteresisStateMachine machine;
+    final byte[] states = new byte[1];
+    final byte[] kind = new byte[1];
+    final float[] x = new float[1];
+    final float[] y = new float[1];
+
+    @Override
+    protected void setUp() {
+        machine = new HysteresisStateMachine(2);
+        machine.setState(CLOSE, "Close", 0);
+        machine.setState(NEAR, "Near", 1);
+        machine.setState(FAR, "Far", 2);
+        machine.setBand(0, 50, 70);
+        machine.setBand(1, 240, 260);
+        states[0] = FAR;
+    }
+
+    byte stepTo(float distance) {
+        x[0] = distance * 0.6f;
+        y[0] = distance * 0.8f;
+        machine.update(states, states, x, y, kind, (byte) 0, 0, 1, 0, 0);
+        return states[0];
+    }
+
+    public void testHysteresis() {
+        assertEquals(FAR, stepTo(300));
+        assertEquals(FAR, stepTo(245));
+        assertEquals(NEAR, stepTo(239));
+        assertEquals(NEAR, stepTo(255));
+        assertEquals(NEAR, stepTo(55));
+        assertEquals(CLOSE, stepTo(49));
+        assertEquals(CLOSE, stepTo(69));
+        assertEquals(NEAR, stepTo(71));
+        assertEquals(FAR, stepTo(261));
+    }
+
+    public void testJumpsOverSeveralBands() {
+        assertEquals(CLOSE, stepTo(10));
+        assertEquals(FAR, stepTo(1000));
+    }
+
+    public void testGuardedStatesNeedTheirGuard() {
+        boolean[] guards = new boolean[1];
+        machine.setGuarded(NEAR, true);
+
+        x[0] = 200;
+        y[0] = 0;
+        machine.update(states, states, x, y, kind, (byte) 0, 0, 1, 0, 0, guards);
+        assertEquals(FAR, states[0]);
+
+        guards[0] = true;
+        machine.update(states, states, x, y, kind, (byte) 0, 0, 1, 0, 0, guards);
+        assertEquals(NEAR, states[0]);
+
+        // leaving outwards is never held back.
+        guards[0] = false;
+        assertEquals(CLOSE, stepTo(10));
+        x[0] = 200;
+        machine.update(states, states, x, y, kind, (byte) 0, 0, 1, 0, 0, guards);
+        assertEquals(NEAR, states[0]);
+    }
+
+    public void testGuardedStatesCantBeJumpedOver() {
+        boolean[] guards = new boolean[1];
+        machine.setGuarded(NEAR, true);
+
+        // straight from far to close would go through the guarded state.
+        x[0] = 10;
+        y[0] = 0;
+        machine.update(states, states, x, y, kind, (byte) 0, 0, 1, 0, 0, guards);
+        assertEquals(FAR, states[0]);
+
+        guards[0] = true;
+        machine.update(states, states, x, y, kind, (byte) 0, 0, 1, 0, 0, guards);
+        assertEquals(CLOSE, states[0]);
+
+        // a guard on the innermost state stops agents in the one before.
+        machine.setGuarded(NEAR, false);
+        machine.setGuarded(CLOSE, true);
+        guards[0] = false;
+        assertEquals(FAR, stepTo(1000));
+        x[0] = 10;
+        y[0] = 0;
+        machine.update(states, states, x, y, kind, (byte) 0, 0, 1, 0, 0, guards);
+        assertEquals(NEAR, states[0]);
+    }
+
+    public void testOtherKindsAreLeftAlone() {
+        kind[0] = 1;
+        assertEquals(FAR, stepTo(10));
+        assertEquals(0, machine.getOccupancy(FAR) + machine.getOccupancy(CLOSE));
+    }
+
+    public void testCounters() {
+        stepTo(300);
+        stepTo(200);
+        stepTo(200);
+        stepTo(10);
+
+        assertEquals(1, machine.getOccupancy(FAR));
+        assertEquals(2, machine.getOccupancy(NEAR));
+        assertEquals(1, machine.getOccupancy(CLOSE));
+        assertEquals(1, machine.getTransitions(FAR, FAR));
+        assertEquals(1, machine.getTransitions(FAR, NEAR));
+        assertEquals(1, machine.getTransitions(NEAR, NEAR));
+        assertEquals(1, machine.getTransitions(NEAR, CLOSE));
+        assertEquals("Near", machine.getName(NEAR));
+
+        machine.resetCounters();
+        assertEquals(0, machine.getOccupancy(NEAR));
+        assertEquals(0, machine.getTransitions(NEAR, CLOSE));
+    }
+
+    public void testCountersOfDeadThreadsAreKept() throws InterruptedException {
+        // one thread after the other, each updating a far agent once.
+        for (int i = 0; i < 50; i++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    byte[] far = { FAR };
+                    machine.update(far, far, new float[] { 1000 }, new float[1], new byte[1], (byte) 0, 0, 1, 0, 0);
+                }
+            };
+            thread.start();
+            thread.join();
+        }
+
+        assertEquals(50, machine.getOccupancy(FAR));
+        assertEquals(50, machine.getTransitions(FAR, FAR));
+        assertEquals(0, machine.allCounters.size());
+
+        stepTo(200);
+        assertEquals(50, machine.getOccupancy(FAR));
+        assertEquals(1, machine.getOccupancy(NEAR));
+        assertEquals(1, machine.allCounters.size());
+
+        machine.resetCounters();
+        assertEquals(0, machine.getOccupancy(FAR));
+    }
+}
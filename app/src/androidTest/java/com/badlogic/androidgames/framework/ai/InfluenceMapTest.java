@@ -0,0 +1,84 @@
+package com.badlogic.androidgames.framework.ai;
+
+import android.util.Log;
+
+import com.badlogic.androidgames.framework.math.Vector2;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks how an InfluenceMap spreads, fades and is held back by walls, and
+ * logs how long an update of a screen sized map takes.
+ */
+public class InfluenceMapTest extends TestCase {
+    InfluenceMap map;
+
+    @Override
+    protected void setUp() {
+        map = new InfluenceMap(400, 400, 40);
+        map.setSpread(0.01f, 1.0f);
+    }
+
+    void spread(float x, float y, int updates) {
+        for (int i = 0; i < updates; i++) {
+            map.update();
+            map.addSource(x, y, 1);
+        }
+    }
+
+    public void testSpreadsAndFallsOff() {
+        spread(220, 220, 20);
+
+        assertEquals(1, map.sample(220, 220), 1e-6f);
+        assertEquals(Math.exp(-0.4), map.sample(260, 220), 1e-4f);
+        assertEquals(Math.exp(-0.8), map.sample(300, 220), 1e-4f);
+        assertEquals(Math.exp(-0.4 * Math.sqrt(2)), map.sample(260, 260), 1e-4f);
+        assertEquals(0, map.sample(-10, 220), 0);
+        assertTrue(map.sample(20, 20) < map.sample(100, 100));
+    }
+
+    public void testFadesOnceTheSourceIsGone() {
+        map.setSpread(0.01f, 0.3f);
+        spread(220, 220, 20);
+        float before = map.sample(220, 220);
+        for (int i = 0; i < 20; i++)
+            map.update();
+        assertTrue(map.sample(220, 220) < before);
+    }
+
+    public void testWallsHoldItBack() {
+        ObstacleGrid walls = new ObstacleGrid(400, 400, 40);
+        for (int y = 0; y < 10; y++)
+            walls.setBlocked(6, y, true);
+        map.setObstacles(walls);
+
+        spread(100, 200, 40);
+        assertTrue(map.sample(100, 200) > 0);
+        assertEquals(0, map.sample(250, 200), 0);
+        assertEquals(0, map.sample(300, 200), 0);
+    }
+
+    public void testGradientPointsAtTheSource() {
+        spread(220, 220, 20);
+        Vector2 gradient = new Vector2();
+
+        map.getGradient(100, 220, gradient);
+        assertTrue(gradient.x > 0);
+        assertEquals(0, gradient.y, 1e-6f);
+
+        map.getGradient(220, 380, gradient);
+        assertTrue(gradient.y < 0);
+    }
+
+    public void testSpeed() {
+        InfluenceMap map = new InfluenceMap(1920, 1080, 40);
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            map.update();
+            map.addSource(i % 1920, 540, 1);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Log.i("InfluenceMapTest", map.width + "x" + map.height + " update: " + elapsed / 1000 + " ns");
+    }
+}
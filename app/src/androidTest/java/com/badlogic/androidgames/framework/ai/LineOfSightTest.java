@@ -0,0 +1,111 @@
+package com.badlogic.androidgames.framework.ai;
+
+import android.util.Log;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+/**
+ * Checks LineOfSight rays against walking the segments in tiny steps, and
+ * that looks are cached and kept within their budget.
+ */
+public class LineOfSightTest extends TestCase {
+    static final int RAYS = 100000;
+
+    ObstacleGrid grid;
+    LineOfSight sight;
+
+    @Override
+    protected void setUp() {
+        grid = new ObstacleGrid(400, 400, 40);
+        sight = new LineOfSight(grid, 4);
+    }
+
+    public void testWall() {
+        for (int y = 2; y < 8; y++)
+            grid.setBlocked(5, y, true);
+
+        assertFalse(sight.isClear(20, 200, 380, 200));
+        assertTrue(sight.isClear(20, 20, 380, 20));
+        assertTrue(sight.isClear(20, 380, 380, 380));
+        assertTrue(sight.isClear(100, 100, 150, 300));
+        assertFalse(sight.isClear(210, 200, 210, 200));
+        assertFalse(sight.isClear(-10, 20, 20, 20));
+    }
+
+    public void testMatchesSampling() {
+        Random random = new Random(5);
+        for (int i = 0; i < 30; i++)
+            grid.setBlocked(random.nextInt(grid.width), random.nextInt(grid.height), true);
+
+        int disagreements = 0;
+        for (int i = 0; i < 2000; i++) {
+            float x1 = random.nextFloat() * 400;
+            float y1 = random.nextFloat() * 400;
+            float x2 = random.nextFloat() * 400;
+            float y2 = random.nextFloat() * 400;
+
+            boolean sampled = true;
+            for (int step = 0; step <= 10000 && sampled; step++) {
+                float t = step / 10000f;
+                sampled = !grid.isBlockedAt(x1 + (x2 - x1) * t, y1 + (y2 - y1) * t);
+            }
+
+            // the sampling can step over the corner of a cell the ray clips.
+            if (sight.isClear(x1, y1, x2, y2) != sampled) {
+                assertTrue(sampled);
+                disagreements++;
+            }
+        }
+        assertTrue(disagreements < 10);
+    }
+
+    public void testCacheAndBudget() {
+        grid.setBlocked(0, 5, true);
+
+        sight.begin(300, 300, 1);
+        assertTrue(sight.look(0, 20, 20));
+        assertFalse(sight.look(1, 20, 20));
+        assertEquals(1, sight.rays);
+
+        // same cells: answered from the cache, without a ray.
+        sight.begin(301, 301, 0);
+        assertTrue(sight.look(0, 25, 25));
+        assertEquals(1, sight.cacheHits);
+
+        // the grid changed, but there are no rays left: the old answer.
+        grid.setBlocked(3, 3, true);
+        assertTrue(sight.look(0, 25, 25));
+
+        sight.begin(301, 301, 10);
+        assertFalse(sight.look(0, 25, 25));
+        assertEquals(2, sight.rays);
+    }
+
+    public void testSpeed() {
+        ObstacleGrid grid = new ObstacleGrid(1920, 1080, 40);
+        Random random = new Random(1);
+        for (int i = 0; i < 100; i++)
+            grid.setBlocked(random.nextInt(grid.width), random.nextInt(grid.height), true);
+        LineOfSight sight = new LineOfSight(grid, 1);
+
+        float[] points = new float[1024];
+        for (int i = 0; i < points.length; i += 2) {
+            points[i] = random.nextFloat() * 1920;
+            points[i + 1] = random.nextFloat() * 1080;
+        }
+
+        int clear = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < RAYS; i++) {
+            int a = (i * 2) & 1023;
+            int b = (i * 6 + 2) & 1023;
+            if (sight.isClear(points[a], points[a + 1], points[b], points[b + 1]))
+                clear++;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Log.i("LineOfSightTest", "ray: " + elapsed / RAYS + " ns (" + clear + " clear)");
+    }
+}
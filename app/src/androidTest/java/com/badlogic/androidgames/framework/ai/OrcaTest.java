@@ -0,0 +1,172 @@
+package com.badlogic.androidgames.framework.ai;
+
+import android.util.Log;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+/**
+ * Checks that agents steered by Orca keep clear of each other, and logs what
+ * finding neighbours and avoiding them costs per agent on the device running
+ * the tests.
+ */
+public class OrcaTest extends TestCase {
+    static final float RADIUS = 20;
+    static final float MAX_SPEED = 5;
+    static final float HORIZON = 10;
+    static final float NEIGHBOUR_RADIUS = 80;
+    static final int MAX_NEIGHBOURS = 10;
+
+    public void testAloneKeepsPreferredVelocity() {
+        Orca orca = new Orca(MAX_NEIGHBOURS);
+        float[] x = { 100 };
+        float[] y = { 100 };
+        float[] vx = { 0 };
+        float[] vy = { 0 };
+
+        orca.solve(0, x, y, vx, vy, new int[0], 0, 0, 3, 4, MAX_SPEED, RADIUS, HORIZON);
+        assertEquals(3, orca.velocity.x, 1e-5);
+        assertEquals(4, orca.velocity.y, 1e-5);
+
+        // but no faster than the maximum speed.
+        orca.solve(0, x, y, vx, vy, new int[0], 0, 0, 30, 40, MAX_SPEED, RADIUS, HORIZON);
+        assertEquals(MAX_SPEED, orca.velocity.len(), 1e-4);
+    }
+
+    public void testHeadOnAgentsPass() {
+        float[] x = { 400, 600 };
+        float[] y = { 500, 501 };
+        float[] vx = { MAX_SPEED, -MAX_SPEED };
+        float[] vy = { 0, 0 };
+        float[] goalX = { 600, 400 };
+        float[] goalY = { 501, 500 };
+
+        float closest = simulate(x, y, vx, vy, goalX, goalY, 200);
+        assertTrue("closest approach " + closest, closest >= 2 * RADIUS - 1);
+        assertTrue(Math.abs(x[0] - 600) < 10 && Math.abs(x[1] - 400) < 10);
+    }
+
+    public void testCrowdKeepsApart() {
+        // agents on a circle, each heading for the opposite side.
+        int n = 24;
+        float[] x = new float[n];
+        float[] y = new float[n];
+        float[] goalX = new float[n];
+        float[] goalY = new float[n];
+        for (int i = 0; i < n; i++) {
+            float angle = (float) (Math.PI * 2 * i / n);
+            x[i] = 500 + 250 * (float) Math.cos(angle);
+            y[i] = 500 + 250 * (float) Math.sin(angle);
+            goalX[i] = 1000 - x[i];
+            goalY[i] = 1000 - y[i];
+        }
+
+        float closest = simulate(x, y, new float[n], new float[n], goalX, goalY, 400);
+        assertTrue("closest approach " + closest, closest >= 2 * RADIUS * 0.9f);
+    }
+
+    public void testPerAgentCost() {
+        logPerAgentCost(1000);
+        logPerAgentCost(10000);
+    }
+
+    /**
+     * Moves the agents towards their goals with avoidance for the given number
+     * of steps, and returns the closest any two of them came.
+     */
+    static float simulate(float[] x, float[] y, float[] vx, float[] vy, float[] goalX, float[] goalY, int steps) {
+        int n = x.length;
+        AgentNeighbours neighbours = new AgentNeighbours(1000, 1000, NEIGHBOUR_RADIUS, n, MAX_NEIGHBOURS);
+        Orca orca = new Orca(MAX_NEIGHBOURS);
+        float[] newX = new float[n];
+        float[] newY = new float[n];
+        float closest = Float.MAX_VALUE;
+
+        for (int step = 0; step < steps; step++) {
+            neighbours.clear();
+            for (int i = 0; i < n; i++)
+                neighbours.insert(i, x[i], y[i]);
+            for (int i = 0; i < n; i++)
+                neighbours.find(i, x[i], y[i]);
+
+            for (int i = 0; i < n; i++) {
+                float px = goalX[i] - x[i];
+                float py = goalY[i] - y[i];
+                float length = (float) Math.sqrt(px * px + py * py);
+                if (length > MAX_SPEED) {
+                    px = px / length * MAX_SPEED;
+                    py = py / length * MAX_SPEED;
+                }
+                orca.solve(i, x, y, vx, vy, neighbours.getNeighbours(), neighbours.getOffset(i),
+                        neighbours.getCount(i), px, py, MAX_SPEED, RADIUS, HORIZON);
+                newX[i] = orca.velocity.x;
+                newY[i] = orca.velocity.y;
+            }
+
+            for (int i = 0; i < n; i++) {
+                vx[i] = newX[i];
+                vy[i] = newY[i];
+                x[i] += vx[i];
+                y[i] += vy[i];
+            }
+
+            for (int i = 0; i < n; i++)
+                for (int j = i + 1; j < n; j++)
+                    closest = Math.min(closest, (float) Math.hypot(x[i] - x[j], y[i] - y[j]));
+        }
+        return closest;
+    }
+
+    /**
+     * Times neighbour lookups and avoidance for n agents spread at the density
+     * of the game's swarm, about one agent per 4000 square pixels.
+     */
+    static void logPerAgentCost(int n) {
+        float size = (float) Math.sqrt(n * 4000.0);
+        Random random = new Random(42);
+        float[] x = new float[n];
+        float[] y = new float[n];
+        float[] vx = new float[n];
+        float[] vy = new float[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = random.nextFloat() * size;
+            y[i] = random.nextFloat() * size;
+            float angle = random.nextFloat() * (float) Math.PI * 2;
+            vx[i] = (float) Math.cos(angle) * MAX_SPEED;
+            vy[i] = (float) Math.sin(angle) * MAX_SPEED;
+        }
+
+        AgentNeighbours neighbours = new AgentNeighbours(size, size, NEIGHBOUR_RADIUS, n, MAX_NEIGHBOURS);
+        Orca orca = new Orca(MAX_NEIGHBOURS);
+        long findTime = 0;
+        long solveTime = 0;
+        float sum = 0;
+
+        // the first rounds warm up the JIT and are not counted.
+        for (int round = 0; round < 15; round++) {
+            long start = System.nanoTime();
+            neighbours.clear();
+            for (int i = 0; i < n; i++)
+                neighbours.insert(i, x[i], y[i]);
+            for (int i = 0; i < n; i++)
+                neighbours.find(i, x[i], y[i]);
+            long found = System.nanoTime();
+
+            for (int i = 0; i < n; i++) {
+                orca.solve(i, x, y, vx, vy, neighbours.getNeighbours(), neighbours.getOffset(i),
+                        neighbours.getCount(i), vy[i], -vx[i], MAX_SPEED, RADIUS, HORIZON);
+                sum += orca.velocity.x;
+            }
+            long solved = System.nanoTime();
+
+            if (round >= 5) {
+                findTime += found - start;
+                solveTime += solved - found;
+            }
+        }
+
+        Log.d("OrcaTest", n + " agents: neighbours " + (findTime / (10L * n)) + " ns, avoidance "
+                + (solveTime / (10L * n)) + " ns per agent (" + sum + ")");
+    }
+}
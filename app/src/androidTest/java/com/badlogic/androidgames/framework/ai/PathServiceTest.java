@@ -0,0 +1,204 @@
+package com.badlogic.androidgames.framework.ai;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Checks the routes of PathService against Dijkstra's algorithm over every
+ * cell, and that routes are cached, and searches spread over as many calls
+ * as their budget requires.
+ */
+public class PathServiceTest extends TestCase {
+    static final float SQRT2 = (float) Math.sqrt(2);
+
+    static ObstacleGrid randomGrid(Random random, int size, float density) {
+        ObstacleGrid grid = new ObstacleGrid(size * 10, size * 10, 10);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                if (random.nextFloat() < density)
+                    grid.setBlocked(x, y, true);
+            }
+        }
+        return grid;
+    }
+
+    static PathRequest request(PathService service, ObstacleGrid grid, int startCell, int goalCell) {
+        float cellSize = grid.cellSize;
+        return service.request((startCell % grid.width + 0.5f) * cellSize, (startCell / grid.width + 0.5f) * cellSize,
+                (goalCell % grid.width + 0.5f) * cellSize, (goalCell / grid.width + 0.5f) * cellSize);
+    }
+
+    public void testMatchesDijkstra() {
+        Random random = new Random(11);
+        for (int round = 0; round < 20; round++) {
+            ObstacleGrid grid = randomGrid(random, 10 + random.nextInt(30), random.nextFloat() * 0.4f);
+            PathService service = new PathService(grid);
+            int cellCount = grid.width * grid.height;
+
+            for (int q = 0; q < 30; q++) {
+                int start = random.nextInt(cellCount);
+                int goal = random.nextInt(cellCount);
+                float expected = dijkstra(grid, start)[goal];
+
+                PathRequest request = request(service, grid, start, goal);
+                service.update(Integer.MAX_VALUE);
+                assertTrue(request.isDone());
+
+                if (grid.blocked[start] || grid.blocked[goal] || expected == Float.POSITIVE_INFINITY) {
+                    assertEquals(PathRequest.NOT_FOUND, request.status);
+                } else {
+                    assertEquals(PathRequest.FOUND, request.status);
+                    assertEquals(start, request.path[0]);
+                    assertEquals(goal, request.path[request.path.length - 1]);
+                    assertEquals(expected, walk(grid, request.path), 1e-3f);
+                }
+                service.free(request);
+            }
+        }
+    }
+
+    public void testCache() {
+        ObstacleGrid grid = new ObstacleGrid(200, 200, 10);
+        PathService service = new PathService(grid);
+        int start = 1 + 10 * grid.width;
+        int goal = 18 + 10 * grid.width;
+
+        PathRequest first = request(service, grid, start, goal);
+        service.update(Integer.MAX_VALUE);
+        PathRequest second = request(service, grid, start, goal);
+        service.update(Integer.MAX_VALUE);
+        assertEquals(1, service.cacheMisses);
+        assertEquals(1, service.cacheHits);
+        assertSame(first.path, second.path);
+        assertEquals(17f, walk(grid, second.path), 1e-3f);
+
+        // a wall across the way makes the cached route stale.
+        for (int y = 5; y < 15; y++)
+            grid.setBlocked(10, y, true);
+        PathRequest third = request(service, grid, start, goal);
+        service.update(Integer.MAX_VALUE);
+        assertEquals(2, service.cacheMisses);
+        assertEquals(dijkstra(grid, start)[goal], walk(grid, third.path), 1e-3f);
+    }
+
+    public void testTimeSlicing() {
+        Random random = new Random(13);
+        ObstacleGrid grid = randomGrid(random, 60, 0.25f);
+        int cellCount = grid.width * grid.height;
+        int[] starts = new int[20];
+        int[] goals = new int[20];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = random.nextInt(cellCount);
+            goals[i] = random.nextInt(cellCount);
+        }
+
+        PathService whole = new PathService(grid);
+        PathRequest[] expected = new PathRequest[starts.length];
+        for (int i = 0; i < starts.length; i++)
+            expected[i] = request(whole, grid, starts[i], goals[i]);
+        whole.update(Integer.MAX_VALUE);
+
+        // the same requests a few steps at a time: while any are waiting, every
+        // call does its budget of work, give or take what it carries over.
+        PathService sliced = new PathService(grid);
+        PathRequest[] found = new PathRequest[starts.length];
+        for (int i = 0; i < starts.length; i++)
+            found[i] = request(sliced, grid, starts[i], goals[i]);
+        int budget = 5;
+        int calls = 0;
+        int waiting;
+        do {
+            waiting = sliced.update(budget);
+            calls++;
+            if (waiting > 0)
+                assertEquals(calls * budget + sliced.overdraft, sliced.steps);
+        } while (waiting > 0);
+
+        assertTrue(calls > whole.steps / budget / 2);
+        assertEquals(whole.steps, sliced.steps);
+        for (int i = 0; i < starts.length; i++) {
+            assertEquals(expected[i].status, found[i].status);
+            assertTrue(Arrays.equals(expected[i].path, found[i].path));
+        }
+    }
+
+    /**
+     * The cost of the route through the given jump points, checking that the
+     * route only goes through free cells and never cuts the corner of a wall.
+     */
+    static float walk(ObstacleGrid grid, int[] path) {
+        float cost = 0;
+        for (int i = 1; i < path.length; i++) {
+            int x = path[i - 1] % grid.width;
+            int y = path[i - 1] / grid.width;
+            int endX = path[i] % grid.width;
+            int endY = path[i] / grid.width;
+            int dx = Integer.signum(endX - x);
+            int dy = Integer.signum(endY - y);
+            assertTrue(dx == 0 || dy == 0 || Math.abs(endX - x) == Math.abs(endY - y));
+
+            while (x != endX || y != endY) {
+                assertFalse(grid.isBlocked(x + dx, y + dy));
+                if (dx != 0 && dy != 0) {
+                    assertFalse(grid.isBlocked(x + dx, y));
+                    assertFalse(grid.isBlocked(x, y + dy));
+                    cost += SQRT2;
+                } else {
+                    cost += 1;
+                }
+                x += dx;
+                y += dy;
+            }
+        }
+        return cost;
+    }
+
+    /**
+     * The cost of the shortest route from the start cell to every cell, with
+     * the same moves as the service.
+     */
+    static float[] dijkstra(ObstacleGrid grid, int start) {
+        float[] cost = new float[grid.width * grid.height];
+        Arrays.fill(cost, Float.POSITIVE_INFINITY);
+        if (grid.blocked[start])
+            return cost;
+
+        PriorityQueue<float[]> open = new PriorityQueue<float[]>(16, new Comparator<float[]>() {
+            @Override
+            public int compare(float[] a, float[] b) {
+                return Float.compare(a[0], b[0]);
+            }
+        });
+        cost[start] = 0;
+        open.add(new float[] { 0, start });
+        while (!open.isEmpty()) {
+            float[] entry = open.poll();
+            int cell = (int) entry[1];
+            if (entry[0] > cost[cell])
+                continue;
+
+            int x = cell % grid.width;
+            int y = cell / grid.width;
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    if (dx == 0 && dy == 0)
+                        continue;
+                    if (grid.isBlocked(x + dx, y + dy) || grid.isBlocked(x + dx, y) || grid.isBlocked(x, y + dy))
+                        continue;
+
+                    int next = x + dx + (y + dy) * grid.width;
+                    float c = cost[cell] + (dx != 0 && dy != 0 ? SQRT2 : 1);
+                    if (c < cost[next]) {
+                        cost[next] = c;
+                        open.add(new float[] { c, next });
+                    }
+                }
+            }
+        }
+        return cost;
+    }
+}
@@ -0,0 +1,127 @@
+package com.badlogic.androidgames.framework.ai;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks where agents cross the bands of ProximityTriggers, at their edges
+ * and within their margins, and the crossings update() reports.
+ */
+public class ProximityTriggersTest extends TestCase {
+    static final int CAUGHT = 0;
+    static final int CHASING = 1;
+    static final int WANDER = 2;
+
+    ProximityTriggers triggers;
+
+    @Override
+    protected void setUp() {
+        // the caught and chase bands of the tanks: 60 and 250, with a margin
+        // of 15 across each.
+        triggers = new ProximityTriggers(2, 4);
+        triggers.setBand(0, 52.5f, 67.5f);
+        triggers.setBand(1, 242.5f, 257.5f);
+    }
+
+    int zone(int zone, float distance) {
+        return triggers.zone(zone, distance * distance);
+    }
+
+    public void testBandEdges() {
+        // right on a radius, agents stay where they are.
+        assertEquals(WANDER, zone(WANDER, 242.5f));
+        assertEquals(CHASING, zone(WANDER, 242.49f));
+        assertEquals(CHASING, zone(CHASING, 257.5f));
+        assertEquals(WANDER, zone(CHASING, 257.51f));
+
+        assertEquals(CHASING, zone(CHASING, 52.5f));
+        assertEquals(CAUGHT, zone(CHASING, 52.49f));
+        assertEquals(CAUGHT, zone(CAUGHT, 67.5f));
+        assertEquals(CHASING, zone(CAUGHT, 67.51f));
+
+        assertEquals(CAUGHT, zone(CAUGHT, 0));
+        assertEquals(WANDER, zone(WANDER, 100000));
+    }
+
+    public void testHysteresisAtEachBoundary() {
+        // within the margin of a band, agents keep the zone they came from.
+        for (float distance = 52.5f; distance <= 67.5f; distance += 0.5f) {
+            assertEquals(CHASING, zone(CHASING, distance));
+            assertEquals(CAUGHT, zone(CAUGHT, distance));
+        }
+        for (float distance = 242.5f; distance <= 257.5f; distance += 0.5f) {
+            assertEquals(WANDER, zone(WANDER, distance));
+            assertEquals(CHASING, zone(CHASING, distance));
+        }
+    }
+
+    public void testJumpsCrossFarBandsAtTheirNominalRadius() {
+        // from wandering, caught inside 60 rather than inside 52.5.
+        assertEquals(CAUGHT, zone(WANDER, 59));
+        assertEquals(CHASING, zone(WANDER, 61));
+        assertEquals(CAUGHT, zone(WANDER, 10));
+
+        // from caught, wandering beyond 250 rather than beyond 257.5.
+        assertEquals(WANDER, zone(CAUGHT, 251));
+        assertEquals(CHASING, zone(CAUGHT, 249));
+        assertEquals(WANDER, zone(CAUGHT, 1000));
+    }
+
+    public void testBoxPreTestAgrees() {
+        Random random = new Random(3);
+        for (int i = 0; i < 100000; i++) {
+            float dx = random.nextFloat() * 600 - 300;
+            float dy = random.nextFloat() * 600 - 300;
+            int zone = random.nextInt(3);
+            assertEquals(triggers.zone(zone, dx * dx + dy * dy), triggers.zone(zone, dx, dy));
+        }
+        assertEquals(WANDER, triggers.zone(WANDER, 242.5f, 0));
+        assertEquals(CHASING, triggers.zone(WANDER, 242.49f, 0));
+    }
+
+    public void testUpdateReportsCrossings() {
+        final List<String> events = new ArrayList<String>();
+        ProximityTriggers.Listener listener = new ProximityTriggers.Listener() {
+            @Override
+            public void enter(int agent, int band) {
+                events.add(agent + " enters " + band);
+            }
+
+            @Override
+            public void exit(int agent, int band) {
+                events.add(agent + " exits " + band);
+            }
+        };
+
+        assertEquals(WANDER, triggers.getZone(1));
+        assertEquals(WANDER, triggers.update(1, 300, 0, listener));
+        assertEquals(WANDER, triggers.update(1, 250, 0, listener));
+        assertTrue(events.isEmpty());
+
+        assertEquals(CHASING, triggers.update(1, 200, 0, listener));
+        assertEquals(CHASING, triggers.update(1, 0, 250, listener));
+        assertEquals(CAUGHT, triggers.update(1, 30, 40, listener));
+        assertEquals(WANDER, triggers.update(1, 300, 400, listener));
+        assertEquals(CAUGHT, triggers.update(1, 0, 0, listener));
+        assertEquals(CAUGHT, triggers.getZone(1));
+        assertEquals(WANDER, triggers.getZone(0));
+
+        String[] expected = {
+                "1 enters 1",
+                "1 enters 0",
+                "1 exits 0", "1 exits 1",
+                "1 enters 1", "1 enters 0",
+        };
+        assertEquals(expected.length, events.size());
+        for (int i = 0; i < expected.length; i++)
+            assertEquals(expected[i], events.get(i));
+
+        // setZone moves an agent without a word.
+        triggers.setZone(1, WANDER);
+        assertEquals(CHASING, triggers.update(1, 100, 0, null));
+        assertEquals(expected.length, events.size());
+    }
+}
@@ -0,0 +1,99 @@
+package com.badlogic.androidgames.framework.ai;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks where Steering heads for: the intercept points of pursue and evade,
+ * including targets as fast as the agent and targets it can't catch, arrive
+ * slowing down near its target, and which way the flocking behaviours push.
+ * The agents start standing still, so the force is the velocity they want.
+ */
+public class SteeringTest extends TestCase {
+    static final float MAX_SPEED = 10;
+
+    public void testPursueLeadsTheTarget() {
+        // |(100, 5t)| = 10t when t = sqrt(10000 / 75).
+        float time = (float) Math.sqrt(10000 / 75.0);
+        Steering steering = new Steering().begin(0, 0, 0, 0, MAX_SPEED).pursue(100, 0, 0, 5, 1);
+        assertHeading(steering, 100, 5 * time, MAX_SPEED);
+    }
+
+    public void testEvadeRunsFromTheInterceptPoint() {
+        float time = (float) Math.sqrt(10000 / 75.0);
+        Steering steering = new Steering().begin(0, 0, 0, 0, MAX_SPEED).evade(100, 0, 0, 5, 1);
+        assertHeading(steering, -100, -5 * time, MAX_SPEED);
+    }
+
+    public void testPursueTargetAsFastAsTheAgent() {
+        // coming closer at full speed: |(100 - 6t, 8t)| = 10t when t = 25 / 3.
+        Steering steering = new Steering().begin(0, 0, 0, 0, MAX_SPEED).pursue(100, 0, -6, 8, 1);
+        assertHeading(steering, 50, 200 / 3.0f, MAX_SPEED);
+
+        // going sideways at full speed, it is never caught: head for where it
+        // will be by the time we'd have reached where it is.
+        steering.begin(0, 0, 0, 0, MAX_SPEED).pursue(100, 0, 0, 10, 1);
+        assertHeading(steering, 100, 100, MAX_SPEED);
+    }
+
+    public void testPursueTargetTooFastToCatch() {
+        // both roots are negative.
+        Steering steering = new Steering().begin(0, 0, 0, 0, MAX_SPEED).pursue(100, 0, 20, 5, 1);
+        assertHeading(steering, 300, 50, MAX_SPEED);
+
+        // no root at all.
+        steering.begin(0, 0, 0, 0, MAX_SPEED).pursue(100, 0, 20, 20, 1);
+        assertHeading(steering, 300, 200, MAX_SPEED);
+    }
+
+    public void testArriveSlowsDownInsideTheRadius() {
+        Steering steering = new Steering().begin(0, 0, 0, 0, MAX_SPEED).arrive(300, 400, 100, 1);
+        assertHeading(steering, 3, 4, MAX_SPEED);
+
+        steering.begin(0, 0, 0, 0, MAX_SPEED).arrive(30, 40, 100, 1);
+        assertHeading(steering, 3, 4, MAX_SPEED / 2);
+
+        // and brakes on the target.
+        steering.begin(30, 40, 6, 8, MAX_SPEED).arrive(30, 40, 100, 1);
+        assertEquals(-6, steering.force.x, 1e-4f);
+        assertEquals(-8, steering.force.y, 1e-4f);
+    }
+
+    public void testFlocking() {
+        float[] x = { 0, 10, 20 };
+        float[] y = { 0, 0, 10 };
+        float[] vx = { 5, 0, 0 };
+        float[] vy = { 0, 5, 5 };
+        int[] around = { 1, 2 };
+
+        // away from the neighbours, more from the closer one.
+        Steering steering = new Steering().begin(x[0], y[0], vx[0], vy[0], MAX_SPEED);
+        steering.separation(x, y, around, 0, 2, 1);
+        float sumX = -10 / 100.0f - 20 / 500.0f;
+        float sumY = -10 / 500.0f;
+        float length = (float) Math.sqrt(sumX * sumX + sumY * sumY);
+        assertEquals(sumX / length * MAX_SPEED - 5, steering.force.x, 1e-4f);
+        assertEquals(sumY / length * MAX_SPEED, steering.force.y, 1e-4f);
+
+        // towards their center.
+        steering.begin(x[0], y[0], 0, 0, MAX_SPEED).cohesion(x, y, around, 0, 2, 1);
+        assertHeading(steering, 15, 5, MAX_SPEED);
+
+        // matching their velocity.
+        steering.begin(x[0], y[0], vx[0], vy[0], MAX_SPEED).alignment(vx, vy, around, 0, 2, 2);
+        assertEquals(-10, steering.force.x, 1e-4f);
+        assertEquals(10, steering.force.y, 1e-4f);
+
+        // no neighbours, no force.
+        steering.begin(x[0], y[0], vx[0], vy[0], MAX_SPEED)
+                .separation(x, y, around, 0, 0, 1)
+                .cohesion(x, y, around, 0, 0, 1)
+                .alignment(vx, vy, around, 0, 0, 1);
+        assertEquals(0, steering.force.len(), 0);
+    }
+
+    static void assertHeading(Steering steering, float dx, float dy, float speed) {
+        float length = (float) Math.sqrt(dx * dx + dy * dy);
+        assertEquals(dx / length * speed, steering.force.x, 1e-3f);
+        assertEquals(dy / length * speed, steering.force.y, 1e-3f);
+    }
+}
@@ -0,0 +1,102 @@
+package com.badlogic.androidgames.framework.ai;
+
+import android.util.Log;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks the response curves and the choices of a UtilityScorer, and logs how
+ * long scoring takes per agent on the device running the tests.
+ */
+public class UtilityScorerTest extends TestCase {
+    static final int AGENTS = 10000;
+
+    public void testCurves() {
+        assertEquals(0.75f, ResponseCurve.linear(0.5f, 0.5f).evaluate(0.5f), 1e-6f);
+        assertEquals(1.0f, ResponseCurve.linear(2, 0.5f).evaluate(1), 0);
+        assertEquals(0.0f, ResponseCurve.linear(-2, 0.5f).evaluate(1), 0);
+        assertEquals(0.25f, new ResponseCurve(ResponseCurve.POLYNOMIAL, 1, 2, 0, 0).evaluate(0.5f), 1e-6f);
+        assertEquals(0.0f, new ResponseCurve(ResponseCurve.POLYNOMIAL, 1, 0.5f, 0.5f, 0).evaluate(0.25f), 0);
+
+        ResponseCurve step = ResponseCurve.step(0.5f, 40);
+        assertEquals(0.5f, step.evaluate(0.5f), 1e-6f);
+        assertTrue(step.evaluate(0.3f) < 0.01f);
+        assertTrue(step.evaluate(0.7f) > 0.99f);
+        assertTrue(ResponseCurve.step(0.5f, -40).evaluate(0.3f) > 0.99f);
+    }
+
+    public void testPicksTheBestAction() {
+        UtilityScorer scorer = new UtilityScorer(3);
+        int distance = scorer.addInput("Distance", 0, 100);
+        int danger = scorer.addSharedInput("Danger", 0, 10);
+
+        int near = scorer.addConsideration(distance, ResponseCurve.step(0.5f, -40));
+        int far = scorer.addConsideration(distance, ResponseCurve.step(0.5f, 40));
+        int calm = scorer.addConsideration(danger, ResponseCurve.linear(-1, 1));
+        int attack = scorer.addAction("Attack", near, calm);
+        int roam = scorer.addAction("Roam", far);
+        assertEquals("Roam", scorer.getActionName(roam));
+
+        float[] distances = scorer.getValues(distance);
+        distances[0] = 10;
+        distances[1] = 90;
+        distances[2] = 500;
+
+        scorer.setSharedInput(danger, 0);
+        scorer.begin();
+        scorer.score(0, 3);
+        assertEquals(attack, scorer.getBest(0));
+        assertEquals(roam, scorer.getBest(1));
+        assertEquals(roam, scorer.getBest(2));
+        assertEquals(1.0f, scorer.getBestScore(0), 0.01f);
+
+        // the shared consideration is evaluated once, in begin.
+        scorer.setSharedInput(danger, 10);
+        scorer.begin();
+        scorer.score(0, 1);
+        assertEquals(roam, scorer.getBest(0));
+    }
+
+    public void testCompensatesForManyConsiderations() {
+        UtilityScorer scorer = new UtilityScorer(1);
+        int input = scorer.addInput("Input", 0, 1);
+        int half = scorer.addConsideration(input, ResponseCurve.linear(0, 0.8f));
+        scorer.addAction("One", half);
+        scorer.addAction("Three", half, half, half);
+
+        scorer.begin();
+        scorer.score(0, 1);
+        assertEquals(0.8f, scorer.getBestScore(0), 1e-6f);
+        assertEquals(0, scorer.getBest(0));
+    }
+
+    public void testSpeed() {
+        UtilityScorer scorer = new UtilityScorer(AGENTS);
+        int distance = scorer.addInput("Distance", 0, 500);
+        int speed = scorer.addInput("Speed", 0, 5);
+        int danger = scorer.addSharedInput("Danger", 0, 10);
+        int near = scorer.addConsideration(distance, ResponseCurve.step(0.5f, -40));
+        int far = scorer.addConsideration(distance, ResponseCurve.step(0.5f, 40));
+        int moving = scorer.addConsideration(speed, ResponseCurve.linear(0.3f, 0.7f));
+        int calm = scorer.addConsideration(danger, ResponseCurve.linear(-1, 1));
+        scorer.addAction("Chase", near, moving, calm);
+        scorer.addAction("Wander", far);
+
+        float[] distances = scorer.getValues(distance);
+        float[] speeds = scorer.getValues(speed);
+        for (int i = 0; i < AGENTS; i++) {
+            distances[i] = i % 500;
+            speeds[i] = i % 5;
+        }
+
+        long start = System.nanoTime();
+        for (int tick = 0; tick < 100; tick++) {
+            scorer.setSharedInput(danger, tick % 10);
+            scorer.begin();
+            scorer.score(0, AGENTS);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Log.i("UtilityScorerTest", AGENTS + " agents: " + elapsed / (100L * AGENTS) + " ns per agent");
+    }
+}
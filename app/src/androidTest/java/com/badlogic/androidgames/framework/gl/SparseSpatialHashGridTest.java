@@ -0,0 +1,162 @@
+package com.badlogic.androidgames.framework.gl;
+
+import android.util.Log;
+
+import com.badlogic.androidgames.framework.GameObject;
+
+import junit.framework.TestCase;
+
+import java.util.HashSet;
+import java.util.Random;
+
+/**
+ * Checks that a SparseSpatialHashGrid finds the same objects as a
+ * SpatialHashGrid over the same world, that it works far from the origin,
+ * and that it lets go of the cells objects leave. Logs how long queries take
+ * in both.
+ */
+public class SparseSpatialHashGridTest extends TestCase {
+    static final float CELL = 100;
+
+    static GameObject object(float x, float y, float size) {
+        return new GameObject(x, y, size, size);
+    }
+
+    public void testMatchesDenseGrid() {
+        SpatialHashGrid dense = new SpatialHashGrid(1000, 1000, CELL);
+        SparseSpatialHashGrid sparse = new SparseSpatialHashGrid(CELL);
+        Random random = new Random(11);
+        GameObject[] denseObjects = new GameObject[400];
+        GameObject[] sparseObjects = new GameObject[400];
+        for (int i = 0; i < denseObjects.length; i++) {
+            float x = random.nextFloat() * 1000;
+            float y = random.nextFloat() * 1000;
+            float size = random.nextFloat() * CELL;
+            denseObjects[i] = object(x, y, size);
+            sparseObjects[i] = object(x, y, size);
+            if (i % 10 == 0) {
+                dense.insertStaticObject(denseObjects[i]);
+                sparse.insertStaticObject(sparseObjects[i]);
+            } else {
+                dense.insertDynamicObject(denseObjects[i]);
+                sparse.insertDynamicObject(sparseObjects[i]);
+            }
+        }
+
+        for (int frame = 0; frame < 10; frame++) {
+            for (int i = 1; i < denseObjects.length; i++) {
+                if (i % 10 == 0)
+                    continue;
+                float x = denseObjects[i].position.x + random.nextFloat() * 60 - 30;
+                float y = denseObjects[i].position.y + random.nextFloat() * 60 - 30;
+                x = Math.max(0, Math.min(999, x));
+                y = Math.max(0, Math.min(999, y));
+                SpatialHashGridTest.moveTo(denseObjects[i], x, y);
+                SpatialHashGridTest.moveTo(sparseObjects[i], x, y);
+                dense.move(denseObjects[i]);
+                sparse.move(sparseObjects[i]);
+            }
+
+            for (int q = 0; q < 50; q++) {
+                GameObject query = object(random.nextFloat() * 1000, random.nextFloat() * 1000, CELL);
+                HashSet<Integer> expected = new HashSet<Integer>();
+                for (GameObject obj : dense.getPotentialColliders(query))
+                    expected.add(obj.gridId);
+                HashSet<Integer> found = new HashSet<Integer>();
+                for (GameObject obj : sparse.getPotentialColliders(query))
+                    found.add(obj.gridId);
+                assertEquals(expected, found);
+            }
+        }
+    }
+
+    public void testFarFromOrigin() {
+        SparseSpatialHashGrid grid = new SparseSpatialHashGrid(CELL);
+        // ten thousand cells out, each inside a cell of its own.
+        GameObject a = object(-999950, 500050, 10);
+        GameObject b = object(-999930, 500050, 10);
+        GameObject c = object(999950, -499950, 10);
+        grid.insertDynamicObject(a);
+        grid.insertDynamicObject(b);
+        grid.insertDynamicObject(c);
+
+        assertEquals(2, grid.getPotentialColliders(a).size());
+        assertEquals(1, grid.getPotentialColliders(c).size());
+        assertEquals(0, grid.getPotentialColliders(object(0, 0, 10)).size());
+        assertEquals(2, grid.getCellCount());
+    }
+
+    public void testDropsEmptyCells() {
+        SparseSpatialHashGrid grid = new SparseSpatialHashGrid(CELL);
+        Random random = new Random(13);
+        GameObject[] all = new GameObject[1000];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = object(random.nextFloat() * 1e6f, random.nextFloat() * 1e6f, 10);
+            grid.insertDynamicObject(all[i]);
+        }
+        int cells = grid.getCellCount();
+        assertTrue(cells > 900);
+
+        // queries don't add cells.
+        for (int q = 0; q < 1000; q++)
+            grid.getPotentialColliders(object(random.nextFloat() * 1e6f, random.nextFloat() * 1e6f, CELL));
+        assertEquals(cells, grid.getCellCount());
+
+        // objects walking far away leave no cells behind; each is in at most
+        // two cells, as none crosses the corner of four.
+        for (int step = 0; step < 100; step++) {
+            for (GameObject obj : all) {
+                SpatialHashGridTest.moveTo(obj, obj.position.x + 1000, obj.position.y);
+                grid.move(obj);
+            }
+        }
+        assertTrue(grid.getCellCount() <= 2 * all.length);
+        for (GameObject obj : all)
+            assertSame(obj, grid.getPotentialColliders(obj).get(0));
+
+        grid.clearDynamicCells(null);
+        assertEquals(0, grid.getCellCount());
+        assertEquals(0, grid.getOccupiedCellCount());
+
+        GameObject wall = object(50, 50, 10);
+        grid.insertStaticObject(wall);
+        grid.clearDynamicCells(null);
+        assertEquals(1, grid.getCellCount());
+        grid.removeObject(wall);
+        assertEquals(0, grid.getCellCount());
+    }
+
+    public void testSpeed() {
+        // the 1920 x 1080 world of the game, 10000 objects in cells of 64.
+        SpatialHashGrid dense = new SpatialHashGrid(1920, 1080, 64);
+        SparseSpatialHashGrid sparse = new SparseSpatialHashGrid(64);
+        Random random = new Random(17);
+        GameObject[] queries = new GameObject[10000];
+        for (int i = 0; i < queries.length; i++) {
+            float x = random.nextFloat() * 1920;
+            float y = random.nextFloat() * 1080;
+            dense.insertDynamicObject(object(x, y, 1));
+            sparse.insertDynamicObject(object(x, y, 1));
+            queries[i] = object(x, y, 64);
+        }
+
+        long denseTime = 0;
+        long sparseTime = 0;
+        for (int round = 0; round < 2; round++) {
+            // the first round warms up.
+            long start = System.nanoTime();
+            for (GameObject query : queries)
+                dense.getPotentialColliders(query);
+            denseTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (GameObject query : queries)
+                sparse.getPotentialColliders(query);
+            sparseTime = System.nanoTime() - start;
+        }
+
+        Log.i("SparseSpatialHashGridTest", queries.length + " queries: dense " + denseTime / queries.length
+                + " ns, sparse " + sparseTime / queries.length + " ns per query, with " + dense.dynamicCounts.length
+                + " cells allocated in the dense grid and " + sparse.getCellCount() + " in use in the sparse one");
+    }
+}
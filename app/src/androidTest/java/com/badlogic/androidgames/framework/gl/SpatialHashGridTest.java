@@ -0,0 +1,317 @@
+package com.badlogic.androidgames.framework.gl;
+
+import android.util.Log;
+
+import com.badlogic.androidgames.framework.GameObject;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Checks that SpatialHashGrid queries find every object overlapping the cells
+ * of the query once, and that moving objects keeps the cells right. Logs how
+ * long a query takes with 10, 100 and 1000 objects per cell, against
+ * de-duplicating with List.contains as the grid used to, and how long a frame
+ * of moving objects takes in a large world, against clearing every cell and
+ * inserting them all again.
+ */
+public class SpatialHashGridTest extends TestCase {
+    static final float CELL = 100;
+
+    static GameObject object(float x, float y, float size) {
+        return new GameObject(x, y, size, size);
+    }
+
+    static List<GameObject> visit(SpatialHashGrid grid, GameObject query) {
+        final List<GameObject> visited = new ArrayList<GameObject>();
+        grid.visitPotentialColliders(query, new SpatialIndex.Visitor() {
+            @Override
+            public void visit(GameObject obj) {
+                visited.add(obj);
+            }
+        });
+        return visited;
+    }
+
+    public void testFindsEachObjectOnce() {
+        SpatialHashGrid grid = new SpatialHashGrid(1000, 1000, CELL);
+        GameObject big = object(150, 150, 80);      // over four cells
+        GameObject small = object(120, 120, 10);
+        GameObject wall = object(180, 120, 10);
+        GameObject far = object(850, 850, 10);
+        grid.insertDynamicObject(big);
+        grid.insertDynamicObject(small);
+        grid.insertStaticObject(wall);
+        grid.insertDynamicObject(far);
+
+        GameObject query = object(150, 150, 90);
+        List<GameObject> found = new ArrayList<GameObject>(grid.getPotentialColliders(query));
+        assertEquals(3, found.size());
+        assertEquals(new HashSet<GameObject>(found), new HashSet<GameObject>(visit(grid, query)));
+        assertTrue(found.contains(big));
+        assertTrue(found.contains(small));
+        assertTrue(found.contains(wall));
+
+        // and again, with a new stamp.
+        assertEquals(3, grid.getPotentialColliders(query).size());
+    }
+
+    public void testRemoveAndReuse() {
+        SpatialHashGrid grid = new SpatialHashGrid(1000, 1000, CELL);
+        GameObject a = object(150, 150, 80);
+        GameObject b = object(150, 150, 10);
+        grid.insertDynamicObject(a);
+        grid.insertStaticObject(b);
+
+        grid.removeObject(a);
+        assertEquals(-1, a.gridId);
+        List<GameObject> found = grid.getPotentialColliders(object(150, 150, 90));
+        assertEquals(1, found.size());
+        assertSame(b, found.get(0));
+
+        GameObject c = object(450, 450, 10);
+        grid.insertDynamicObject(c);
+        assertSame(c, grid.getPotentialColliders(c).get(0));
+
+        grid.clearDynamicCells(null);
+        assertEquals(0, grid.getPotentialColliders(c).size());
+        assertEquals(1, grid.getPotentialColliders(b).size());
+    }
+
+    public void testMatchesBruteForce() {
+        SpatialHashGrid grid = new SpatialHashGrid(1000, 1000, CELL);
+        Random random = new Random(3);
+        List<GameObject> all = new ArrayList<GameObject>();
+        for (int i = 0; i < 500; i++) {
+            GameObject obj = object(random.nextFloat() * 1000, random.nextFloat() * 1000, random.nextFloat() * CELL);
+            all.add(obj);
+            grid.insertDynamicObject(obj);
+        }
+
+        for (int q = 0; q < 100; q++) {
+            GameObject query = object(random.nextFloat() * 1000, random.nextFloat() * 1000, CELL);
+            Set<Integer> cells = cells(grid, query);
+            Set<GameObject> expected = new HashSet<GameObject>();
+            for (GameObject obj : all) {
+                for (int cell : cells(grid, obj)) {
+                    if (cells.contains(cell))
+                        expected.add(obj);
+                }
+            }
+
+            List<GameObject> found = grid.getPotentialColliders(query);
+            assertEquals(expected.size(), found.size());
+            assertEquals(expected, new HashSet<GameObject>(found));
+        }
+    }
+
+    public void testMove() {
+        SpatialHashGrid grid = new SpatialHashGrid(1000, 1000, CELL);
+        GameObject wall = object(450, 450, 10);
+        GameObject a = object(150, 150, 10);
+        grid.insertStaticObject(wall);
+        grid.insertDynamicObject(a);
+        assertEquals(1, grid.getOccupiedCellCount());
+
+        // over four cells, then into a cell of its own.
+        moveTo(a, 200, 200);
+        grid.move(a);
+        assertEquals(4, grid.getOccupiedCellCount());
+        assertEquals(1, grid.getPotentialColliders(object(120, 120, 10)).size());
+        assertEquals(1, grid.getPotentialColliders(object(280, 280, 10)).size());
+
+        moveTo(a, 450, 450);
+        grid.move(a);
+        assertEquals(1, grid.getOccupiedCellCount());
+        assertEquals(0, grid.getPotentialColliders(object(150, 150, 10)).size());
+        assertEquals(2, grid.getPotentialColliders(object(420, 420, 10)).size());
+
+        // moving a static object keeps it static.
+        moveTo(wall, 850, 850);
+        grid.move(wall);
+        grid.clearDynamicCells(null);
+        assertEquals(0, grid.getOccupiedCellCount());
+        assertFalse(grid.contains(a));
+        assertTrue(grid.contains(wall));
+        assertSame(wall, grid.getPotentialColliders(object(820, 820, 10)).get(0));
+        assertEquals(0, grid.getPotentialColliders(object(420, 420, 10)).size());
+
+        // moving a cleared object inserts it again.
+        grid.move(a);
+        assertTrue(grid.contains(a));
+        assertSame(a, grid.getPotentialColliders(object(420, 420, 10)).get(0));
+
+        grid.removeObject(a);
+        assertEquals(0, grid.getOccupiedCellCount());
+    }
+
+    public void testMoveMatchesInsert() {
+        SpatialHashGrid moved = new SpatialHashGrid(1000, 1000, CELL);
+        SpatialHashGrid inserted = new SpatialHashGrid(1000, 1000, CELL);
+        Random random = new Random(5);
+        GameObject[] all = new GameObject[300];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = object(random.nextFloat() * 1000, random.nextFloat() * 1000, random.nextFloat() * CELL);
+            moved.insertDynamicObject(all[i]);
+        }
+
+        for (int frame = 0; frame < 20; frame++) {
+            for (GameObject obj : all) {
+                moveTo(obj, obj.position.x + random.nextFloat() * 60 - 30, obj.position.y + random.nextFloat() * 60 - 30);
+                moved.move(obj);
+            }
+
+            // the objects belong to the first grid; a copy goes in the second.
+            inserted.clearDynamicCells(null);
+            for (GameObject obj : all) {
+                GameObject copy = object(obj.position.x, obj.position.y, obj.bounds.width);
+                inserted.insertDynamicObject(copy);
+            }
+
+            assertEquals(inserted.getOccupiedCellCount(), moved.getOccupiedCellCount());
+            for (int q = 0; q < 20; q++) {
+                GameObject query = object(random.nextFloat() * 1000, random.nextFloat() * 1000, CELL);
+                assertEquals(inserted.getPotentialColliders(query).size(), moved.getPotentialColliders(query).size());
+            }
+        }
+    }
+
+    static void moveTo(GameObject obj, float x, float y) {
+        obj.position.set(x, y);
+        obj.bounds.lowerLeft.set(x - obj.bounds.width / 2, y - obj.bounds.height / 2);
+    }
+
+    static Set<Integer> cells(SpatialHashGrid grid, GameObject obj) {
+        Set<Integer> cells = new HashSet<Integer>();
+        for (int id : grid.getCellIds(obj)) {
+            if (id != -1)
+                cells.add(id);
+        }
+        return cells;
+    }
+
+    public void testSpeed() {
+        for (int perCell : new int[] { 10, 100, 1000 })
+            benchmark(perCell);
+    }
+
+    public void testMoveSpeed() {
+        // a world of a million cells, with a thousand objects drifting about.
+        SpatialHashGrid grid = new SpatialHashGrid(1000 * CELL, 1000 * CELL, CELL);
+        Random random = new Random(7);
+        GameObject[] all = new GameObject[1000];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = object(random.nextFloat() * 1000 * CELL, random.nextFloat() * 1000 * CELL, 10);
+            grid.insertDynamicObject(all[i]);
+        }
+
+        int frames = 100;
+        long clearing = 0;
+        long moving = 0;
+        for (int round = 0; round < 2; round++) {
+            // the first round warms up.
+            long start = System.nanoTime();
+            for (int frame = 0; frame < frames; frame++) {
+                drift(all, random);
+                legacyClear(grid);
+                for (GameObject obj : all)
+                    grid.insertDynamicObject(obj);
+            }
+            clearing = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int frame = 0; frame < frames; frame++) {
+                drift(all, random);
+                for (GameObject obj : all)
+                    grid.move(obj);
+            }
+            moving = System.nanoTime() - start;
+        }
+
+        Log.i("SpatialHashGridTest", all.length + " objects in " + grid.dynamicCounts.length + " cells: clear and insert "
+                + clearing / frames / 1000 + " us, move " + moving / frames / 1000 + " us per frame");
+    }
+
+    static void drift(GameObject[] all, Random random) {
+        for (GameObject obj : all)
+            moveTo(obj, obj.position.x + random.nextFloat() * 4 - 2, obj.position.y + random.nextFloat() * 4 - 2);
+    }
+
+    /**
+     * The old clear: every cell of the world, occupied or not.
+     */
+    static void legacyClear(SpatialHashGrid grid) {
+        int len = grid.dynamicCounts.length;
+        for (int i = 0; i < len; i++)
+            grid.dynamicCounts[i] = 0;
+        grid.clearDynamicCells(null);
+    }
+
+    void benchmark(int perCell) {
+        // 4 x 4 cells, queried over 4 of them at a time.
+        SpatialHashGrid grid = new SpatialHashGrid(4 * CELL, 4 * CELL, CELL);
+        Random random = new Random(perCell);
+        int count = perCell * 16;
+        for (int i = 0; i < count; i++)
+            grid.insertDynamicObject(object(random.nextFloat() * 4 * CELL, random.nextFloat() * 4 * CELL, 1));
+
+        GameObject query = object(2 * CELL, 2 * CELL, CELL * 0.99f);
+        int queries = Math.max(10, 100000 / perCell);
+        final int[] visited = new int[1];
+        SpatialIndex.Visitor counter = new SpatialIndex.Visitor() {
+            @Override
+            public void visit(GameObject obj) {
+                visited[0]++;
+            }
+        };
+        List<GameObject> legacy = new ArrayList<GameObject>();
+
+        long contains = 0;
+        long list = 0;
+        long visitor = 0;
+        for (int round = 0; round < 2; round++) {
+            // the first round warms up.
+            long start = System.nanoTime();
+            for (int q = 0; q < queries; q++)
+                legacyPotentialColliders(grid, query, legacy);
+            contains = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int q = 0; q < queries; q++)
+                grid.getPotentialColliders(query);
+            list = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int q = 0; q < queries; q++)
+                grid.visitPotentialColliders(query, counter);
+            visitor = System.nanoTime() - start;
+        }
+
+        assertEquals(legacy.size(), grid.getPotentialColliders(query).size());
+        Log.i("SpatialHashGridTest", perCell + " per cell: contains " + contains / queries
+                + " ns, stamps " + list / queries + " ns, visitor " + visitor / queries + " ns per query");
+    }
+
+    /**
+     * The old query: the same cells, de-duplicated with List.contains.
+     */
+    static void legacyPotentialColliders(SpatialHashGrid grid, GameObject query, List<GameObject> found) {
+        found.clear();
+        for (int cellId : grid.getCellIds(query)) {
+            if (cellId == -1)
+                break;
+            int[] ids = grid.dynamicCells[cellId];
+            int len = grid.dynamicCounts[cellId];
+            for (int j = 0; j < len; j++) {
+                GameObject obj = grid.objects[ids[j]];
+                if (!found.contains(obj))
+                    found.add(obj);
+            }
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.badlogic.androidgames.framework.gl;
+
+import android.util.Log;
+
+import com.badlogic.androidgames.framework.GameObject;
+import com.badlogic.androidgames.framework.math.Circle;
+import com.badlogic.androidgames.framework.math.OverlapTester;
+import com.badlogic.androidgames.framework.math.Rectangle;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Checks that every SpatialIndex finds exactly the objects overlapping a
+ * query, with objects spread evenly over the world and bunched up in a few
+ * clusters, and logs how long a frame of moving and querying takes in each
+ * on the same workloads, to pick one for a given distribution of agents.
+ */
+public class SpatialIndexTest extends TestCase {
+    static final float WIDTH = 1920;
+    static final float HEIGHT = 1080;
+    static final float CELL = 64;
+
+    static final String[] NAMES = { "SpatialHashGrid", "SparseSpatialHashGrid", "LooseQuadTree" };
+
+    static SpatialIndex create(int index) {
+        switch (index) {
+            case 0:
+                return new SpatialHashGrid(WIDTH, HEIGHT, CELL);
+            case 1:
+                return new SparseSpatialHashGrid(CELL);
+            default:
+                return new LooseQuadTree(WIDTH, HEIGHT, CELL / 4);
+        }
+    }
+
+    static class Collector implements SpatialIndex.Visitor {
+        final Set<GameObject> found = new HashSet<GameObject>();
+        int count;
+
+        @Override
+        public void visit(GameObject obj) {
+            found.add(obj);
+            count++;
+        }
+    }
+
+    /**
+     * Objects of 2 to 20 across, all over the world, or around eight centers
+     * when clustered.
+     */
+    static GameObject[] objects(int count, boolean clustered, Random random) {
+        float[] centers = new float[16];
+        for (int i = 0; i < centers.length; i += 2) {
+            centers[i] = 100 + random.nextFloat() * (WIDTH - 200);
+            centers[i + 1] = 100 + random.nextFloat() * (HEIGHT - 200);
+        }
+
+        GameObject[] all = new GameObject[count];
+        for (int i = 0; i < count; i++) {
+            float x, y;
+            if (clustered) {
+                int c = random.nextInt(8) * 2;
+                x = centers[c] + (float) random.nextGaussian() * 40;
+                y = centers[c + 1] + (float) random.nextGaussian() * 40;
+            } else {
+                x = random.nextFloat() * WIDTH;
+                y = random.nextFloat() * HEIGHT;
+            }
+            float size = 2 + random.nextFloat() * 18;
+            all[i] = new GameObject(clamp(x, WIDTH), clamp(y, HEIGHT), size, size);
+        }
+        return all;
+    }
+
+    static float clamp(float v, float max) {
+        return Math.max(0, Math.min(max - 1, v));
+    }
+
+    static void drift(GameObject[] all, Random random, float step) {
+        for (GameObject obj : all) {
+            float x = clamp(obj.position.x + random.nextFloat() * 2 * step - step, WIDTH);
+            float y = clamp(obj.position.y + random.nextFloat() * 2 * step - step, HEIGHT);
+            obj.position.set(x, y);
+            obj.bounds.lowerLeft.set(x - obj.bounds.width / 2, y - obj.bounds.height / 2);
+        }
+    }
+
+    public void testUniform() {
+        checkAll(false);
+    }
+
+    public void testClustered() {
+        checkAll(true);
+    }
+
+    void checkAll(boolean clustered) {
+        for (int index = 0; index < NAMES.length; index++) {
+            Random random = new Random(19);
+            GameObject[] all = objects(500, clustered, random);
+            SpatialIndex spatial = create(index);
+            for (GameObject obj : all)
+                spatial.insert(obj);
+
+            for (int frame = 0; frame < 5; frame++) {
+                check(NAMES[index], spatial, all, random);
+                drift(all, random, 30);
+                for (GameObject obj : all)
+                    spatial.move(obj);
+            }
+
+            // every other object out, and back in.
+            List<GameObject> left = new ArrayList<GameObject>();
+            for (int i = 0; i < all.length; i += 2)
+                spatial.remove(all[i]);
+            for (int i = 1; i < all.length; i += 2)
+                left.add(all[i]);
+            check(NAMES[index], spatial, left.toArray(new GameObject[left.size()]), random);
+            for (int i = 0; i < all.length; i += 2)
+                spatial.insert(all[i]);
+            check(NAMES[index], spatial, all, random);
+        }
+    }
+
+    void check(String name, SpatialIndex spatial, GameObject[] all, Random random) {
+        for (int q = 0; q < 50; q++) {
+            Rectangle rect = new Rectangle(random.nextFloat() * WIDTH - 100, random.nextFloat() * HEIGHT - 100,
+                    random.nextFloat() * 300, random.nextFloat() * 300);
+            Circle circle = new Circle(random.nextFloat() * WIDTH, random.nextFloat() * HEIGHT, random.nextFloat() * 150);
+
+            Set<GameObject> inRect = new HashSet<GameObject>();
+            Set<GameObject> inCircle = new HashSet<GameObject>();
+            for (GameObject obj : all) {
+                if (OverlapTester.overlapRectangles(rect, obj.bounds))
+                    inRect.add(obj);
+                if (OverlapTester.overlapCircleRectangle(circle, obj.bounds))
+                    inCircle.add(obj);
+            }
+
+            Collector collector = new Collector();
+            spatial.query(rect, collector);
+            assertEquals(name, inRect, collector.found);
+            assertEquals(name, inRect.size(), collector.count);
+
+            collector = new Collector();
+            spatial.query(circle, collector);
+            assertEquals(name, inCircle, collector.found);
+            assertEquals(name, inCircle.size(), collector.count);
+        }
+    }
+
+    public void testQuadTreeSizesAndEdges() {
+        LooseQuadTree tree = new LooseQuadTree(WIDTH, HEIGHT, 16);
+        Random random = new Random(23);
+        List<GameObject> all = new ArrayList<GameObject>();
+        for (int i = 0; i < 300; i++) {
+            float size = random.nextFloat() < 0.1f ? random.nextFloat() * 800 : random.nextFloat() * 4;
+            all.add(new GameObject(random.nextFloat() * 2400 - 240, random.nextFloat() * 2400 - 240, size, size));
+        }
+        for (GameObject obj : all)
+            tree.insert(obj);
+        assertEquals(all.size(), tree.getObjectCount());
+
+        check("LooseQuadTree", tree, all.toArray(new GameObject[all.size()]), random);
+
+        for (GameObject obj : all)
+            tree.remove(obj);
+        assertEquals(0, tree.getObjectCount());
+        Collector collector = new Collector();
+        tree.query(new Rectangle(-1000, -1000, 5000, 5000), collector);
+        assertEquals(0, collector.count);
+    }
+
+    public void testSpeed() {
+        for (int count : new int[] { 2000, 10000 }) {
+            benchmark(count, false);
+            benchmark(count, true);
+        }
+    }
+
+    /**
+     * A frame moves every object a little and queries around a thousand of
+     * them, like flocking agents looking for their neighbours.
+     */
+    void benchmark(int count, boolean clustered) {
+        StringBuilder line = new StringBuilder();
+        line.append(count).append(clustered ? " clustered:" : " uniform:");
+        Circle circle = new Circle(0, 0, 50);
+        Collector counter = new Collector() {
+            @Override
+            public void visit(GameObject obj) {
+                count++;
+            }
+        };
+
+        for (int index = 0; index < NAMES.length; index++) {
+            Random random = new Random(29);
+            GameObject[] all = objects(count, clustered, random);
+            SpatialIndex spatial = create(index);
+            for (GameObject obj : all)
+                spatial.insert(obj);
+
+            int frames = 20;
+            long elapsed = 0;
+            for (int round = 0; round < 2; round++) {
+                // the first round warms up.
+                long start = System.nanoTime();
+                for (int frame = 0; frame < frames; frame++) {
+                    drift(all, random, 2);
+                    for (GameObject obj : all)
+                        spatial.move(obj);
+                    for (int i = 0; i < 1000; i++) {
+                        GameObject obj = all[i * count / 1000];
+                        circle.center.set(obj.position);
+                        spatial.query(circle, counter);
+                    }
+                }
+                elapsed = System.nanoTime() - start;
+            }
+            line.append(' ').append(NAMES[index]).append(' ').append(elapsed / frames / 1000).append(" us");
+        }
+
+        Log.i("SpatialIndexTest", line.toString() + " per frame");
+    }
+}
@@ -0,0 +1,220 @@
+package com.badlogic.androidgames.framework.gl;
+
+import android.util.Log;
+
+import com.badlogic.androidgames.framework.GameObject;
+import com.badlogic.androidgames.framework.math.OverlapTester;
+
+import junit.framework.TestCase;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Checks that SweepAndPrune finds exactly the overlapping pairs as objects
+ * move, come and go, and logs how long a tick of finding every pair takes
+ * from 1000 to 50000 objects, against moving the objects in a
+ * SpatialHashGrid and querying around each.
+ */
+public class SweepAndPruneTest extends TestCase {
+    static final float CELL = 16;
+
+    /**
+     * Objects of 2 to 10 across, as dense whatever their number: about one
+     * per 30 x 30.
+     */
+    static GameObject[] objects(int count, Random random) {
+        float side = worldSide(count);
+        GameObject[] all = new GameObject[count];
+        for (int i = 0; i < count; i++) {
+            float size = 2 + random.nextFloat() * 8;
+            all[i] = new GameObject(random.nextFloat() * side, random.nextFloat() * side, size, size);
+        }
+        return all;
+    }
+
+    static float worldSide(int count) {
+        return (float) Math.sqrt(count) * 30;
+    }
+
+    static void drift(GameObject[] all, Random random, float step, float side) {
+        for (GameObject obj : all) {
+            float x = Math.max(0, Math.min(side - 1, obj.position.x + random.nextFloat() * 2 * step - step));
+            float y = Math.max(0, Math.min(side - 1, obj.position.y + random.nextFloat() * 2 * step - step));
+            obj.position.set(x, y);
+            obj.bounds.lowerLeft.set(x - obj.bounds.width / 2, y - obj.bounds.height / 2);
+        }
+    }
+
+    static Set<Long> bruteForce(GameObject[] all, boolean[] present) {
+        Set<Long> pairs = new HashSet<Long>();
+        for (int i = 0; i < all.length; i++) {
+            for (int j = i + 1; j < all.length; j++) {
+                if (present[i] && present[j] && OverlapTester.overlapRectangles(all[i].bounds, all[j].bounds))
+                    pairs.add(key(all[i], all[j]));
+            }
+        }
+        return pairs;
+    }
+
+    static Set<Long> found(SweepAndPrune broadphase) {
+        Set<Long> pairs = new HashSet<Long>();
+        int[] ids = broadphase.getPairs();
+        for (int i = 0; i < broadphase.getPairCount(); i++) {
+            assertTrue(ids[2 * i] < ids[2 * i + 1]);
+            pairs.add(key(broadphase.getObject(ids[2 * i]), broadphase.getObject(ids[2 * i + 1])));
+        }
+        return pairs;
+    }
+
+    static long key(GameObject a, GameObject b) {
+        int ha = System.identityHashCode(a);
+        int hb = System.identityHashCode(b);
+        return ha < hb ? ((long) ha << 32) | (hb & 0xffffffffL) : ((long) hb << 32) | (ha & 0xffffffffL);
+    }
+
+    public void testFindsOverlappingPairs() {
+        Random random = new Random(31);
+        GameObject[] all = objects(400, random);
+        boolean[] present = new boolean[all.length];
+        SweepAndPrune broadphase = new SweepAndPrune(16, 4);
+        for (int i = 0; i < all.length; i++) {
+            broadphase.add(all[i]);
+            present[i] = true;
+        }
+
+        float side = worldSide(all.length);
+        for (int tick = 0; tick < 20; tick++) {
+            broadphase.update();
+            Set<Long> expected = bruteForce(all, present);
+            assertEquals(expected.size(), broadphase.getPairCount());
+            assertEquals(expected, found(broadphase));
+
+            drift(all, random, 3, side);
+
+            // a few objects leave, and a few come back.
+            for (int k = 0; k < 10; k++) {
+                int i = random.nextInt(all.length);
+                if (present[i])
+                    broadphase.remove(all[i]);
+                else
+                    broadphase.add(all[i]);
+                present[i] = !present[i];
+            }
+        }
+    }
+
+    public void testTouchingAndStacked() {
+        SweepAndPrune broadphase = new SweepAndPrune(4, 4);
+        GameObject a = new GameObject(10, 10, 10, 10);
+        GameObject b = new GameObject(20, 10, 10, 10);     // touches a on x
+        GameObject c = new GameObject(10, 10, 10, 10);     // right on top of a
+        GameObject d = new GameObject(10, 10, 0, 0);       // a point inside a
+        broadphase.add(a);
+        broadphase.add(b);
+        broadphase.add(c);
+        broadphase.add(d);
+        broadphase.update();
+
+        Set<Long> expected = new HashSet<Long>();
+        expected.add(key(a, c));
+        expected.add(key(a, d));
+        expected.add(key(c, d));
+        assertEquals(expected, found(broadphase));
+    }
+
+    public void testCoherentTicksSwapLittle() {
+        Random random = new Random(37);
+        GameObject[] all = objects(5000, random);
+        SweepAndPrune broadphase = new SweepAndPrune(all.length, all.length);
+        for (GameObject obj : all)
+            broadphase.add(obj);
+
+        // the first sort starts from the order of insertion.
+        broadphase.update();
+        int unsorted = broadphase.getSwaps();
+
+        drift(all, random, 1, worldSide(all.length));
+        broadphase.update();
+        assertTrue(broadphase.getSwaps() * 100 < unsorted);
+    }
+
+    public void testSpeed() {
+        for (int count : new int[] { 1000, 5000, 10000, 50000 })
+            benchmark(count);
+    }
+
+    /**
+     * A tick moves every object a little and finds all the overlapping pairs.
+     */
+    void benchmark(int count) {
+        Random random = new Random(41);
+        GameObject[] all = objects(count, random);
+        float side = worldSide(count);
+
+        SweepAndPrune broadphase = new SweepAndPrune(count, count);
+        for (GameObject obj : all)
+            broadphase.add(obj);
+        broadphase.update();
+
+        // the same objects, as those of the broadphase can't be in a grid too.
+        SpatialHashGrid grid = new SpatialHashGrid(side, side, CELL);
+        GameObject[] copies = new GameObject[count];
+        for (int i = 0; i < count; i++) {
+            copies[i] = copy(all[i]);
+            grid.insertDynamicObject(copies[i]);
+        }
+        PairCounter counter = new PairCounter();
+
+        int ticks = count >= 50000 ? 5 : 20;
+        long sweeping = 0;
+        long hashing = 0;
+        int sweepPairs = 0;
+        for (int round = 0; round < 2; round++) {
+            // the first round warms up.
+            long start = System.nanoTime();
+            for (int tick = 0; tick < ticks; tick++) {
+                drift(all, random, 1, side);
+                broadphase.update();
+            }
+            sweeping = System.nanoTime() - start;
+            sweepPairs = broadphase.getPairCount();
+
+            start = System.nanoTime();
+            for (int tick = 0; tick < ticks; tick++) {
+                drift(copies, random, 1, side);
+                counter.pairs = 0;
+                for (GameObject obj : copies)
+                    grid.move(obj);
+                for (GameObject obj : copies) {
+                    counter.query = obj;
+                    grid.visitPotentialColliders(obj, counter);
+                }
+            }
+            hashing = System.nanoTime() - start;
+        }
+
+        Log.i("SweepAndPruneTest", count + " objects: sweep and prune " + sweeping / ticks / 1000 + " us ("
+                + sweepPairs + " pairs, " + broadphase.getSwaps() + " swaps), SpatialHashGrid "
+                + hashing / ticks / 1000 + " us (" + counter.pairs + " pairs) per tick");
+    }
+
+    static GameObject copy(GameObject obj) {
+        return new GameObject(obj.position.x, obj.position.y, obj.bounds.width, obj.bounds.height);
+    }
+
+    /**
+     * Counts the pairs a grid query turns up, once each.
+     */
+    static class PairCounter implements SpatialIndex.Visitor {
+        GameObject query;
+        int pairs;
+
+        @Override
+        public void visit(GameObject obj) {
+            if (obj.gridId > query.gridId && OverlapTester.overlapRectangles(query.bounds, obj.bounds))
+                pairs++;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.badlogic.androidgames.framework.math;
+
+import android.util.Log;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+/**
+ * Checks that FastRandom streams are reproducible and within range, and logs
+ * how fast it is compared to java.util.Random on the device running the tests.
+ */
+public class FastRandomTest extends TestCase {
+    static final int SAMPLES = 1000000;
+
+    public void testSameSeedSameNumbers() {
+        FastRandom a = new FastRandom(1234);
+        FastRandom b = new FastRandom(1234);
+        for (int i = 0; i < 1000; i++)
+            assertEquals(a.nextLong(), b.nextLong());
+
+        a.setSeed(99);
+        b.setSeed(99);
+        assertEquals(a.nextFloat(), b.nextFloat());
+    }
+
+    public void testSplitIsReproducible() {
+        FastRandom a = new FastRandom(7).split();
+        FastRandom b = new FastRandom(7).split();
+        for (int i = 0; i < 1000; i++)
+            assertEquals(a.nextLong(), b.nextLong());
+    }
+
+    public void testStreamsDiffer() {
+        FastRandom a = new FastRandom();
+        FastRandom b = new FastRandom();
+        a.setStream(42, 0);
+        b.setStream(42, 1);
+
+        int same = 0;
+        for (int i = 0; i < 1000; i++)
+            if (a.nextInt() == b.nextInt())
+                same++;
+        assertTrue(same < 2);
+
+        // and the same key gives the same stream.
+        a.setStream(42, 1);
+        b.setStream(42, 1);
+        assertEquals(a.nextLong(), b.nextLong());
+    }
+
+    public void testRanges() {
+        FastRandom random = new FastRandom(42);
+        double sum = 0;
+        int[] buckets = new int[10];
+        for (int i = 0; i < SAMPLES; i++) {
+            float f = random.nextFloat();
+            assertTrue(f >= 0 && f < 1);
+            sum += f;
+
+            double d = random.nextDouble();
+            assertTrue(d >= 0 && d < 1);
+
+            int n = random.nextInt(10);
+            assertTrue(n >= 0 && n < 10);
+            buckets[n]++;
+        }
+
+        assertEquals(0.5, sum / SAMPLES, 0.005);
+        for (int i = 0; i < buckets.length; i++)
+            assertEquals(SAMPLES / 10, buckets[i], SAMPLES / 100);
+    }
+
+    public void testThroughput() {
+        Random random = new Random(42);
+        FastRandom fastRandom = new FastRandom(42);
+
+        // run both a few times first so the comparison is not skewed by the JIT.
+        for (int i = 0; i < 5; i++) {
+            sumRandom(random);
+            sumFastRandom(fastRandom);
+        }
+
+        long start = System.nanoTime();
+        float randomSum = sumRandom(random);
+        long randomTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        float fastSum = sumFastRandom(fastRandom);
+        long fastTime = System.nanoTime() - start;
+
+        Log.d("FastRandomTest", "java.util.Random: " + (randomTime * 1000 / SAMPLES) + " ps per float (" + randomSum + ")");
+        Log.d("FastRandomTest", "FastRandom:       " + (fastTime * 1000 / SAMPLES) + " ps per float (" + fastSum + ")");
+    }
+
+    static float sumRandom(Random random) {
+        float sum = 0;
+        for (int i = 0; i < SAMPLES; i++)
+            sum += random.nextFloat();
+        return sum;
+    }
+
+    static float sumFastRandom(FastRandom random) {
+        float sum = 0;
+        for (int i = 0; i < SAMPLES; i++)
+            sum += random.nextFloat();
+        return sum;
+    }
+}
@@ -0,0 +1,103 @@
+package com.badlogic.androidgames.framework.math;
+
+import android.util.Log;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+/**
+ * Checks the error bounds documented in FastTrig, and logs how fast the tables
+ * are compared to java.lang.Math on the device running the tests.
+ */
+public class FastTrigTest extends TestCase {
+    static final int SAMPLES = 200000;
+
+    public void testSinCosErrorBound() {
+        Random random = new Random(42);
+        for (int i = 0; i < SAMPLES; i++) {
+            float x = (random.nextFloat() * 2 - 1) * 1000;
+            assertEquals("sin(" + x + ")", Math.sin(x), FastTrig.sin(x), 6e-4);
+            assertEquals("cos(" + x + ")", Math.cos(x), FastTrig.cos(x), 6e-4);
+        }
+    }
+
+    public void testSinCosExactAtZero() {
+        assertEquals(0.0f, FastTrig.sin(0));
+        assertEquals(1.0f, FastTrig.cos(0));
+    }
+
+    public void testAtan2ErrorBound() {
+        Random random = new Random(42);
+        for (int i = 0; i < SAMPLES; i++) {
+            float y = (random.nextFloat() * 2 - 1) * 2000;
+            float x = (random.nextFloat() * 2 - 1) * 2000;
+            assertEquals("atan2(" + y + ", " + x + ")", Math.atan2(y, x), FastTrig.atan2(y, x), 1e-6);
+        }
+    }
+
+    public void testAtan2Axes() {
+        assertEquals(0.0f, FastTrig.atan2(0, 0));
+        assertEquals(0.0f, FastTrig.atan2(0, 1));
+        assertEquals(FastTrig.HALF_PI, FastTrig.atan2(1, 0));
+        assertEquals(FastTrig.PI, FastTrig.atan2(0, -1));
+        assertEquals(-FastTrig.HALF_PI, FastTrig.atan2(-1, 0));
+    }
+
+    public void testWrapAngle() {
+        Random random = new Random(42);
+        for (int i = 0; i < SAMPLES; i++) {
+            float x = (random.nextFloat() * 2 - 1) * 1000;
+            float wrapped = FastTrig.wrapAngle(x);
+            assertTrue(x + " wrapped to " + wrapped, wrapped >= -FastTrig.PI && wrapped <= FastTrig.PI);
+            // same angle, up to the rounding of x itself.
+            assertEquals(Math.sin(x), Math.sin(wrapped), 1e-4);
+            assertEquals(Math.cos(x), Math.cos(wrapped), 1e-4);
+        }
+        assertEquals(1.0f, FastTrig.wrapAngle(1.0f), 1e-6f);
+        assertEquals(-1.0f, FastTrig.wrapAngle(-1.0f), 1e-6f);
+    }
+
+    public void testThroughput() {
+        float[] angles = new float[4096];
+        Random random = new Random(42);
+        for (int i = 0; i < angles.length; i++)
+            angles[i] = (random.nextFloat() * 2 - 1) * 10;
+
+        // run both a few times first so the comparison is not skewed by the JIT.
+        for (int i = 0; i < 5; i++) {
+            sumMath(angles);
+            sumFastTrig(angles);
+        }
+
+        long start = System.nanoTime();
+        float mathSum = sumMath(angles);
+        long mathTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        float fastSum = sumFastTrig(angles);
+        long fastTime = System.nanoTime() - start;
+
+        int calls = 100 * angles.length * 3;
+        Log.d("FastTrigTest", "Math:     " + (mathTime / calls) + " ns per call (" + mathSum + ")");
+        Log.d("FastTrigTest", "FastTrig: " + (fastTime / calls) + " ns per call (" + fastSum + ")");
+    }
+
+    static float sumMath(float[] angles) {
+        float sum = 0;
+        for (int j = 0; j < 100; j++)
+            for (int i = 0; i < angles.length - 1; i++)
+                sum += (float) Math.sin(angles[i]) + (float) Math.cos(angles[i])
+                        + (float) Math.atan2(angles[i], angles[i + 1]);
+        return sum;
+    }
+
+    static float sumFastTrig(float[] angles) {
+        float sum = 0;
+        for (int j = 0; j < 100; j++)
+            for (int i = 0; i < angles.length - 1; i++)
+                sum += FastTrig.sin(angles[i]) + FastTrig.cos(angles[i])
+                        + FastTrig.atan2(angles[i], angles[i + 1]);
+        return sum;
+    }
+}
@@ -0,0 +1,65 @@
+package com.guillaumesoft.chaseandevade;
+
+import com.badlogic.androidgames.framework.ai.LineOfSight;
+import com.badlogic.androidgames.framework.ai.ObstacleGrid;
+
+import junit.framework.TestCase;
+
+/// <summary>
+/// Checks how AgentSimulation shares out the rays of line of sight between
+/// the tanks, and that tanks that can't see the cat don't catch it.
+/// </summary>
+public class AgentSimulationTest extends TestCase
+{
+    static final int TankCount = 20;
+
+    public void testEveryTankGetsToLook()
+    {
+        // a wall to the left of the cat hides it from the tanks on that side.
+        ObstacleGrid obstacles = new ObstacleGrid(1920, 1080, 20);
+        for (int y = 0; y < obstacles.height; y++)
+            obstacles.setBlocked(44, y, true);
+
+        AgentStore agents = new AgentStore(TankCount);
+        for (int i = 0; i < TankCount; i++)
+            agents.addTank(i % 2 == 0 ? 860 : 1060, 400 + i * 15, 0);
+
+        AgentSimulation simulation = new AgentSimulation(1920, 1080);
+        simulation.obstacles   = obstacles;
+        simulation.sight       = new LineOfSight(obstacles, TankCount);
+        simulation.sightBudget = 3;
+
+        // the cat steps between two cells, so no answer stays valid from one
+        // tick to the next and the same tanks would cast every ray if they
+        // always looked first.
+        int ticks = (TankCount + simulation.sightBudget - 1) / simulation.sightBudget;
+        for (int tick = 0; tick < ticks; tick++)
+            simulation.prepare(agents, tick % 2 == 0 ? 960 : 990, 540);
+
+        assertEquals(ticks * simulation.sightBudget, simulation.sight.rays);
+        for (int i = 0; i < TankCount; i++)
+            assertEquals("tank " + i, i % 2 != 0, simulation.sight.isVisible(i));
+    }
+
+    public void testUtilityTanksNeedToSeeTheCatToCatchIt()
+    {
+        AgentStore previous = new AgentStore(1);
+        AgentStore next     = new AgentStore(1);
+        previous.addTank(970, 540, 0);
+        next.copyFrom(previous);
+
+        AgentSimulation simulation = new AgentSimulation(1920, 1080);
+        TankUtility utility = new TankUtility(simulation, 1, 8.5f);
+        boolean[] guards = new boolean[1];
+
+        // a wandering tank, stopped right next to the cat, behind a wall.
+        utility.begin(0, 0);
+        utility.decide(previous, next, 0, 1, 960, 540, guards);
+        assertEquals(AgentStore.TANK_WANDER, next.state[0]);
+
+        guards[0] = true;
+        utility.begin(0, 0);
+        utility.decide(previous, next, 0, 1, 960, 540, guards);
+        assertEquals(AgentStore.TANK_CAUGHT, next.state[0]);
+    }
+}
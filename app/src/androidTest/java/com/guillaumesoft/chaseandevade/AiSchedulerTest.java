@@ -0,0 +1,184 @@
+package com.guillaumesoft.chaseandevade;
+
+import com.badlogic.androidgames.framework.ai.AgentNeighbours;
+
+import junit.framework.TestCase;
+
+/// <summary>
+/// Checks which agents the AiScheduler lets think on every tick, near the cat
+/// and far from it, that they turn as fast as when every agent thinks every
+/// tick, and that the tanks it leaves out of a tick keep the velocity they
+/// steered to around their neighbours the last time they thought.
+/// </summary>
+public class AiSchedulerTest extends TestCase
+{
+    public void testBucketsTakeTurns()
+    {
+        AgentStore previous = new AgentStore(8);
+        AgentStore next     = new AgentStore(8);
+        for (int i = 0; i < 8; i++)
+            previous.addTank(100 + i * 100, 100, 0);
+
+        // most of the tanks are far from the cat: let them think on every visit.
+        AiScheduler scheduler = new AiScheduler(new AgentSimulation(1920, 1080), 8);
+        scheduler.FarInterval = 1;
+        scheduler.FrameBudgetNanos = Long.MAX_VALUE / 2;
+
+        for (int tick = 1; tick <= 8; tick++)
+        {
+            scheduler.update(previous, next, 960, 540);
+            assertEquals(2, scheduler.thoughtLastTick);
+            assertFalse(scheduler.budgetExceededLastTick);
+
+            // bucket (tick - 1) % 4 thought; the others last did on their turn.
+            for (int i = 0; i < 8; i++)
+            {
+                int bucketTick = tick - (tick - 1 - i % 4 + 4) % 4;
+                assertEquals("agent " + i + " on tick " + tick, bucketTick > 0 ? bucketTick : 0, scheduler.lastThought[i]);
+            }
+
+            AgentStore swap = previous;
+            previous = next;
+            next     = swap;
+        }
+    }
+
+    public void testBudgetCarriesOver()
+    {
+        // with no time at all, a tick stops at the first look at the clock,
+        // every BudgetCheckInterval agents, and the next one carries on.
+        AgentStore previous = new AgentStore(200);
+        AgentStore next     = new AgentStore(200);
+        for (int i = 0; i < 200; i++)
+            previous.addMouse(5 + i * 9, 100, 0);
+
+        AiScheduler scheduler = new AiScheduler(new AgentSimulation(1920, 1080), 200);
+        scheduler.BucketCount = 2;
+        scheduler.FrameBudgetNanos = 0;
+
+        int interval = AiScheduler.BudgetCheckInterval;
+        int[] thought    = { interval, interval, interval, 100 - 3 * interval, interval };
+        int[] firstAgent = { 0, 2 * interval, 4 * interval, 6 * interval, 1 };
+        for (int t = 0; t < thought.length; t++)
+        {
+            scheduler.update(previous, next, 960, 540);
+            assertEquals(thought[t], scheduler.thoughtLastTick);
+            assertEquals(thought[t] == interval, scheduler.budgetExceededLastTick);
+            for (int n = 0; n < thought[t]; n++)
+                assertEquals(t + 1, scheduler.lastThought[firstAgent[t] + 2 * n]);
+
+            AgentStore swap = previous;
+            previous = next;
+            next     = swap;
+        }
+
+        // by then, every agent of the first bucket had its turn.
+        for (int i = 0; i < 200; i += 2)
+            assertTrue(scheduler.lastThought[i] > 0);
+    }
+
+    public void testFarAgentsThinkLessOften()
+    {
+        // one tank well inside the chase distance, and one well beyond it.
+        AgentStore previous = new AgentStore(2);
+        AgentStore next     = new AgentStore(2);
+        previous.addTank(760, 540, 0);
+        previous.addTank(960, 1040, 0);
+
+        AiScheduler scheduler = new AiScheduler(new AgentSimulation(1920, 1080), 2);
+        scheduler.BucketCount = 1;
+        scheduler.FarInterval = 3;
+        scheduler.FrameBudgetNanos = Long.MAX_VALUE / 2;
+
+        for (int tick = 1; tick <= 9; tick++)
+        {
+            scheduler.update(previous, next, 960, 540);
+            assertEquals(tick, scheduler.lastThought[0]);
+            assertEquals("on tick " + tick, tick - (tick - 1) % 3, scheduler.lastThought[1]);
+
+            AgentStore swap = previous;
+            previous = next;
+            next     = swap;
+        }
+    }
+
+    public void testAgentsTurnAsFastAsWhenEveryoneThinks()
+    {
+        // a tank close enough to chase and a mouse close enough to evade, both
+        // facing the wrong way. they stand still, so that the only difference
+        // between the two updates is how often the agents turn.
+        AgentStore scheduled = new AgentStore(2);
+        AgentStore next      = new AgentStore(2);
+        scheduled.addTank(760, 540, (float) Math.PI);
+        scheduled.addMouse(1060, 540, (float) Math.PI);
+        AgentStore everyTick = new AgentStore(2);
+        everyTick.copyFrom(scheduled);
+
+        AgentSimulation scheduledSimulation = standingSimulation();
+        AgentSimulation everyTickSimulation = standingSimulation();
+        AiScheduler scheduler = new AiScheduler(scheduledSimulation, 2);
+        scheduler.FrameBudgetNanos = Long.MAX_VALUE / 2;
+
+        for (int tick = 1; tick <= 40; tick++)
+        {
+            scheduler.update(scheduled, next, 960, 540);
+            AgentStore swap = scheduled;
+            scheduled = next;
+            next      = swap;
+
+            everyTickSimulation.update(everyTick, 960, 540);
+
+            for (int i = 0; i < 2; i++)
+            {
+                if (scheduler.lastThought[i] == tick)
+                    assertEquals("agent " + i + " on tick " + tick, 0, angleBetween(scheduled.orientation[i], everyTick.orientation[i]), 1e-4f);
+            }
+        }
+
+        assertEquals(AgentStore.TANK_CHASING, scheduled.state[0]);
+        assertEquals(AgentStore.MOUSE_EVADING, scheduled.state[1]);
+        assertEquals(0, scheduled.orientation[0], 1e-4f);
+        assertEquals(0, scheduled.orientation[1], 1e-4f);
+    }
+
+    public void testTanksThatDontThinkDontSteerAgain()
+    {
+        // two tanks heading straight at each other, far from the cat.
+        AgentStore previous = new AgentStore(2);
+        AgentStore next     = new AgentStore(2);
+        previous.addTank(900, 540, 0);
+        previous.addTank(940, 540, (float) Math.PI);
+        previous.speed[0] = 5.0f;
+        previous.speed[1] = 5.0f;
+
+        AgentSimulation simulation = new AgentSimulation(1920, 1080);
+        simulation.tankNeighbours = new AgentNeighbours(1920, 1080, 80.0f, 2, 10);
+
+        AiScheduler scheduler = new AiScheduler(simulation, 2);
+        scheduler.BucketCount = 2;
+        scheduler.FrameBudgetNanos = Long.MAX_VALUE / 2;
+
+        // only the first bucket, tank 0, thinks on the first tick, and only its
+        // neighbours are looked for.
+        scheduler.update(previous, next, 100, 100);
+        assertEquals(1, scheduler.thoughtLastTick);
+        assertEquals(1, simulation.tankNeighbours.getCount(0));
+        assertEquals(0, simulation.tankNeighbours.getCount(1));
+        assertEquals(previous.orientation[1], next.orientation[1]);
+        assertEquals(previous.speed[1], next.speed[1]);
+    }
+
+    static float angleBetween(float a, float b)
+    {
+        return (float) Math.atan2(Math.sin(a - b), Math.cos(a - b));
+    }
+
+    static AgentSimulation standingSimulation()
+    {
+        AgentSimulation simulation = new AgentSimulation(1920, 1080);
+        simulation.setSeed(7);
+        simulation.MaxTankSpeed  = 0;
+        simulation.MaxMouseSpeed = 0;
+        return simulation;
+    }
+}
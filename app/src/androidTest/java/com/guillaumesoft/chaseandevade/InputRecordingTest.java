@@ -0,0 +1,63 @@
+package com.guillaumesoft.chaseandevade;
+
+import com.badlogic.androidgames.framework.impl.HeadlessGame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+/// <summary>
+/// Checks that a session recorded the way the game records it, with the
+/// scheduler's time budget as it was set, plays back to the same state.
+/// </summary>
+public class InputRecordingTest extends TestCase
+{
+    static final int AgentCount = 2000;
+    static final int Ticks = 300;
+
+    public void testPlaybackOfDefaultBudget() throws IOException
+    {
+        checkPlayback(new AiScheduler(null, 0).FrameBudgetNanos);
+    }
+
+    public void testPlaybackOfExhaustedBudget() throws IOException
+    {
+        // a device so slow that the budget runs out on every tick.
+        checkPlayback(1);
+    }
+
+    void checkPlayback(long frameBudgetNanos) throws IOException
+    {
+        HeadlessGame game = new HeadlessGame(1920, 1080, ".");
+        GameScreen screen = new GameScreen(game, 1920, 1080, AgentCount / 2, AgentCount / 2, 7);
+        ScriptedControllerInput input = new ScriptedControllerInput(600);
+        screen.currentGamePadState = input;
+        screen.scheduler.FrameBudgetNanos = frameBudgetNanos;
+        screen.startRecording();
+        game.setScreen(screen);
+
+        for (int i = 0; i < Ticks; i++)
+        {
+            screen.update(HeadlessRunner.TickTime);
+            input.advance();
+        }
+        long expected = HeadlessRunner.checksum(screen);
+        screen.dispose();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        screen.recorder.getRecording().write(out);
+        InputRecording recording = InputRecording.read(new ByteArrayInputStream(out.toByteArray()));
+
+        game = new HeadlessGame(1920, 1080, ".");
+        screen = new GameScreen(game, 1920, 1080, recording.tankCount, recording.mouseCount, recording.seed);
+        screen.startPlayback(recording);
+        game.setScreen(screen);
+        for (int i = 1; i < recording.getTickCount(); i++)
+            screen.update(HeadlessRunner.TickTime);
+
+        assertEquals(expected, HeadlessRunner.checksum(screen));
+        screen.dispose();
+    }
+}
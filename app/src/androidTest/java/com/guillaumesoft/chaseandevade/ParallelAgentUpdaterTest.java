@@ -0,0 +1,95 @@
+package com.guillaumesoft.chaseandevade;
+
+import com.badlogic.androidgames.framework.math.FastRandom;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+/// <summary>
+/// Checks that a seeded swarm plays out exactly the same way whether it is
+/// updated on one thread or on several, even when the caller is interrupted.
+/// </summary>
+public class ParallelAgentUpdaterTest extends TestCase
+{
+    static final int AgentCount = 4096;
+    static final int Ticks = 200;
+
+    public void testSameResultOnAnyNumberOfThreads()
+    {
+        AgentStore single   = run(0, false);
+        AgentStore parallel = run(3, false);
+        AgentStore again    = run(3, false);
+
+        assertStoresEqual(single, parallel);
+        assertStoresEqual(parallel, again);
+    }
+
+    public void testInterruptedUpdateWaitsForTheWorkers()
+    {
+        // an interrupt must not cut a tick short while the workers are still
+        // writing the next store; the caller just hears about it afterwards.
+        AgentStore single      = run(0, false);
+        AgentStore interrupted = run(3, true);
+
+        assertStoresEqual(single, interrupted);
+    }
+
+    /// <summary>
+    /// Runs a seeded swarm for Ticks ticks, on the given number of worker
+    /// threads, or on the calling thread only if there are none. When interrupt
+    /// is set, the calling thread is interrupted before every tick.
+    /// </summary>
+    static AgentStore run(int threads, boolean interrupt)
+    {
+        FastRandom random = new FastRandom(42);
+        AgentStore agents = new AgentStore(AgentCount);
+        AgentStore next   = new AgentStore(AgentCount);
+        for (int i = 0; i < AgentCount / 2; i++)
+            agents.addTank(random.nextFloat() * 1920, random.nextFloat() * 1080, random.nextFloat() * 6.28f);
+        for (int i = 0; i < AgentCount / 2; i++)
+            agents.addMouse(random.nextFloat() * 1920, random.nextFloat() * 1080, random.nextFloat() * 6.28f);
+
+        AgentSimulation simulation = new AgentSimulation(1920, 1080);
+        simulation.setSeed(1234);
+
+        ParallelAgentUpdater updater = new ParallelAgentUpdater(simulation, Math.max(threads, 1));
+        if (threads == 0)
+            updater.ParallelThreshold = Integer.MAX_VALUE;
+
+        try
+        {
+            for (int tick = 0; tick < Ticks; tick++)
+            {
+                // the cat walks in a circle around the center of the world.
+                float catX = 960 + 300 * (float) Math.cos(tick * .02f);
+                float catY = 540 + 300 * (float) Math.sin(tick * .02f);
+                if (interrupt)
+                    Thread.currentThread().interrupt();
+                updater.update(agents, next, catX, catY);
+                if (interrupt)
+                    assertTrue(Thread.interrupted());
+
+                AgentStore swap = agents;
+                agents = next;
+                next   = swap;
+            }
+        }
+        finally
+        {
+            updater.dispose();
+        }
+        return agents;
+    }
+
+    static void assertStoresEqual(AgentStore expected, AgentStore actual)
+    {
+        assertEquals(expected.count, actual.count);
+        assertTrue(Arrays.equals(expected.state, actual.state));
+        assertTrue(Arrays.equals(expected.positionX, actual.positionX));
+        assertTrue(Arrays.equals(expected.positionY, actual.positionY));
+        assertTrue(Arrays.equals(expected.orientation, actual.orientation));
+        assertTrue(Arrays.equals(expected.wanderX, actual.wanderX));
+        assertTrue(Arrays.equals(expected.wanderY, actual.wanderY));
+    }
+}
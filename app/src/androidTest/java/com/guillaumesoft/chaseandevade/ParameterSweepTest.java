@@ -0,0 +1,50 @@
+package com.guillaumesoft.chaseandevade;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/// <summary>
+/// Checks that a sweep goes on past a combination the simulation refuses, and
+/// leaves its results empty.
+/// </summary>
+public class ParameterSweepTest extends TestCase
+{
+    public void testInvalidValuesDontStopTheSweep() throws Exception
+    {
+        File out = File.createTempFile("sweep", ".csv");
+        try
+        {
+            ParameterSweep sweep = new ParameterSweep();
+            sweep.parse(new String[] {
+                    "--matches", "2", "--ticks", "30", "--threads", "2", "--out", out.getPath(),
+                    "TankHysteresis=-10,15" });
+            sweep.run();
+
+            List<String> lines = new ArrayList<String>();
+            BufferedReader reader = new BufferedReader(new FileReader(out));
+            try
+            {
+                for (String line = reader.readLine(); line != null; line = reader.readLine())
+                    lines.add(line);
+            }
+            finally
+            {
+                reader.close();
+            }
+
+            assertEquals(3, lines.size());
+            assertEquals("TankHysteresis,catch_rate,time_to_catch,state_flips_per_second,ticks_per_second", lines.get(0));
+            assertEquals("-10.0,,,,", lines.get(1));
+            assertTrue(lines.get(2), lines.get(2).matches("15\\.0,[0-9.]+,[0-9.NaN]+,[0-9.]+,[0-9]+"));
+        }
+        finally
+        {
+            out.delete();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.guillaumesoft.chaseandevade;
+
+import android.util.Log;
+
+import com.badlogic.androidgames.framework.impl.HeadlessGame;
+import com.badlogic.androidgames.framework.math.Rectangle;
+
+import junit.framework.TestCase;
+
+/// <summary>
+/// Checks that restoring a WorldSnapshot replays the following ticks exactly,
+/// and logs what taking a snapshot costs.
+/// </summary>
+public class WorldSnapshotTest extends TestCase
+{
+    static final int AgentCount = 1000;
+
+    GameScreen screen;
+    ScriptedControllerInput input;
+
+    @Override
+    protected void setUp()
+    {
+        HeadlessGame game = new HeadlessGame(1920, 1080, ".");
+        screen = new GameScreen(game, 1920, 1080, AgentCount / 2, AgentCount / 2, 42);
+        input  = new ScriptedControllerInput(600);
+        screen.currentGamePadState = input;
+
+        // which agents think must not depend on how fast the test runs.
+        screen.scheduler.FrameBudgetNanos = Long.MAX_VALUE / 2;
+        game.setScreen(screen);
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        screen.dispose();
+    }
+
+    public void testRestoreReplaysTheSameTicks()
+    {
+        run(100);
+
+        WorldSnapshot snapshot = new WorldSnapshot(AgentCount);
+        snapshot.save(screen);
+        int inputTick = input.tick;
+
+        run(200);
+        long expected = HeadlessRunner.checksum(screen);
+
+        snapshot.restore(screen);
+        input.tick = inputTick;
+        assertEquals(snapshot.getTick(), screen.tick);
+
+        run(200);
+        assertEquals(expected, HeadlessRunner.checksum(screen));
+    }
+
+    public void testRestoreWithWallsInTheWay()
+    {
+        // walls along the way of the cat turn on the line of sight of the
+        // tanks and the chase flow field, and with far fewer rays than tanks,
+        // the tanks look in turn.
+        screen.obstacles.setBlocked(new Rectangle(1100, 120, 800, 40), true);
+        screen.obstacles.setBlocked(new Rectangle(1800, 200, 40, 600), true);
+        screen.simulation.sightBudget = 2;
+        run(100);
+
+        // a flow field rebuild takes more than one tick: take the snapshot
+        // while one is in progress. update(0) only tells whether it is done.
+        for (int i = 0; i < 200 && screen.chaseField.update(0); i++)
+            run(1);
+        assertFalse(screen.chaseField.update(0));
+
+        WorldSnapshot snapshot = new WorldSnapshot(AgentCount);
+        snapshot.save(screen);
+        int inputTick = input.tick;
+
+        run(200);
+        long expected = HeadlessRunner.checksum(screen);
+
+        snapshot.restore(screen);
+        input.tick = inputTick;
+        run(200);
+        assertEquals(expected, HeadlessRunner.checksum(screen));
+    }
+
+    public void testHistoryRewinds()
+    {
+        SnapshotHistory history = new SnapshotHistory(10, AgentCount);
+        long[] checksums = new long[20];
+
+        for (int i = 0; i < 20; i++)
+        {
+            history.save(screen);
+            checksums[i] = HeadlessRunner.checksum(screen);
+            run(1);
+        }
+        assertEquals(10, history.size());
+
+        assertTrue(history.rewind(screen, 3));
+        assertEquals(checksums[17], HeadlessRunner.checksum(screen));
+        assertEquals(7, history.size());
+
+        assertTrue(history.rewind(screen, 7));
+        assertEquals(checksums[10], HeadlessRunner.checksum(screen));
+        assertFalse(history.rewind(screen, 1));
+    }
+
+    public void testSnapshotCost()
+    {
+        WorldSnapshot snapshot = new WorldSnapshot(AgentCount);
+        for (int i = 0; i < 1000; i++)
+            snapshot.save(screen);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 10000; i++)
+            snapshot.save(screen);
+        long saveTime = (System.nanoTime() - start) / 10000;
+
+        start = System.nanoTime();
+        for (int i = 0; i < 10000; i++)
+            snapshot.restore(screen);
+        long restoreTime = (System.nanoTime() - start) / 10000;
+
+        Log.d("WorldSnapshotTest", AgentCount + " agents: save " + saveTime + " ns, restore " + restoreTime + " ns");
+    }
+
+    void run(int ticks)
+    {
+        for (int i = 0; i < ticks; i++)
+        {
+            screen.update(HeadlessRunner.TickTime);
+            input.advance();
+        }
+    }
+}
@@ -8,6 +8,10 @@ public class GameObject
     public  Vector2 position;
     public final Rectangle bounds;
 
+    // the id of the object in the SpatialIndex or SweepAndPrune it was
+    // inserted in, or -1.
+    public int gridId = -1;
+
     public GameObject(float x, float y, float width, float height)
     {
         this.position = new Vector2(x,y);
@@ -11,6 +11,15 @@ public abstract class Screen {
 
     public abstract void present(float deltaTime);
 
+    /**
+     * Called by games that update at a fixed rate. alpha is how far the frame
+     * lies between the last update and the next one, from 0 to 1, so screens
+     * can interpolate what they draw. By default it is ignored.
+     */
+    public void present(float deltaTime, float alpha) {
+        present(deltaTime);
+    }
+
     public abstract void pause();
 
     public abstract void resume();
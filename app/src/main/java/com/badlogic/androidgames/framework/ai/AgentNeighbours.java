@@ -0,0 +1,188 @@
+package com.badlogic.androidgames.framework.ai;
+
+import com.badlogic.androidgames.framework.GameObject;
+import com.badlogic.androidgames.framework.gl.SpatialHashGrid;
+import com.badlogic.androidgames.framework.gl.SpatialIndex;
+
+/**
+ * Finds the agents within a radius of other agents through a SpatialHashGrid,
+ * for flocking behaviours. Agents are known by their index in whatever arrays
+ * hold them.
+ *
+ * Every tick, clear() and insert() the agents that may be neighbours, then
+ * find() the neighbours of the agents that need them. Agents stay in the grid
+ * from one tick to the next: inserting one again only moves it, and those not
+ * inserted again are removed before the first find(), so a tick costs time in
+ * the number of agents inserted rather than in the size of the world. The
+ * closest neighbours are kept in a flat array, up to maxNeighbours per agent,
+ * so that they can be read from several threads once found. Only the closest
+ * cells are searched, so finding the neighbours of n agents takes time linear
+ * in n for a given density rather than n squared.
+ */
+public class AgentNeighbours {
+    static class Member extends GameObject {
+        int index;
+        int tick;
+
+        Member() {
+            super(0, 0, 0, 0);
+        }
+    }
+
+    public final float radius;
+    public final int maxNeighbours;
+
+    final SpatialHashGrid grid;
+    final Member[] members;
+    final GameObject query;
+
+    // the neighbours of agent i are neighbours[i * maxNeighbours] onwards.
+    final int[] neighbours;
+    final int[] neighbourCounts;
+    final float[] distances;
+    final float radiusSquared;
+    final Finder finder = new Finder();
+
+    // the agents inserted this tick and the tick before, and whether those of
+    // the tick before that were not inserted again are still to be removed.
+    int[] inserted;
+    int insertedCount;
+    int[] stale;
+    int staleCount;
+    int tick;
+    boolean sweep;
+
+    public AgentNeighbours(float worldWidth, float worldHeight, float radius, int capacity, int maxNeighbours) {
+        this.radius = radius;
+        this.radiusSquared = radius * radius;
+        this.maxNeighbours = maxNeighbours;
+
+        // cells as wide as a query, so that one never spans more than the four
+        // cells a SpatialHashGrid looks at. one more row and column keeps agents
+        // on the far edges of the world inside of the grid.
+        float cellSize = radius * 2;
+        this.grid = new SpatialHashGrid(worldWidth + cellSize, worldHeight + cellSize, cellSize);
+        this.query = new GameObject(0, 0, cellSize, cellSize);
+
+        this.members = new Member[capacity];
+        for (int i = 0; i < capacity; i++)
+            members[i] = new Member();
+
+        this.neighbours = new int[capacity * maxNeighbours];
+        this.neighbourCounts = new int[capacity];
+        this.distances = new float[maxNeighbours];
+        this.inserted = new int[capacity];
+        this.stale = new int[capacity];
+    }
+
+    public void clear() {
+        if (sweep)
+            sweep();
+
+        int[] swap = stale;
+        stale = inserted;
+        staleCount = insertedCount;
+        inserted = swap;
+        insertedCount = 0;
+        tick++;
+        sweep = true;
+    }
+
+    public void insert(int index, float x, float y) {
+        Member member = members[index];
+        member.index = index;
+        member.tick = tick;
+        member.position.set(x, y);
+        member.bounds.lowerLeft.set(x, y);
+        grid.move(member);
+        inserted[insertedCount++] = index;
+        neighbourCounts[index] = 0;
+    }
+
+    /**
+     * Removes the agents inserted the tick before but not this one.
+     */
+    void sweep() {
+        for (int i = 0; i < staleCount; i++) {
+            Member member = members[stale[i]];
+            if (member.tick != tick)
+                grid.removeObject(member);
+        }
+        sweep = false;
+    }
+
+    /**
+     * Finds the closest maxNeighbours agents within radius of (x, y), other than
+     * the agent itself, and returns how many were found. They are sorted from
+     * the closest on.
+     */
+    public int find(int index, float x, float y) {
+        if (sweep)
+            sweep();
+
+        query.position.set(x, y);
+        query.bounds.lowerLeft.set(x - radius, y - radius);
+
+        finder.index = index;
+        finder.x = x;
+        finder.y = y;
+        finder.offset = index * maxNeighbours;
+        finder.count = 0;
+        grid.visitPotentialColliders(query, finder);
+
+        neighbourCounts[index] = finder.count;
+        return finder.count;
+    }
+
+    /**
+     * Keeps the closest of the members a query visits.
+     */
+    class Finder implements SpatialIndex.Visitor {
+        int index;
+        float x;
+        float y;
+        int offset;
+        int count;
+
+        @Override
+        public void visit(GameObject obj) {
+            Member member = (Member) obj;
+            if (member.index == index)
+                return;
+
+            float dx = member.position.x - x;
+            float dy = member.position.y - y;
+            float distanceSquared = dx * dx + dy * dy;
+            if (distanceSquared > radiusSquared)
+                return;
+            if (count == maxNeighbours && (count == 0 || distanceSquared >= distances[count - 1]))
+                return;
+
+            // insertion into the sorted list, dropping the furthest when full.
+            int j = count < maxNeighbours ? count++ : count - 1;
+            while (j > 0 && distances[j - 1] > distanceSquared) {
+                distances[j] = distances[j - 1];
+                neighbours[offset + j] = neighbours[offset + j - 1];
+                j--;
+            }
+            distances[j] = distanceSquared;
+            neighbours[offset + j] = member.index;
+        }
+    }
+
+    /**
+     * The neighbours of every agent, maxNeighbours slots per agent. Those of
+     * agent i start at getOffset(i).
+     */
+    public int[] getNeighbours() {
+        return neighbours;
+    }
+
+    public int getOffset(int index) {
+        return index * maxNeighbours;
+    }
+
+    public int getCount(int index) {
+        return neighbourCounts[index];
+    }
+}
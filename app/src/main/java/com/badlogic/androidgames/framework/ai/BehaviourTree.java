@@ -0,0 +1,239 @@
+package com.badlogic.androidgames.framework.ai;
+
+import java.util.Arrays;
+
+/**
+ * A behaviour tree shared by many agents. The tree is built once, from the
+ * leaves up: leaf() wraps the code that checks or does something for an
+ * agent, sequence() and selector() combine nodes, and invert(), succeed() and
+ * fail() decorate one. Every method returns the index of the new node, to be
+ * passed to the nodes above it, and setRoot() finishes the tree.
+ *
+ * The nodes are kept in flat arrays, and so is everything the tree remembers
+ * about each agent: which child each sequence and selector was running when
+ * the agent last ticked. Ticking an agent walks the arrays and the
+ * agent's Blackboard slots without allocating, and one tree drives any number
+ * of agents, up to the capacity of its blackboard. Agents in disjoint ranges
+ * may be ticked on different threads, as long as the leaves allow it.
+ */
+public class BehaviourTree {
+    public static final int SUCCESS = 0;
+    public static final int FAILURE = 1;
+    public static final int RUNNING = 2;
+
+    /** The code behind a leaf node. */
+    public interface Leaf {
+        /**
+         * Checks or does something for the given agent, and returns SUCCESS,
+         * FAILURE or RUNNING if it is not done yet.
+         */
+        int tick(int agent, Blackboard blackboard);
+    }
+
+    static final byte SEQUENCE = 0;
+    static final byte SELECTOR = 1;
+    static final byte INVERT = 2;
+    static final byte SUCCEED = 3;
+    static final byte FAIL = 4;
+    static final byte LEAF = 5;
+
+    final Blackboard blackboard;
+
+    // the nodes. the children of a composite node are children[firstChild]
+    // to children[firstChild + childCount - 1], and composite numbers the
+    // sequences and selectors, to find what each agent remembers of them.
+    int nodeCount;
+    byte[] type = new byte[16];
+    int[] firstChild = new int[16];
+    int[] childCount = new int[16];
+    int[] composite = new int[16];
+    Leaf[] leaves = new Leaf[16];
+    int[] children = new int[16];
+    int childrenCount;
+    int compositeCount;
+    int root = -1;
+
+    // for every agent and composite node, the child to carry on from.
+    short[] resume;
+    byte[] status;
+
+    public BehaviourTree(Blackboard blackboard) {
+        this.blackboard = blackboard;
+    }
+
+    public Blackboard getBlackboard() {
+        return blackboard;
+    }
+
+    /** Adds a leaf running the given code. */
+    public int leaf(Leaf leaf) {
+        int node = add(LEAF);
+        leaves[node] = leaf;
+        return node;
+    }
+
+    /**
+     * Adds a node that ticks its children in order until one of them fails
+     * or is still running, and succeeds if all of them succeed. A running
+     * child is ticked again first on the agent's next tick.
+     */
+    public int sequence(int... nodes) {
+        return addComposite(SEQUENCE, nodes);
+    }
+
+    /**
+     * Adds a node that ticks its children in order until one of them
+     * succeeds or is still running, and fails if all of them fail. A running
+     * child is ticked again first on the agent's next tick.
+     */
+    public int selector(int... nodes) {
+        return addComposite(SELECTOR, nodes);
+    }
+
+    /** Adds a node turning the success of its child into failure, and back. */
+    public int invert(int node) {
+        return add(INVERT, node);
+    }
+
+    /** Adds a node that succeeds whenever its child is done. */
+    public int succeed(int node) {
+        return add(SUCCEED, node);
+    }
+
+    /** Adds a node that fails whenever its child is done. */
+    public int fail(int node) {
+        return add(FAIL, node);
+    }
+
+    /**
+     * Makes the given node the root of the tree, and sets up the state of the
+     * agents. The tree can't be changed after that.
+     */
+    public void setRoot(int node) {
+        if (root >= 0)
+            throw new IllegalStateException("The tree already has a root");
+        if (node < 0 || node >= nodeCount)
+            throw new IllegalArgumentException("No node " + node);
+        root = node;
+        resume = new short[blackboard.getCapacity() * compositeCount];
+        status = new byte[blackboard.getCapacity()];
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /** Ticks the given agent, and returns the status of the root. */
+    public int tick(int agent) {
+        if (root < 0)
+            throw new IllegalStateException("The tree has no root");
+        int result = run(root, agent);
+        status[agent] = (byte) result;
+        return result;
+    }
+
+    /** Ticks the agents in [from, to). */
+    public void tick(int from, int to) {
+        for (int agent = from; agent < to; agent++)
+            tick(agent);
+    }
+
+    /** The status of the root when the given agent last ticked. */
+    public int getStatus(int agent) {
+        return status[agent];
+    }
+
+    /**
+     * Forgets what the given agent was running, so that it starts from the
+     * first child of every node on its next tick.
+     */
+    public void reset(int agent) {
+        int offset = agent * compositeCount;
+        for (int i = 0; i < compositeCount; i++)
+            resume[offset + i] = 0;
+        status[agent] = SUCCESS;
+    }
+
+    int run(int node, int agent) {
+        switch (type[node]) {
+            case LEAF:
+                return leaves[node].tick(agent, blackboard);
+
+            case SEQUENCE:
+            case SELECTOR: {
+                // a sequence goes on while its children succeed, a selector
+                // while they fail.
+                int next = type[node] == SEQUENCE ? SUCCESS : FAILURE;
+                int memory = agent * compositeCount + composite[node];
+                int first = firstChild[node];
+                int count = childCount[node];
+
+                for (int i = resume[memory]; i < count; i++) {
+                    int result = run(children[first + i], agent);
+                    if (result == RUNNING) {
+                        resume[memory] = (short) i;
+                        return RUNNING;
+                    }
+                    if (result != next) {
+                        resume[memory] = 0;
+                        return result;
+                    }
+                }
+                resume[memory] = 0;
+                return next;
+            }
+
+            case INVERT: {
+                int result = run(children[firstChild[node]], agent);
+                return result == RUNNING ? RUNNING : result == SUCCESS ? FAILURE : SUCCESS;
+            }
+
+            case SUCCEED: {
+                int result = run(children[firstChild[node]], agent);
+                return result == RUNNING ? RUNNING : SUCCESS;
+            }
+
+            default: {
+                int result = run(children[firstChild[node]], agent);
+                return result == RUNNING ? RUNNING : FAILURE;
+            }
+        }
+    }
+
+    int addComposite(byte nodeType, int[] nodes) {
+        if (nodes.length == 0 || nodes.length > Short.MAX_VALUE)
+            throw new IllegalArgumentException("A node needs between 1 and " + Short.MAX_VALUE + " children");
+        int node = add(nodeType, nodes);
+        composite[node] = compositeCount++;
+        return node;
+    }
+
+    int add(byte nodeType, int... nodes) {
+        if (root >= 0)
+            throw new IllegalStateException("The tree can't be changed once it has a root");
+
+        if (nodeCount == type.length) {
+            int capacity = nodeCount * 2;
+            type = Arrays.copyOf(type, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            childCount = Arrays.copyOf(childCount, capacity);
+            composite = Arrays.copyOf(composite, capacity);
+            leaves = Arrays.copyOf(leaves, capacity);
+        }
+        if (childrenCount + nodes.length > children.length)
+            children = Arrays.copyOf(children, Math.max(children.length * 2, childrenCount + nodes.length));
+
+        for (int child : nodes) {
+            if (child < 0 || child >= nodeCount)
+                throw new IllegalArgumentException("No node " + child);
+        }
+
+        int node = nodeCount++;
+        type[node] = nodeType;
+        firstChild[node] = childrenCount;
+        childCount[node] = nodes.length;
+        System.arraycopy(nodes, 0, children, childrenCount, nodes.length);
+        childrenCount += nodes.length;
+        return node;
+    }
+}
@@ -0,0 +1,123 @@
+package com.badlogic.androidgames.framework.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What the agents driven by a BehaviourTree know, in primitive slots: every
+ * slot is a named float, int or boolean value with one entry per agent, kept
+ * in an array of its own. Slots are added when setting up the tree, and then
+ * read and written by index, without boxing or looking anything up by name.
+ */
+public class Blackboard {
+    final int capacity;
+    final List<String> floatNames = new ArrayList<String>();
+    final List<String> intNames = new ArrayList<String>();
+    final List<String> booleanNames = new ArrayList<String>();
+    float[][] floats = new float[0][];
+    int[][] ints = new int[0][];
+    boolean[][] booleans = new boolean[0][];
+
+    public Blackboard(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /** Adds a float slot and returns its index. */
+    public int addFloat(String name) {
+        float[][] grown = new float[floats.length + 1][];
+        System.arraycopy(floats, 0, grown, 0, floats.length);
+        grown[floats.length] = new float[capacity];
+        floats = grown;
+        floatNames.add(name);
+        return floats.length - 1;
+    }
+
+    /** Adds an int slot and returns its index. */
+    public int addInt(String name) {
+        int[][] grown = new int[ints.length + 1][];
+        System.arraycopy(ints, 0, grown, 0, ints.length);
+        grown[ints.length] = new int[capacity];
+        ints = grown;
+        intNames.add(name);
+        return ints.length - 1;
+    }
+
+    /** Adds a boolean slot and returns its index. */
+    public int addBoolean(String name) {
+        boolean[][] grown = new boolean[booleans.length + 1][];
+        System.arraycopy(booleans, 0, grown, 0, booleans.length);
+        grown[booleans.length] = new boolean[capacity];
+        booleans = grown;
+        booleanNames.add(name);
+        return booleans.length - 1;
+    }
+
+    /** Returns the index of the float slot of the given name, or -1. */
+    public int findFloat(String name) {
+        return floatNames.indexOf(name);
+    }
+
+    /** Returns the index of the int slot of the given name, or -1. */
+    public int findInt(String name) {
+        return intNames.indexOf(name);
+    }
+
+    /** Returns the index of the boolean slot of the given name, or -1. */
+    public int findBoolean(String name) {
+        return booleanNames.indexOf(name);
+    }
+
+    public float getFloat(int slot, int agent) {
+        return floats[slot][agent];
+    }
+
+    public void setFloat(int slot, int agent, float value) {
+        floats[slot][agent] = value;
+    }
+
+    public int getInt(int slot, int agent) {
+        return ints[slot][agent];
+    }
+
+    public void setInt(int slot, int agent, int value) {
+        ints[slot][agent] = value;
+    }
+
+    public boolean getBoolean(int slot, int agent) {
+        return booleans[slot][agent];
+    }
+
+    public void setBoolean(int slot, int agent, boolean value) {
+        booleans[slot][agent] = value;
+    }
+
+    /**
+     * Returns the values of a float slot, one per agent, for loops over many
+     * agents at once.
+     */
+    public float[] getFloats(int slot) {
+        return floats[slot];
+    }
+
+    public int[] getInts(int slot) {
+        return ints[slot];
+    }
+
+    public boolean[] getBooleans(int slot) {
+        return booleans[slot];
+    }
+
+    /** Sets every value of every slot back to 0 or false for one agent. */
+    public void clear(int agent) {
+        for (float[] values : floats)
+            values[agent] = 0;
+        for (int[] values : ints)
+            values[agent] = 0;
+        for (boolean[] values : booleans)
+            values[agent] = false;
+    }
+}
@@ -0,0 +1,345 @@
+package com.badlogic.androidgames.framework.ai;
+
+import com.badlogic.androidgames.framework.math.Vector2;
+
+/**
+ * A flow field leading every free cell of an ObstacleGrid towards one target,
+ * around the walls. It is computed once per target cell, and any number of
+ * agents then read their direction from it in constant time, instead of each
+ * running its own path search.
+ *
+ * Distances are octile: a straight step costs 1 and a diagonal one the square
+ * root of 2, as agents move in eight directions, so following the field takes
+ * the shortest way rather than a staircase of straight and diagonal steps.
+ *
+ * The field is only rebuilt when the target moves to another cell or the grid
+ * changes. A rebuild starts over from the target, and is spread over as many
+ * calls to update as its cell budget requires. Until a rebuild is complete,
+ * agents keep reading the previous field, so they never see a half built one.
+ */
+public class FlowField {
+    public static final int NONE = -1;
+
+    // the eight neighbours of a cell, counterclockwise from the right.
+    static final int[] DX = { 1, 1, 0, -1, -1, -1, 0, 1 };
+    static final int[] DY = { 0, 1, 1, 1, 0, -1, -1, -1 };
+    static final float[] COST = new float[8];
+    public static final float[] DIRECTION_X = new float[8];
+    public static final float[] DIRECTION_Y = new float[8];
+
+    static {
+        for (int i = 0; i < 8; i++) {
+            float length = (float) Math.sqrt(DX[i] * DX[i] + DY[i] * DY[i]);
+            DIRECTION_X[i] = DX[i] / length;
+            DIRECTION_Y[i] = DY[i] / length;
+            COST[i] = length;
+        }
+    }
+
+    static final int IDLE = 0;
+    static final int SEARCH = 1;
+    static final int FLOW = 2;
+
+    final ObstacleGrid grid;
+    final int cellCount;
+
+    // the field agents read, and the one being built.
+    byte[] flow;
+    float[] distance;
+    byte[] buildFlow;
+    float[] buildDistance;
+
+    // binary min heap of the cells whose distance may still go down, ordered
+    // by distance, and where each cell is in it, or -1.
+    final int[] heap;
+    final int[] heapIndex;
+    int heapSize;
+
+    int phase = IDLE;
+    int flowCursor;
+    boolean ready;
+
+    // the target and grid version of the field agents read, of the one being
+    // built, and the latest target asked for.
+    int targetCell = NONE;
+    int targetVersion;
+    int buildCell;
+    int buildVersion;
+    int requestedCell = NONE;
+
+    public FlowField(ObstacleGrid grid) {
+        this.grid = grid;
+        this.cellCount = grid.width * grid.height;
+        this.flow = new byte[cellCount];
+        this.distance = new float[cellCount];
+        this.buildFlow = new byte[cellCount];
+        this.buildDistance = new float[cellCount];
+        this.heap = new int[cellCount];
+        this.heapIndex = new int[cellCount];
+    }
+
+    /**
+     * Asks for a field leading to the given point. Nothing happens unless it is
+     * in another cell than the current target or the grid changed since.
+     */
+    public void setTarget(float x, float y) {
+        int cellX = Math.max(0, Math.min(grid.cellX(x), grid.width - 1));
+        int cellY = Math.max(0, Math.min(grid.cellY(y), grid.height - 1));
+        requestedCell = cellX + cellY * grid.width;
+
+        if (phase == IDLE)
+            startIfStale();
+    }
+
+    /**
+     * Does up to maxCells cells worth of rebuilding. Returns true if the field
+     * agents read is up to date with the target.
+     */
+    public boolean update(int maxCells) {
+        int budget = maxCells;
+
+        while (budget > 0 && phase != IDLE) {
+            if (phase == SEARCH)
+                budget = search(budget);
+            else
+                budget = computeFlow(budget);
+        }
+
+        if (phase == IDLE)
+            startIfStale();
+
+        return phase == IDLE;
+    }
+
+    /**
+     * Finishes any rebuild right away.
+     */
+    public void rebuild() {
+        update(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Whether any field was built yet.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Returns the direction to move in from the given cell, an index into
+     * DIRECTION_X and DIRECTION_Y, or NONE if the cell is the target, is
+     * blocked, can't reach the target, or there is no field yet.
+     */
+    public int getFlow(int cellX, int cellY) {
+        if (!ready || !grid.inside(cellX, cellY))
+            return NONE;
+        return flow[cellX + cellY * grid.width];
+    }
+
+    /**
+     * Writes the direction to move in from the given point into out, and
+     * returns whether there was one.
+     */
+    public boolean sample(float x, float y, Vector2 out) {
+        int direction = getFlow(grid.cellX(x), grid.cellY(y));
+        if (direction == NONE)
+            return false;
+
+        out.set(DIRECTION_X[direction], DIRECTION_Y[direction]);
+        return true;
+    }
+
+    /**
+     * Copies another field over the same grid, along with any rebuild it has
+     * in progress, so that a saved state can be restored.
+     */
+    public void copyFrom(FlowField other) {
+        if (other.cellCount != cellCount)
+            throw new IllegalArgumentException("FlowField sizes differ: " + other.cellCount + " != " + cellCount);
+
+        System.arraycopy(other.flow, 0, flow, 0, cellCount);
+        System.arraycopy(other.distance, 0, distance, 0, cellCount);
+        System.arraycopy(other.buildFlow, 0, buildFlow, 0, cellCount);
+        System.arraycopy(other.buildDistance, 0, buildDistance, 0, cellCount);
+        System.arraycopy(other.heap, 0, heap, 0, other.heapSize);
+        System.arraycopy(other.heapIndex, 0, heapIndex, 0, cellCount);
+        heapSize = other.heapSize;
+
+        phase = other.phase;
+        flowCursor = other.flowCursor;
+        ready = other.ready;
+        targetCell = other.targetCell;
+        targetVersion = other.targetVersion;
+        buildCell = other.buildCell;
+        buildVersion = other.buildVersion;
+        requestedCell = other.requestedCell;
+    }
+
+    private void startIfStale() {
+        if (requestedCell == NONE)
+            return;
+        if (ready && requestedCell == targetCell && grid.getVersion() == targetVersion)
+            return;
+
+        buildCell = requestedCell;
+        buildVersion = grid.getVersion();
+
+        for (int i = 0; i < cellCount; i++) {
+            buildDistance[i] = Float.POSITIVE_INFINITY;
+            heapIndex[i] = -1;
+        }
+
+        buildDistance[buildCell] = 0;
+        heapSize = 0;
+        push(buildCell);
+        phase = SEARCH;
+    }
+
+    /**
+     * Dijkstra's algorithm over the eight neighbours of each cell, giving the
+     * length of the shortest way from each free cell to the target. Diagonal
+     * steps are only taken when both cells beside them are free, as in the
+     * flow.
+     */
+    private int search(int budget) {
+        int width = grid.width;
+
+        while (budget > 0 && heapSize > 0) {
+            int cell = pop();
+            int x = cell % width;
+            int y = cell / width;
+            float d = buildDistance[cell];
+
+            for (int i = 0; i < 8; i++) {
+                int nx = x + DX[i];
+                int ny = y + DY[i];
+                if (grid.isBlocked(nx, ny))
+                    continue;
+                if (DX[i] != 0 && DY[i] != 0 && (grid.isBlocked(nx, y) || grid.isBlocked(x, ny)))
+                    continue;
+
+                int next = nx + ny * width;
+                float nextDistance = d + COST[i];
+                if (nextDistance < buildDistance[next]) {
+                    buildDistance[next] = nextDistance;
+                    if (heapIndex[next] == -1)
+                        push(next);
+                    else
+                        siftUp(heapIndex[next]);
+                }
+            }
+            budget--;
+        }
+
+        if (heapSize == 0) {
+            phase = FLOW;
+            flowCursor = 0;
+        }
+        return budget;
+    }
+
+    /**
+     * Points every cell at the neighbour its shortest way to the target goes
+     * through. Diagonal moves are only allowed when both cells beside them are
+     * free, so agents don't cut the corners of walls.
+     */
+    private int computeFlow(int budget) {
+        int width = grid.width;
+
+        while (budget > 0 && flowCursor < cellCount) {
+            int cell = flowCursor++;
+            int x = cell % width;
+            int y = cell / width;
+            int best = NONE;
+            float bestDistance = buildDistance[cell];
+
+            if (bestDistance != Float.POSITIVE_INFINITY) {
+                for (int i = 0; i < 8; i++) {
+                    int nx = x + DX[i];
+                    int ny = y + DY[i];
+                    if (grid.isBlocked(nx, ny))
+                        continue;
+                    if (DX[i] != 0 && DY[i] != 0 && (grid.isBlocked(nx, y) || grid.isBlocked(x, ny)))
+                        continue;
+
+                    float d = buildDistance[nx + ny * width] + COST[i];
+                    if (d <= bestDistance) {
+                        bestDistance = d;
+                        best = i;
+                    }
+                }
+            }
+            buildFlow[cell] = (byte) best;
+            budget--;
+        }
+
+        if (flowCursor == cellCount) {
+            byte[] swapFlow = flow;
+            flow = buildFlow;
+            buildFlow = swapFlow;
+
+            float[] swapDistance = distance;
+            distance = buildDistance;
+            buildDistance = swapDistance;
+
+            targetCell = buildCell;
+            targetVersion = buildVersion;
+            ready = true;
+            phase = IDLE;
+        }
+        return budget;
+    }
+
+    private void push(int cell) {
+        heap[heapSize] = cell;
+        heapIndex[cell] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private int pop() {
+        int top = heap[0];
+        heapIndex[top] = -1;
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndex[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int i) {
+        int cell = heap[i];
+        float d = buildDistance[cell];
+        while (i > 0) {
+            int up = (i - 1) >> 1;
+            int upCell = heap[up];
+            if (buildDistance[upCell] <= d)
+                break;
+            heap[i] = upCell;
+            heapIndex[upCell] = i;
+            i = up;
+        }
+        heap[i] = cell;
+        heapIndex[cell] = i;
+    }
+
+    private void siftDown(int i) {
+        int cell = heap[i];
+        float d = buildDistance[cell];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize)
+                break;
+            if (child + 1 < heapSize && buildDistance[heap[child + 1]] < buildDistance[heap[child]])
+                child++;
+            if (buildDistance[heap[child]] >= d)
+                break;
+            heap[i] = heap[child];
+            heapIndex[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = cell;
+        heapIndex[cell] = i;
+    }
+}
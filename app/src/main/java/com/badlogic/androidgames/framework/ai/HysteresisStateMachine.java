@@ -0,0 +1,207 @@
+package com.badlogic.androidgames.framework.ai;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A state machine whose states are the zones of a set of ProximityTriggers
+ * bands around a target: an agent is in the state of the zone it is in, and
+ * changes state when it crosses a band by more than its hysteresis margin.
+ * The states, the bands and the margins are all data, set up with setState
+ * and setBand, so one engine runs any such machine. A state can also be
+ * guarded, so that agents only move in to it when a per-agent condition
+ * holds, such as being able to see the target.
+ *
+ * update() moves a whole range of agents on by a tick in one loop over their
+ * state and position arrays, and counts how many agents were in each state
+ * and how many changed from one state to another, for instrumentation. Every
+ * thread updating agents counts into its own counters, which are only added
+ * up when they are read, so several threads can update disjoint ranges at
+ * once. Read the counters between updates. The counters of threads that have
+ * died are folded into one set when the counters are read or a new thread
+ * starts counting, so threads coming and going don't pile them up.
+ */
+public class HysteresisStateMachine {
+    final ProximityTriggers triggers;
+    final String[] names;
+    final byte[] zoneOfState;
+    final byte[] stateOfZone;
+    final boolean[] guarded;
+
+    // the counters of every thread still alive that counted, the threads they
+    // belong to, and the sum of the counters of the threads that died since.
+    final List<long[]> allCounters = new ArrayList<long[]>();
+    final List<WeakReference<Thread>> counterThreads = new ArrayList<WeakReference<Thread>>();
+    final long[] deadCounters;
+    final ThreadLocal<long[]> counters = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            // the occupancy of every state, then the transitions from every
+            // state to every other one.
+            long[] counters = new long[deadCounters.length];
+            synchronized (allCounters) {
+                foldDeadCounters();
+                allCounters.add(counters);
+                counterThreads.add(new WeakReference<Thread>(Thread.currentThread()));
+            }
+            return counters;
+        }
+    };
+
+    /**
+     * Creates a machine of bandCount bands, and so of bandCount + 1 states.
+     * Until setState is called, state n is the state of zone n.
+     */
+    public HysteresisStateMachine(int bandCount) {
+        triggers = new ProximityTriggers(bandCount);
+        int stateCount = bandCount + 1;
+        names = new String[stateCount];
+        zoneOfState = new byte[stateCount];
+        stateOfZone = new byte[stateCount];
+        guarded = new boolean[stateCount];
+        deadCounters = new long[stateCount * (stateCount + 1)];
+        for (int i = 0; i < stateCount; i++) {
+            names[i] = "State" + i;
+            zoneOfState[i] = (byte) i;
+            stateOfZone[i] = (byte) i;
+        }
+    }
+
+    public int getStateCount() {
+        return names.length;
+    }
+
+    /**
+     * Makes the given state the state of the agents in the given zone, zone 0
+     * being inside the innermost band. Every state must be given a different
+     * zone.
+     */
+    public void setState(int state, String name, int zone) {
+        names[state] = name;
+        zoneOfState[state] = (byte) zone;
+        stateOfZone[zone] = (byte) state;
+    }
+
+    /**
+     * Guards the given state: agents crossing a band inwards into it, or
+     * through it to a state further in, stop just outside of it unless their
+     * guard is true. Agents leaving a state outwards are never held back.
+     */
+    public void setGuarded(int state, boolean isGuarded) {
+        guarded[state] = isGuarded;
+    }
+
+    public String getName(int state) {
+        return names[state];
+    }
+
+    /** See ProximityTriggers.setBand. */
+    public void setBand(int band, float enterRadius, float exitRadius) {
+        triggers.setBand(band, enterRadius, exitRadius);
+    }
+
+    /**
+     * Moves the agents in [from, to) whose kind is agentKind on by a tick:
+     * reads their state from states, and writes their new state, from their
+     * distance to the target, into nextStates. Both may be the same array.
+     */
+    public void update(byte[] states, byte[] nextStates, float[] x, float[] y, byte[] kind, byte agentKind,
+                       int from, int to, float targetX, float targetY) {
+        update(states, nextStates, x, y, kind, agentKind, from, to, targetX, targetY, null);
+    }
+
+    /**
+     * Same as above, holding agents whose guard is false out of the guarded
+     * states. A null guards array lets every agent in.
+     */
+    public void update(byte[] states, byte[] nextStates, float[] x, float[] y, byte[] kind, byte agentKind,
+                       int from, int to, float targetX, float targetY, boolean[] guards) {
+        final ProximityTriggers triggers = this.triggers;
+        final byte[] zoneOfState = this.zoneOfState;
+        final byte[] stateOfZone = this.stateOfZone;
+        final boolean[] guarded = this.guarded;
+        final long[] counters = this.counters.get();
+        final int stateCount = names.length;
+
+        for (int i = from; i < to; i++) {
+            if (kind[i] != agentKind)
+                continue;
+
+            float dx = x[i] - targetX;
+            float dy = y[i] - targetY;
+            int state = states[i];
+            int zone = zoneOfState[state];
+            int nextZone = triggers.zone(zone, dx, dy);
+            if (nextZone < zone && guards != null && !guards[i]) {
+                for (int z = zone - 1; z >= nextZone; z--) {
+                    if (guarded[stateOfZone[z]]) {
+                        nextZone = z + 1;
+                        break;
+                    }
+                }
+            }
+            int nextState = stateOfZone[nextZone];
+
+            nextStates[i] = (byte) nextState;
+            counters[nextState]++;
+            counters[stateCount + state * stateCount + nextState]++;
+        }
+    }
+
+    /**
+     * The number of times an agent was left in the given state by update(),
+     * since the counters were last reset.
+     */
+    public long getOccupancy(int state) {
+        return sum(state);
+    }
+
+    /**
+     * The number of times update() moved an agent from one state to another,
+     * or left it in the same state when both are the same, since the counters
+     * were last reset.
+     */
+    public long getTransitions(int fromState, int toState) {
+        return sum(names.length + fromState * names.length + toState);
+    }
+
+    public void resetCounters() {
+        synchronized (allCounters) {
+            foldDeadCounters();
+            for (long[] counters : allCounters)
+                Arrays.fill(counters, 0);
+            Arrays.fill(deadCounters, 0);
+        }
+    }
+
+    long sum(int counter) {
+        long sum;
+        synchronized (allCounters) {
+            foldDeadCounters();
+            sum = deadCounters[counter];
+            for (long[] counters : allCounters)
+                sum += counters[counter];
+        }
+        return sum;
+    }
+
+    /**
+     * Adds the counters of the threads that died into deadCounters, and forgets
+     * them. A thread's counts are all visible once it is seen to have died.
+     * Must be called holding the lock on allCounters.
+     */
+    private void foldDeadCounters() {
+        for (int i = allCounters.size() - 1; i >= 0; i--) {
+            Thread thread = counterThreads.get(i).get();
+            if (thread != null && thread.isAlive())
+                continue;
+
+            long[] counters = allCounters.remove(i);
+            counterThreads.remove(i);
+            for (int c = 0; c < counters.length; c++)
+                deadCounters[c] += counters[c];
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.badlogic.androidgames.framework.ai;
+
+import com.badlogic.androidgames.framework.math.Vector2;
+
+/**
+ * A grid of floats holding how dangerous each cell of the world is. Threat
+ * sources stamp their strength in their cell with addSource(), and every
+ * update() spreads the influence one cell further, fading with the distance
+ * travelled, and lets every cell move part of the way, the momentum, to
+ * the influence of its neighbours. Threats so leave a fading trail where
+ * they went, rather than being recomputed from every source on every update.
+ *
+ * Agents read the grid in constant time: sample() gives the influence at a
+ * point, and getGradient() the direction it grows fastest in, so the cost
+ * of knowing the danger doesn't grow with the number of agents asking. When
+ * the map has an ObstacleGrid of the same cell size, walls hold no influence
+ * and stop it from spreading.
+ */
+public class InfluenceMap {
+    public final int width;
+    public final int height;
+    public final float cellSize;
+
+    // the influence agents read, and the next one being spread into.
+    float[] influence;
+    float[] next;
+
+    // how much influence is kept from one cell to the next, straight and
+    // diagonally, and how fast cells follow their neighbours.
+    float straightFalloff;
+    float diagonalFalloff;
+    float momentum;
+
+    ObstacleGrid obstacles;
+
+    public InfluenceMap(float worldWidth, float worldHeight, float cellSize) {
+        this.cellSize = cellSize;
+        this.width = (int) Math.ceil(worldWidth / cellSize);
+        this.height = (int) Math.ceil(worldHeight / cellSize);
+        this.influence = new float[width * height];
+        this.next = new float[width * height];
+        setSpread(0.01f, 0.5f);
+    }
+
+    /**
+     * Sets how the influence spreads: it falls off by a factor of
+     * exp(-decay * distance) over a distance in pixels, and every update moves
+     * each cell this fraction of the way to the influence of its neighbours.
+     */
+    public void setSpread(float decay, float momentum) {
+        this.straightFalloff = (float) Math.exp(-decay * cellSize);
+        this.diagonalFalloff = (float) Math.exp(-decay * cellSize * Math.sqrt(2));
+        this.momentum = momentum;
+    }
+
+    /**
+     * Makes the walls of the given grid, which must have the same cell size,
+     * block the influence. Null removes them.
+     */
+    public void setObstacles(ObstacleGrid obstacles) {
+        if (obstacles != null && (obstacles.width != width || obstacles.height != height))
+            throw new IllegalArgumentException("The obstacle grid must have the same cells as the map");
+        this.obstacles = obstacles;
+    }
+
+    public int cellX(float x) {
+        return (int) Math.floor(x / cellSize);
+    }
+
+    public int cellY(float y) {
+        return (int) Math.floor(y / cellSize);
+    }
+
+    /**
+     * Raises the influence of the cell at (x, y) to at least strength.
+     */
+    public void addSource(float x, float y, float strength) {
+        int cellX = cellX(x);
+        int cellY = cellY(y);
+        if (cellX < 0 || cellX >= width || cellY < 0 || cellY >= height)
+            return;
+
+        int cell = cellX + cellY * width;
+        if (influence[cell] < strength)
+            influence[cell] = strength;
+    }
+
+    /**
+     * Spreads the influence one cell further.
+     */
+    public void update() {
+        final float[] influence = this.influence;
+        final float[] next = this.next;
+        final int width = this.width;
+        final int height = this.height;
+        final float straight = straightFalloff;
+        final float diagonal = diagonalFalloff;
+        final boolean[] blocked = obstacles != null && obstacles.getBlockedCount() > 0 ? obstacles.blocked : null;
+
+        for (int y = 0; y < height; y++) {
+            int up = y > 0 ? -width : 0;
+            int down = y < height - 1 ? width : 0;
+
+            for (int x = 0; x < width; x++) {
+                int cell = x + y * width;
+                if (blocked != null && blocked[cell]) {
+                    next[cell] = 0;
+                    continue;
+                }
+
+                // off the edges, a cell is its own neighbour.
+                int left = x > 0 ? -1 : 0;
+                int right = x < width - 1 ? 1 : 0;
+
+                float best = Math.max(
+                        Math.max(influence[cell + left], influence[cell + right]),
+                        Math.max(influence[cell + up], influence[cell + down])) * straight;
+                float corners = Math.max(
+                        Math.max(influence[cell + up + left], influence[cell + up + right]),
+                        Math.max(influence[cell + down + left], influence[cell + down + right])) * diagonal;
+                if (corners > best)
+                    best = corners;
+
+                float value = influence[cell];
+                next[cell] = value + (best - value) * momentum;
+            }
+        }
+
+        this.influence = next;
+        this.next = influence;
+    }
+
+    /**
+     * The influence at (x, y), 0 outside of the map.
+     */
+    public float sample(float x, float y) {
+        int cellX = cellX(x);
+        int cellY = cellY(y);
+        if (cellX < 0 || cellX >= width || cellY < 0 || cellY >= height)
+            return 0;
+        return influence[cellX + cellY * width];
+    }
+
+    /**
+     * Sets gradient to how fast the influence grows per pixel along x and y
+     * around (x, y). Agents running from the threats go the other way. Walls
+     * and the edges of the map count as having the influence of the cell at
+     * (x, y), so the gradient never leads into them.
+     */
+    public Vector2 getGradient(float x, float y, Vector2 gradient) {
+        int cellX = cellX(x);
+        int cellY = cellY(y);
+        if (cellX < 0 || cellX >= width || cellY < 0 || cellY >= height)
+            return gradient.set(0, 0);
+
+        float center = influence[cellX + cellY * width];
+        float left = get(cellX - 1, cellY, center);
+        float right = get(cellX + 1, cellY, center);
+        float down = get(cellX, cellY - 1, center);
+        float up = get(cellX, cellY + 1, center);
+        return gradient.set((right - left) / (2 * cellSize), (up - down) / (2 * cellSize));
+    }
+
+    float get(int cellX, int cellY, float otherwise) {
+        if (cellX < 0 || cellX >= width || cellY < 0 || cellY >= height)
+            return otherwise;
+        if (obstacles != null && obstacles.blocked[cellX + cellY * width])
+            return otherwise;
+        return influence[cellX + cellY * width];
+    }
+
+    /**
+     * The influence of every cell, row by row, for copying or drawing it.
+     */
+    public float[] getValues() {
+        return influence;
+    }
+
+    public void clear() {
+        for (int i = 0; i < influence.length; i++)
+            influence[i] = 0;
+    }
+}
@@ -0,0 +1,158 @@
+package com.badlogic.androidgames.framework.ai;
+
+/**
+ * Line of sight tests over the cells of an ObstacleGrid. A ray walks the
+ * cells the segment between two points passes through, in order, with the
+ * grid traversal of Amanatides and Woo, and stops at the first blocked one.
+ *
+ * For many agents looking at one target, begin() starts a frame with a budget
+ * of rays, and look() then tells whether each agent sees the target. The
+ * answer is kept per agent, and reused as long as neither the agent nor the
+ * target moved to another cell and the walls did not change. Once the rays
+ * of the frame are used up, agents keep their previous answer until a later
+ * frame, so the cost of a frame is bounded however many agents look.
+ */
+public class LineOfSight {
+    final ObstacleGrid grid;
+
+    // for every agent: whether it saw the target, and from which cell, of
+    // which target cell and grid version. a cell of -1 means never.
+    final boolean[] visible;
+    final int[] agentCell;
+    final int[] targetCell;
+    final int[] version;
+
+    // the frame in progress.
+    float targetX;
+    float targetY;
+    int frameTargetCell;
+    int budget;
+
+    public int rays;
+    public int cacheHits;
+
+    public LineOfSight(ObstacleGrid grid, int capacity) {
+        this.grid = grid;
+        this.visible = new boolean[capacity];
+        this.agentCell = new int[capacity];
+        this.targetCell = new int[capacity];
+        this.version = new int[capacity];
+        for (int i = 0; i < capacity; i++)
+            agentCell[i] = -1;
+    }
+
+    /**
+     * Whether nothing blocks the segment from (x1, y1) to (x2, y2). Both ends
+     * count, so a point inside a wall sees nothing.
+     */
+    public boolean isClear(float x1, float y1, float x2, float y2) {
+        ObstacleGrid grid = this.grid;
+        float cellSize = grid.cellSize;
+        int x = grid.cellX(x1);
+        int y = grid.cellY(y1);
+        int endX = grid.cellX(x2);
+        int endY = grid.cellY(y2);
+        float dx = x2 - x1;
+        float dy = y2 - y1;
+
+        // the steps to the next cell, and how far along the segment, from 0 to
+        // 1, the next vertical and horizontal cell borders are crossed.
+        int stepX = dx > 0 ? 1 : -1;
+        int stepY = dy > 0 ? 1 : -1;
+        float deltaX = dx != 0 ? Math.abs(cellSize / dx) : Float.POSITIVE_INFINITY;
+        float deltaY = dy != 0 ? Math.abs(cellSize / dy) : Float.POSITIVE_INFINITY;
+        float nextX = dx != 0 ? ((dx > 0 ? x + 1 : x) * cellSize - x1) / dx : Float.POSITIVE_INFINITY;
+        float nextY = dy != 0 ? ((dy > 0 ? y + 1 : y) * cellSize - y1) / dy : Float.POSITIVE_INFINITY;
+
+        int cells = Math.abs(endX - x) + Math.abs(endY - y);
+        for (int i = 0; i <= cells; i++) {
+            if (grid.isBlocked(x, y))
+                return false;
+            if (nextX < nextY) {
+                x += stepX;
+                nextX += deltaX;
+            } else {
+                y += stepY;
+                nextY += deltaY;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Starts a frame of looks at the target at (x, y), allowing up to budget
+     * rays to be cast.
+     */
+    public void begin(float x, float y, int budget) {
+        this.targetX = x;
+        this.targetY = y;
+        this.frameTargetCell = cell(x, y);
+        this.budget = budget;
+    }
+
+    /**
+     * Whether the agent at (x, y) sees the target of the frame, from the
+     * answer kept for it while still valid, else from a new ray if there are
+     * any left in the budget, else from its last answer.
+     */
+    public boolean look(int agent, float x, float y) {
+        int cell = cell(x, y);
+        if (cell == agentCell[agent] && frameTargetCell == targetCell[agent] && grid.version == version[agent]) {
+            cacheHits++;
+            return visible[agent];
+        }
+        if (budget <= 0)
+            return visible[agent];
+
+        budget--;
+        rays++;
+        visible[agent] = isClear(x, y, targetX, targetY);
+        agentCell[agent] = cell;
+        targetCell[agent] = frameTargetCell;
+        version[agent] = grid.version;
+        return visible[agent];
+    }
+
+    /** The last answer for the given agent. */
+    public boolean isVisible(int agent) {
+        return visible[agent];
+    }
+
+    /**
+     * The answers of every agent, for loops over many agents at once.
+     */
+    public boolean[] getVisible() {
+        return visible;
+    }
+
+    /**
+     * Copies the answers kept for every agent from another LineOfSight over
+     * the same number of agents, so that a saved state can be restored.
+     */
+    public void copyFrom(LineOfSight other) {
+        if (other.visible.length != visible.length)
+            throw new IllegalArgumentException("LineOfSight capacities differ: " + other.visible.length + " != " + visible.length);
+
+        int n = visible.length;
+        System.arraycopy(other.visible, 0, visible, 0, n);
+        System.arraycopy(other.agentCell, 0, agentCell, 0, n);
+        System.arraycopy(other.targetCell, 0, targetCell, 0, n);
+        System.arraycopy(other.version, 0, version, 0, n);
+    }
+
+    /** Forgets the answers of every agent. */
+    public void clear() {
+        for (int i = 0; i < agentCell.length; i++) {
+            agentCell[i] = -1;
+            visible[i] = false;
+        }
+    }
+
+    int cell(float x, float y) {
+        int cellX = grid.cellX(x);
+        int cellY = grid.cellY(y);
+        if (!grid.inside(cellX, cellY))
+            return -2;
+        return cellX + cellY * grid.width;
+    }
+}
@@ -0,0 +1,90 @@
+package com.badlogic.androidgames.framework.ai;
+
+import com.badlogic.androidgames.framework.math.Rectangle;
+
+/**
+ * A grid of square cells covering the world, each either free or blocked by a
+ * wall. Cells outside of the world count as blocked. Every change bumps the
+ * version, so that anything computed from the grid can tell it went stale.
+ */
+public class ObstacleGrid {
+    public final int width;
+    public final int height;
+    public final float cellSize;
+    final boolean[] blocked;
+    int blockedCount;
+    int version;
+
+    public ObstacleGrid(float worldWidth, float worldHeight, float cellSize) {
+        this.cellSize = cellSize;
+        this.width = (int) Math.ceil(worldWidth / cellSize);
+        this.height = (int) Math.ceil(worldHeight / cellSize);
+        this.blocked = new boolean[width * height];
+    }
+
+    public int cellX(float x) {
+        return (int) Math.floor(x / cellSize);
+    }
+
+    public int cellY(float y) {
+        return (int) Math.floor(y / cellSize);
+    }
+
+    public boolean inside(int cellX, int cellY) {
+        return cellX >= 0 && cellX < width && cellY >= 0 && cellY < height;
+    }
+
+    public boolean isBlocked(int cellX, int cellY) {
+        return !inside(cellX, cellY) || blocked[cellX + cellY * width];
+    }
+
+    public boolean isBlockedAt(float x, float y) {
+        return isBlocked(cellX(x), cellY(y));
+    }
+
+    public void setBlocked(int cellX, int cellY, boolean isBlocked) {
+        if (!inside(cellX, cellY))
+            return;
+
+        int cell = cellX + cellY * width;
+        if (blocked[cell] == isBlocked)
+            return;
+
+        blocked[cell] = isBlocked;
+        blockedCount += isBlocked ? 1 : -1;
+        version++;
+    }
+
+    /**
+     * Blocks or frees every cell the rectangle overlaps.
+     */
+    public void setBlocked(Rectangle rectangle, boolean isBlocked) {
+        int x1 = cellX(rectangle.lowerLeft.x);
+        int y1 = cellY(rectangle.lowerLeft.y);
+        int x2 = cellX(rectangle.lowerLeft.x + rectangle.width);
+        int y2 = cellY(rectangle.lowerLeft.y + rectangle.height);
+
+        for (int y = y1; y <= y2; y++)
+            for (int x = x1; x <= x2; x++)
+                setBlocked(x, y, isBlocked);
+    }
+
+    public void clear() {
+        for (int i = 0; i < blocked.length; i++)
+            blocked[i] = false;
+        blockedCount = 0;
+        version++;
+    }
+
+    /**
+     * How many cells are blocked. When there are none, agents can skip any
+     * path finding and head straight for their target.
+     */
+    public int getBlockedCount() {
+        return blockedCount;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+}
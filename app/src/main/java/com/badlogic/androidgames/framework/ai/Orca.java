@@ -0,0 +1,275 @@
+package com.badlogic.androidgames.framework.ai;
+
+import com.badlogic.androidgames.framework.math.Vector2;
+
+/**
+ * Optimal reciprocal collision avoidance (van den Berg et al.), for agents
+ * shaped as discs. Each neighbour rules out the half of the velocity plane
+ * that would bring the two agents into contact within timeHorizon, assuming
+ * the neighbour takes half of the effort of avoiding it; a small linear
+ * program then picks the allowed velocity closest to the preferred one. When
+ * the constraints leave no allowed velocity, as in a dense crowd, the one that
+ * least violates them is picked instead.
+ *
+ * Velocities are in units per time step, so timeHorizon is in time steps.
+ * Positions and velocities are read from flat arrays, and neighbours are the
+ * indices found by AgentNeighbours. An Orca holds the scratch space of one
+ * agent at a time, so threads avoiding in parallel need one each.
+ */
+public class Orca {
+    static final float EPSILON = 1e-5f;
+
+    public final Vector2 velocity = new Vector2();
+
+    // the constraints, as lines that allowed velocities lie to the left of.
+    final float[] pointX;
+    final float[] pointY;
+    final float[] directionX;
+    final float[] directionY;
+    int lineCount;
+
+    // the constraints projected by linearProgram3.
+    final float[] projectedPointX;
+    final float[] projectedPointY;
+    final float[] projectedDirectionX;
+    final float[] projectedDirectionY;
+
+    public Orca(int maxNeighbours) {
+        pointX = new float[maxNeighbours];
+        pointY = new float[maxNeighbours];
+        directionX = new float[maxNeighbours];
+        directionY = new float[maxNeighbours];
+        projectedPointX = new float[maxNeighbours];
+        projectedPointY = new float[maxNeighbours];
+        projectedDirectionX = new float[maxNeighbours];
+        projectedDirectionY = new float[maxNeighbours];
+    }
+
+    /**
+     * Computes the velocity of the given agent into velocity, and returns it.
+     * count must not exceed the maxNeighbours the Orca was created with.
+     */
+    public Vector2 solve(int agent, float[] positionX, float[] positionY, float[] velocityX, float[] velocityY,
+                         int[] neighbours, int offset, int count,
+                         float preferredX, float preferredY, float maxSpeed, float radius, float timeHorizon) {
+        float x = positionX[agent];
+        float y = positionY[agent];
+        float vx = velocityX[agent];
+        float vy = velocityY[agent];
+        float invTimeHorizon = 1 / timeHorizon;
+        float combinedRadius = radius * 2;
+        float combinedRadiusSquared = combinedRadius * combinedRadius;
+
+        lineCount = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int other = neighbours[i];
+            float relativeX = positionX[other] - x;
+            float relativeY = positionY[other] - y;
+            float relativeVelocityX = vx - velocityX[other];
+            float relativeVelocityY = vy - velocityY[other];
+            float distanceSquared = relativeX * relativeX + relativeY * relativeY;
+
+            float lineDirectionX;
+            float lineDirectionY;
+            float uX;
+            float uY;
+
+            if (distanceSquared > combinedRadiusSquared) {
+                // no collision yet. w goes from the center of the cut off disc
+                // of the velocity obstacle to the relative velocity.
+                float wX = relativeVelocityX - invTimeHorizon * relativeX;
+                float wY = relativeVelocityY - invTimeHorizon * relativeY;
+                float wLengthSquared = wX * wX + wY * wY;
+                float dot = wX * relativeX + wY * relativeY;
+
+                if (dot < 0 && dot * dot > combinedRadiusSquared * wLengthSquared) {
+                    // project on the cut off disc.
+                    float wLength = (float) Math.sqrt(wLengthSquared);
+                    float unitX = wX / wLength;
+                    float unitY = wY / wLength;
+                    lineDirectionX = unitY;
+                    lineDirectionY = -unitX;
+                    uX = (combinedRadius * invTimeHorizon - wLength) * unitX;
+                    uY = (combinedRadius * invTimeHorizon - wLength) * unitY;
+                } else {
+                    // project on the closest leg of the cone.
+                    float leg = (float) Math.sqrt(distanceSquared - combinedRadiusSquared);
+                    if (relativeX * wY - relativeY * wX > 0) {
+                        lineDirectionX = (relativeX * leg - relativeY * combinedRadius) / distanceSquared;
+                        lineDirectionY = (relativeX * combinedRadius + relativeY * leg) / distanceSquared;
+                    } else {
+                        lineDirectionX = -(relativeX * leg + relativeY * combinedRadius) / distanceSquared;
+                        lineDirectionY = -(-relativeX * combinedRadius + relativeY * leg) / distanceSquared;
+                    }
+                    float along = relativeVelocityX * lineDirectionX + relativeVelocityY * lineDirectionY;
+                    uX = along * lineDirectionX - relativeVelocityX;
+                    uY = along * lineDirectionY - relativeVelocityY;
+                }
+            } else {
+                // already overlapping: get apart within one time step.
+                float wX = relativeVelocityX - relativeX;
+                float wY = relativeVelocityY - relativeY;
+                float wLength = (float) Math.sqrt(wX * wX + wY * wY);
+                if (wLength < EPSILON)
+                    continue;
+                float unitX = wX / wLength;
+                float unitY = wY / wLength;
+                lineDirectionX = unitY;
+                lineDirectionY = -unitX;
+                uX = (combinedRadius - wLength) * unitX;
+                uY = (combinedRadius - wLength) * unitY;
+            }
+
+            // each agent takes half of the responsibility.
+            pointX[lineCount] = vx + 0.5f * uX;
+            pointY[lineCount] = vy + 0.5f * uY;
+            directionX[lineCount] = lineDirectionX;
+            directionY[lineCount] = lineDirectionY;
+            lineCount++;
+        }
+
+        int failed = linearProgram2(pointX, pointY, directionX, directionY, lineCount,
+                maxSpeed, preferredX, preferredY, false);
+        if (failed < lineCount)
+            linearProgram3(failed, maxSpeed);
+        return velocity;
+    }
+
+    /**
+     * Finds the point of line lineNo closest to the optimization velocity (or
+     * furthest along it, if directionOpt) that satisfies the lines before it
+     * and lies within the speed circle. Returns false if there is none.
+     */
+    private boolean linearProgram1(float[] pointX, float[] pointY, float[] directionX, float[] directionY, int lineNo,
+                                   float radius, float optX, float optY, boolean directionOpt) {
+        float px = pointX[lineNo];
+        float py = pointY[lineNo];
+        float dx = directionX[lineNo];
+        float dy = directionY[lineNo];
+
+        float dot = px * dx + py * dy;
+        float discriminant = dot * dot + radius * radius - (px * px + py * py);
+        if (discriminant < 0)
+            return false;
+
+        float sqrtDiscriminant = (float) Math.sqrt(discriminant);
+        float tLeft = -dot - sqrtDiscriminant;
+        float tRight = -dot + sqrtDiscriminant;
+
+        for (int i = 0; i < lineNo; i++) {
+            float denominator = dx * directionY[i] - dy * directionX[i];
+            float numerator = directionX[i] * (py - pointY[i]) - directionY[i] * (px - pointX[i]);
+
+            if (Math.abs(denominator) <= EPSILON) {
+                // the lines are parallel.
+                if (numerator < 0)
+                    return false;
+                continue;
+            }
+
+            float t = numerator / denominator;
+            if (denominator >= 0)
+                tRight = Math.min(tRight, t);
+            else
+                tLeft = Math.max(tLeft, t);
+
+            if (tLeft > tRight)
+                return false;
+        }
+
+        float t;
+        if (directionOpt) {
+            t = optX * dx + optY * dy > 0 ? tRight : tLeft;
+        } else {
+            t = dx * (optX - px) + dy * (optY - py);
+            t = Math.max(tLeft, Math.min(t, tRight));
+        }
+        velocity.set(px + t * dx, py + t * dy);
+        return true;
+    }
+
+    /**
+     * Finds the velocity within the speed circle satisfying all lines that is
+     * closest to the optimization velocity. Returns the number of lines if it
+     * succeeded, or the index of the first line it could not satisfy.
+     */
+    private int linearProgram2(float[] pointX, float[] pointY, float[] directionX, float[] directionY, int count,
+                               float radius, float optX, float optY, boolean directionOpt) {
+        if (directionOpt) {
+            // the optimization velocity is a unit direction.
+            velocity.set(optX * radius, optY * radius);
+        } else if (optX * optX + optY * optY > radius * radius) {
+            float length = (float) Math.sqrt(optX * optX + optY * optY);
+            velocity.set(optX / length * radius, optY / length * radius);
+        } else {
+            velocity.set(optX, optY);
+        }
+
+        for (int i = 0; i < count; i++) {
+            float side = directionX[i] * (pointY[i] - velocity.y) - directionY[i] * (pointX[i] - velocity.x);
+            if (side > 0) {
+                // the velocity is on the wrong side of line i.
+                float oldX = velocity.x;
+                float oldY = velocity.y;
+                if (!linearProgram1(pointX, pointY, directionX, directionY, i, radius, optX, optY, directionOpt)) {
+                    velocity.set(oldX, oldY);
+                    return i;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Picks the velocity that least violates the lines from beginLine on, when
+     * they can't all be satisfied.
+     */
+    private void linearProgram3(int beginLine, float radius) {
+        float distance = 0;
+
+        for (int i = beginLine; i < lineCount; i++) {
+            if (directionX[i] * (pointY[i] - velocity.y) - directionY[i] * (pointX[i] - velocity.x) <= distance)
+                continue;
+
+            // the velocity violates line i by more than distance.
+            int projectedCount = 0;
+            for (int j = 0; j < i; j++) {
+                float determinant = directionX[i] * directionY[j] - directionY[i] * directionX[j];
+                float lineX;
+                float lineY;
+
+                if (Math.abs(determinant) <= EPSILON) {
+                    // parallel lines.
+                    if (directionX[i] * directionX[j] + directionY[i] * directionY[j] > 0)
+                        continue;
+                    lineX = 0.5f * (pointX[i] + pointX[j]);
+                    lineY = 0.5f * (pointY[i] + pointY[j]);
+                } else {
+                    float t = (directionX[j] * (pointY[i] - pointY[j]) - directionY[j] * (pointX[i] - pointX[j])) / determinant;
+                    lineX = pointX[i] + t * directionX[i];
+                    lineY = pointY[i] + t * directionY[i];
+                }
+
+                float bisectorX = directionX[j] - directionX[i];
+                float bisectorY = directionY[j] - directionY[i];
+                float length = (float) Math.sqrt(bisectorX * bisectorX + bisectorY * bisectorY);
+
+                projectedPointX[projectedCount] = lineX;
+                projectedPointY[projectedCount] = lineY;
+                projectedDirectionX[projectedCount] = bisectorX / length;
+                projectedDirectionY[projectedCount] = bisectorY / length;
+                projectedCount++;
+            }
+
+            float oldX = velocity.x;
+            float oldY = velocity.y;
+            if (linearProgram2(projectedPointX, projectedPointY, projectedDirectionX, projectedDirectionY, projectedCount,
+                    radius, -directionY[i], directionX[i], true) < projectedCount) {
+                // can only happen through rounding; keep what we had.
+                velocity.set(oldX, oldY);
+            }
+
+            distance = directionX[i] * (pointY[i] - velocity.y) - directionY[i] * (pointX[i] - velocity.x);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.badlogic.androidgames.framework.ai;
+
+/**
+ * A route asked of a PathService. The service fills it in over the next few
+ * frames; poll status until it is no longer PENDING. Requests come from a pool,
+ * so hand them back with PathService.free once done with them.
+ */
+public class PathRequest {
+    public static final int PENDING = 0;
+    public static final int FOUND = 1;
+    public static final int NOT_FOUND = 2;
+
+    public int status;
+    int startCell;
+    int goalCell;
+    boolean cancelled;
+
+    // the cells of the jump points along the route, from start to goal. the
+    // array is shared with the service's cache and must not be modified.
+    int[] path;
+    float cellSize;
+    int gridWidth;
+
+    public boolean isDone() {
+        return status != PENDING;
+    }
+
+    /**
+     * The number of waypoints of the route, including its start and its goal.
+     * The agent should head straight from one waypoint to the next.
+     */
+    public int getWaypointCount() {
+        return status == FOUND ? path.length : 0;
+    }
+
+    public float getWaypointX(int i) {
+        return (path[i] % gridWidth + 0.5f) * cellSize;
+    }
+
+    public float getWaypointY(int i) {
+        return (path[i] / gridWidth + 0.5f) * cellSize;
+    }
+}
@@ -0,0 +1,452 @@
+package com.badlogic.androidgames.framework.ai;
+
+import com.badlogic.androidgames.framework.Pool;
+import com.badlogic.androidgames.framework.Pool.PoolObjectFactory;
+
+/**
+ * Finds routes across an ObstacleGrid with jump point search, an A* variant
+ * that skips over the open stretches of a uniform grid and only stops at the
+ * cells where the route may have to turn. Moves are allowed in eight
+ * directions, but diagonal moves never cut the corner of a wall.
+ *
+ * Requests are answered asynchronously: request() queues them, and update()
+ * works through the queue with a fixed amount of work per call, carrying a
+ * search over to the next frame when it runs out. A burst of requests thus
+ * makes routes arrive later rather than making a frame longer. The scans of
+ * a jump count as work too: a jump that takes a call over its budget is paid
+ * back out of the budget of the next ones.
+ *
+ * The search state lives in arrays sized to the grid that are allocated once
+ * and reused by every search; a search stamp tells which entries belong to the
+ * current search, so they never need clearing. Routes are cached by start and
+ * goal cell until the grid changes. A cached route is shared by every request
+ * answered from it, and only read through their waypoint getters, so it is
+ * never copied.
+ */
+public class PathService {
+    static final int CACHE_SIZE = 256;
+    static final float SQRT2 = (float) Math.sqrt(2);
+    static final int[] NO_PATH = new int[0];
+
+    final ObstacleGrid grid;
+    final int cellCount;
+
+    // per cell search state, valid when the stamp matches searchId.
+    final float[] g;
+    final float[] f;
+    final int[] parent;
+    final int[] openStamp;
+    final int[] closedStamp;
+    final int[] heapIndex;
+    int searchId;
+
+    // binary min heap of open cells, ordered by f.
+    final int[] heap;
+    int heapSize;
+
+    // direct mapped cache of routes by start and goal cell.
+    final long[] cacheKeys = new long[CACHE_SIZE];
+    final int[][] cachePaths = new int[CACHE_SIZE][];
+    final int[] cacheVersions = new int[CACHE_SIZE];
+
+    // requests waiting for their turn, as a ring buffer.
+    PathRequest[] queue = new PathRequest[64];
+    int queueHead;
+    int queueSize;
+
+    final Pool<PathRequest> requestPool;
+    PathRequest current;
+    int goalX;
+    int goalY;
+    int jumpSteps;
+
+    // the steps the last call to update went over its budget by.
+    int overdraft;
+
+    public int steps;
+    public int cacheHits;
+    public int cacheMisses;
+
+    public PathService(ObstacleGrid grid) {
+        this.grid = grid;
+        this.cellCount = grid.width * grid.height;
+        this.g = new float[cellCount];
+        this.f = new float[cellCount];
+        this.parent = new int[cellCount];
+        this.openStamp = new int[cellCount];
+        this.closedStamp = new int[cellCount];
+        this.heapIndex = new int[cellCount];
+        this.heap = new int[cellCount];
+
+        requestPool = new Pool<PathRequest>(new PoolObjectFactory<PathRequest>() {
+            @Override
+            public PathRequest createObject() {
+                return new PathRequest();
+            }
+        }, 128);
+    }
+
+    /**
+     * Queues a request for a route between two points of the world.
+     */
+    public PathRequest request(float startX, float startY, float goalX, float goalY) {
+        PathRequest request = requestPool.newObject();
+        request.status = PathRequest.PENDING;
+        request.cancelled = false;
+        request.path = null;
+        request.cellSize = grid.cellSize;
+        request.gridWidth = grid.width;
+        request.startCell = cellOf(grid.cellX(startX), grid.cellY(startY));
+        request.goalCell = cellOf(grid.cellX(goalX), grid.cellY(goalY));
+
+        if (queueSize == queue.length) {
+            PathRequest[] grown = new PathRequest[queue.length * 2];
+            for (int i = 0; i < queueSize; i++)
+                grown[i] = queue[(queueHead + i) % queue.length];
+            queue = grown;
+            queueHead = 0;
+        }
+        queue[(queueHead + queueSize) % queue.length] = request;
+        queueSize++;
+        return request;
+    }
+
+    /**
+     * Hands a request back to the pool. A request still pending is dropped by
+     * the service when its turn comes.
+     */
+    public void free(PathRequest request) {
+        if (request.status == PathRequest.PENDING)
+            request.cancelled = true;
+        else
+            requestPool.free(request);
+    }
+
+    /**
+     * Works on the queued requests for up to budget steps, where a step is a
+     * request started or a cell expanded or scanned by a jump, less what the
+     * last call went over its budget by. Returns the number of requests still
+     * waiting.
+     */
+    public int update(int budget) {
+        int available = budget - overdraft;
+        budget = available;
+        while (budget > 0) {
+            if (current == null) {
+                current = poll();
+                if (current == null)
+                    break;
+                budget--;
+                if (!start())
+                    continue;
+            }
+            budget = expand(budget);
+        }
+
+        // an expansion can't stop in the middle of its jumps.
+        steps += available - budget;
+        overdraft = budget < 0 ? -budget : 0;
+        return queueSize + (current != null ? 1 : 0);
+    }
+
+    private PathRequest poll() {
+        while (queueSize > 0) {
+            PathRequest request = queue[queueHead];
+            queue[queueHead] = null;
+            queueHead = (queueHead + 1) % queue.length;
+            queueSize--;
+
+            if (!request.cancelled)
+                return request;
+            request.status = PathRequest.NOT_FOUND;
+            requestPool.free(request);
+        }
+        return null;
+    }
+
+    /**
+     * Answers the current request from the cache or the trivial cases, or sets
+     * up a search for it. Returns true if a search is needed.
+     */
+    private boolean start() {
+        PathRequest request = current;
+        int startCell = request.startCell;
+        int goalCell = request.goalCell;
+
+        if (startCell < 0 || goalCell < 0 || grid.blocked[startCell] || grid.blocked[goalCell]) {
+            finish(NO_PATH, false);
+            return false;
+        }
+
+        long key = ((long) startCell << 32) | goalCell;
+        int slot = (int) ((key ^ (key >>> 29)) * 0x9E3779B1L >>> 24) & (CACHE_SIZE - 1);
+        if (cachePaths[slot] != null && cacheKeys[slot] == key && cacheVersions[slot] == grid.getVersion()) {
+            cacheHits++;
+            finish(cachePaths[slot], false);
+            return false;
+        }
+        cacheMisses++;
+
+        if (startCell == goalCell) {
+            finish(new int[] { startCell }, true);
+            return false;
+        }
+
+        searchId++;
+        heapSize = 0;
+        goalX = goalCell % grid.width;
+        goalY = goalCell / grid.width;
+
+        g[startCell] = 0;
+        parent[startCell] = -1;
+        push(startCell, heuristic(startCell));
+        return true;
+    }
+
+    private int expand(int budget) {
+        while (budget > 0) {
+            if (heapSize == 0) {
+                finish(NO_PATH, true);
+                return budget;
+            }
+
+            int cell = pop();
+            closedStamp[cell] = searchId;
+
+            if (cell == current.goalCell) {
+                finish(buildPath(cell), true);
+                return budget - 1;
+            }
+
+            jumpSteps = 0;
+            identifySuccessors(cell);
+            budget -= 1 + jumpSteps;
+        }
+        return budget;
+    }
+
+    private void finish(int[] path, boolean cache) {
+        PathRequest request = current;
+        current = null;
+
+        if (cache) {
+            long key = ((long) request.startCell << 32) | request.goalCell;
+            int slot = (int) ((key ^ (key >>> 29)) * 0x9E3779B1L >>> 24) & (CACHE_SIZE - 1);
+            cacheKeys[slot] = key;
+            cachePaths[slot] = path;
+            cacheVersions[slot] = grid.getVersion();
+        }
+
+        if (request.cancelled) {
+            request.status = PathRequest.NOT_FOUND;
+            requestPool.free(request);
+            return;
+        }
+
+        request.path = path;
+        request.status = path.length > 0 ? PathRequest.FOUND : PathRequest.NOT_FOUND;
+    }
+
+    private int[] buildPath(int goalCell) {
+        int length = 0;
+        for (int cell = goalCell; cell != -1; cell = parent[cell])
+            length++;
+
+        int[] path = new int[length];
+        for (int cell = goalCell, i = length - 1; cell != -1; cell = parent[cell], i--)
+            path[i] = cell;
+        return path;
+    }
+
+    /**
+     * Looks for the next jump point in every direction worth exploring from the
+     * given cell, and opens the ones that improve on what we knew.
+     */
+    private void identifySuccessors(int cell) {
+        int width = grid.width;
+        int x = cell % width;
+        int y = cell / width;
+        int from = parent[cell];
+
+        if (from == -1) {
+            for (int dy = -1; dy <= 1; dy++)
+                for (int dx = -1; dx <= 1; dx++)
+                    if ((dx != 0 || dy != 0) && canStep(x, y, dx, dy))
+                        tryJump(cell, x + dx, y + dy, dx, dy);
+            return;
+        }
+
+        int dx = Integer.signum(x - from % width);
+        int dy = Integer.signum(y - from / width);
+
+        if (dx != 0 && dy != 0) {
+            boolean vertical = walkable(x, y + dy);
+            boolean horizontal = walkable(x + dx, y);
+            if (vertical)
+                tryJump(cell, x, y + dy, 0, dy);
+            if (horizontal)
+                tryJump(cell, x + dx, y, dx, 0);
+            if (vertical && horizontal)
+                tryJump(cell, x + dx, y + dy, dx, dy);
+        } else if (dx != 0) {
+            boolean ahead = walkable(x + dx, y);
+            boolean up = walkable(x, y + 1);
+            boolean down = walkable(x, y - 1);
+            if (ahead) {
+                tryJump(cell, x + dx, y, dx, 0);
+                if (up)
+                    tryJump(cell, x + dx, y + 1, dx, 1);
+                if (down)
+                    tryJump(cell, x + dx, y - 1, dx, -1);
+            }
+            if (up)
+                tryJump(cell, x, y + 1, 0, 1);
+            if (down)
+                tryJump(cell, x, y - 1, 0, -1);
+        } else {
+            boolean ahead = walkable(x, y + dy);
+            boolean right = walkable(x + 1, y);
+            boolean left = walkable(x - 1, y);
+            if (ahead) {
+                tryJump(cell, x, y + dy, 0, dy);
+                if (right)
+                    tryJump(cell, x + 1, y + dy, 1, dy);
+                if (left)
+                    tryJump(cell, x - 1, y + dy, -1, dy);
+            }
+            if (right)
+                tryJump(cell, x + 1, y, 1, 0);
+            if (left)
+                tryJump(cell, x - 1, y, -1, 0);
+        }
+    }
+
+    private void tryJump(int cell, int x, int y, int dx, int dy) {
+        int jumpPoint = jump(x, y, dx, dy);
+        if (jumpPoint == -1 || closedStamp[jumpPoint] == searchId)
+            return;
+
+        float cost = g[cell] + octile(cell, jumpPoint);
+        if (openStamp[jumpPoint] != searchId) {
+            g[jumpPoint] = cost;
+            parent[jumpPoint] = cell;
+            push(jumpPoint, cost + heuristic(jumpPoint));
+        } else if (cost < g[jumpPoint]) {
+            g[jumpPoint] = cost;
+            parent[jumpPoint] = cell;
+            f[jumpPoint] = cost + heuristic(jumpPoint);
+            siftUp(heapIndex[jumpPoint]);
+        }
+    }
+
+    /**
+     * Walks from (x, y) in direction (dx, dy) until it finds a cell where the
+     * route may have to turn, and returns it, or -1 when it hits a wall first.
+     */
+    private int jump(int x, int y, int dx, int dy) {
+        while (true) {
+            jumpSteps++;
+            if (!walkable(x, y))
+                return -1;
+            if (x == goalX && y == goalY)
+                return cellOf(x, y);
+
+            if (dx != 0 && dy != 0) {
+                if (jump(x + dx, y, dx, 0) != -1 || jump(x, y + dy, 0, dy) != -1)
+                    return cellOf(x, y);
+            } else if (dx != 0) {
+                if ((walkable(x, y - 1) && !walkable(x - dx, y - 1)) ||
+                        (walkable(x, y + 1) && !walkable(x - dx, y + 1)))
+                    return cellOf(x, y);
+            } else {
+                if ((walkable(x - 1, y) && !walkable(x - 1, y - dy)) ||
+                        (walkable(x + 1, y) && !walkable(x + 1, y - dy)))
+                    return cellOf(x, y);
+            }
+
+            if (!canStep(x, y, dx, dy))
+                return -1;
+            x += dx;
+            y += dy;
+        }
+    }
+
+    private boolean canStep(int x, int y, int dx, int dy) {
+        return walkable(x + dx, y) && walkable(x, y + dy) && walkable(x + dx, y + dy);
+    }
+
+    private boolean walkable(int x, int y) {
+        return !grid.isBlocked(x, y);
+    }
+
+    private int cellOf(int x, int y) {
+        return grid.inside(x, y) ? x + y * grid.width : -1;
+    }
+
+    private float octile(int from, int to) {
+        int width = grid.width;
+        int dx = Math.abs(from % width - to % width);
+        int dy = Math.abs(from / width - to / width);
+        return Math.max(dx, dy) + (SQRT2 - 1) * Math.min(dx, dy);
+    }
+
+    private float heuristic(int cell) {
+        int dx = Math.abs(cell % grid.width - goalX);
+        int dy = Math.abs(cell / grid.width - goalY);
+        return Math.max(dx, dy) + (SQRT2 - 1) * Math.min(dx, dy);
+    }
+
+    private void push(int cell, float score) {
+        openStamp[cell] = searchId;
+        f[cell] = score;
+        heap[heapSize] = cell;
+        heapIndex[cell] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private int pop() {
+        int top = heap[0];
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndex[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int i) {
+        int cell = heap[i];
+        float score = f[cell];
+        while (i > 0) {
+            int up = (i - 1) >> 1;
+            int upCell = heap[up];
+            if (f[upCell] <= score)
+                break;
+            heap[i] = upCell;
+            heapIndex[upCell] = i;
+            i = up;
+        }
+        heap[i] = cell;
+        heapIndex[cell] = i;
+    }
+
+    private void siftDown(int i) {
+        int cell = heap[i];
+        float score = f[cell];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize)
+                break;
+            if (child + 1 < heapSize && f[heap[child + 1]] < f[heap[child]])
+                child++;
+            if (f[heap[child]] >= score)
+                break;
+            heap[i] = heap[child];
+            heapIndex[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = cell;
+        heapIndex[cell] = i;
+    }
+}
@@ -0,0 +1,156 @@
+package com.badlogic.androidgames.framework.ai;
+
+/**
+ * Nested bands around a target, such as the chase and caught distances of a
+ * tank around the cat, each with a hysteresis margin. The bands split the
+ * space around the target into zones, numbered from 0 for inside the
+ * innermost band outwards, and an agent's zone only changes when it crosses
+ * a band: inwards once closer than the band's enter radius, outwards once
+ * further than its exit radius. An agent right on a radius stays where it is.
+ *
+ * The margins only hold an agent in its zone, so only the bands next to it
+ * are crossed at their enter or exit radius. An agent that crosses several
+ * bands at once crosses the others at their nominal radius, half way between
+ * the two: a tank wandering far from the cat that finds itself close to it
+ * is caught as soon as it is inside the caught distance, not its enter
+ * radius, as the state machines these bands replace did.
+ *
+ * Checking for a crossing compares the squared distance to the target with
+ * the two squared radii around the agent's zone, without a square root, and
+ * the zone is only worked out again when one of them was crossed. Agents in
+ * the outermost zone, usually most of them, are first tested against a box
+ * around the outermost band, which rules out those far away without a
+ * multiplication.
+ *
+ * Callers can keep the zone of each agent themselves, typically as its AI
+ * state, and only run their state machine when zone() returns another one.
+ * Or the triggers keep it, for agentCount agents, and update() tells a
+ * Listener about every band an agent enters or leaves.
+ */
+public class ProximityTriggers {
+    /**
+     * Told about the bands agents cross in update(). An agent crossing several
+     * bands at once crosses them in order: outermost first when it is moving
+     * in, innermost first when moving out.
+     */
+    public interface Listener {
+        void enter(int agent, int band);
+
+        void exit(int agent, int band);
+    }
+
+    final float[] enterSquared;
+    final float[] exitSquared;
+    final float[] nominalSquared;
+    float outerEnter;
+
+    // the zone of every agent, for update().
+    final byte[] zones;
+
+    public ProximityTriggers(int bandCount) {
+        this(bandCount, 0);
+    }
+
+    /**
+     * Creates triggers that keep the zone of agentCount agents, all of them
+     * starting in the outermost zone.
+     */
+    public ProximityTriggers(int bandCount, int agentCount) {
+        enterSquared = new float[bandCount];
+        exitSquared = new float[bandCount];
+        nominalSquared = new float[bandCount];
+        zones = new byte[agentCount];
+        for (int i = 0; i < agentCount; i++)
+            zones[i] = (byte) bandCount;
+    }
+
+    public int getBandCount() {
+        return enterSquared.length;
+    }
+
+    public int getZoneCount() {
+        return enterSquared.length + 1;
+    }
+
+    /**
+     * Sets the radii of a band, band 0 being the innermost. Agents enter the
+     * band closer than enterRadius, and leave it further than exitRadius; the
+     * difference is the hysteresis margin. Bands must not overlap.
+     */
+    public void setBand(int band, float enterRadius, float exitRadius) {
+        if (enterRadius > exitRadius)
+            throw new IllegalArgumentException("enterRadius " + enterRadius + " > exitRadius " + exitRadius);
+        // with a negative enter radius, nothing ever enters the band.
+        float nominal = (enterRadius + exitRadius) / 2;
+        enterSquared[band] = enterRadius > 0 ? enterRadius * enterRadius : 0;
+        exitSquared[band] = exitRadius * exitRadius;
+        nominalSquared[band] = nominal > 0 ? nominal * nominal : 0;
+        if (band == enterSquared.length - 1)
+            outerEnter = Math.max(enterRadius, 0);
+    }
+
+    /**
+     * Returns the zone of an agent at the given squared distance from the
+     * target, given the zone it was in.
+     */
+    public int zone(int zone, float distanceSquared) {
+        int bands = enterSquared.length;
+
+        // nothing crossed, the common case.
+        if ((zone == 0 || distanceSquared >= enterSquared[zone - 1]) &&
+                (zone == bands || distanceSquared <= exitSquared[zone]))
+            return zone;
+
+        if (zone > 0 && distanceSquared < enterSquared[zone - 1]) {
+            zone--;
+            while (zone > 0 && distanceSquared < nominalSquared[zone - 1])
+                zone--;
+        } else {
+            zone++;
+            while (zone < bands && distanceSquared > nominalSquared[zone])
+                zone++;
+        }
+        return zone;
+    }
+
+    /**
+     * Same as above, for an agent at (dx, dy) from the target.
+     */
+    public int zone(int zone, float dx, float dy) {
+        int bands = enterSquared.length;
+        if (zone == bands && (dx >= outerEnter || dx <= -outerEnter || dy >= outerEnter || dy <= -outerEnter))
+            return zone;
+        return zone(zone, dx * dx + dy * dy);
+    }
+
+    public int getZone(int agent) {
+        return zones[agent];
+    }
+
+    /**
+     * Puts an agent in the given zone, without telling anyone.
+     */
+    public void setZone(int agent, int zone) {
+        zones[agent] = (byte) zone;
+    }
+
+    /**
+     * Moves an agent at (dx, dy) from the target to its new zone, tells the
+     * listener, if any, about every band it crossed, and returns the zone.
+     */
+    public int update(int agent, float dx, float dy, Listener listener) {
+        int zone = zones[agent];
+        int next = zone(zone, dx, dy);
+        if (next == zone)
+            return zone;
+
+        zones[agent] = (byte) next;
+        if (listener != null) {
+            for (int band = zone - 1; band >= next; band--)
+                listener.enter(agent, band);
+            for (int band = zone; band < next; band++)
+                listener.exit(agent, band);
+        }
+        return next;
+    }
+}
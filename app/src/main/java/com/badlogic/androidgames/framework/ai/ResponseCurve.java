@@ -0,0 +1,61 @@
+package com.badlogic.androidgames.framework.ai;
+
+/**
+ * Maps an input in [0, 1] to a utility in [0, 1], for UtilityScorer. The
+ * curve is one of a few shapes, bent by four parameters:
+ *
+ *   LINEAR      slope * (x - shiftX) + shiftY
+ *   POLYNOMIAL  slope * (x - shiftX)^exponent + shiftY
+ *   LOGISTIC    slope / (1 + e^(-exponent * (x - shiftX))) + shiftY
+ *
+ * and the result is clamped to [0, 1], with NaN as 0. A negative exponent
+ * turns the logistic curve into a falling step around shiftX.
+ */
+public class ResponseCurve {
+    public static final int LINEAR = 0;
+    public static final int POLYNOMIAL = 1;
+    public static final int LOGISTIC = 2;
+
+    public final int type;
+    public final float slope;
+    public final float exponent;
+    public final float shiftX;
+    public final float shiftY;
+
+    public ResponseCurve(int type, float slope, float exponent, float shiftX, float shiftY) {
+        this.type = type;
+        this.slope = slope;
+        this.exponent = exponent;
+        this.shiftX = shiftX;
+        this.shiftY = shiftY;
+    }
+
+    public static ResponseCurve linear(float slope, float shiftY) {
+        return new ResponseCurve(LINEAR, slope, 1, 0, shiftY);
+    }
+
+    /**
+     * A step from 0 to 1 around the given input, as steep as the given
+     * steepness, or from 1 to 0 if it is negative.
+     */
+    public static ResponseCurve step(float at, float steepness) {
+        return new ResponseCurve(LOGISTIC, 1, steepness, at, 0);
+    }
+
+    public float evaluate(float x) {
+        float y;
+        switch (type) {
+            case LINEAR:
+                y = slope * (x - shiftX) + shiftY;
+                break;
+            case POLYNOMIAL:
+                y = slope * (float) Math.pow(x - shiftX, exponent) + shiftY;
+                break;
+            default:
+                y = slope / (1 + (float) Math.exp(-exponent * (x - shiftX))) + shiftY;
+                break;
+        }
+        // clamped, NaN included, such as a fractional power of a negative.
+        return y > 0 ? (y < 1 ? y : 1) : 0;
+    }
+}
@@ -0,0 +1,214 @@
+package com.badlogic.androidgames.framework.ai;
+
+import com.badlogic.androidgames.framework.math.Vector2;
+
+/**
+ * Reynolds style steering behaviours. Start with begin() for the agent being
+ * steered, then call any number of behaviours, each adding its weighted
+ * steering force to force. The result is the change of velocity the agent
+ * wants; add it to the current velocity to get the velocity to head for.
+ *
+ * The flocking behaviours take the indices of the agent's neighbours, as found
+ * by AgentNeighbours, and read the neighbours' positions and velocities from
+ * flat arrays.
+ *
+ * A Steering holds the state of one agent at a time, so threads steering
+ * agents in parallel need one each.
+ */
+public class Steering {
+    public final Vector2 force = new Vector2();
+
+    float x;
+    float y;
+    float velocityX;
+    float velocityY;
+    float maxSpeed;
+
+    public Steering begin(float x, float y, float velocityX, float velocityY, float maxSpeed) {
+        this.x = x;
+        this.y = y;
+        this.velocityX = velocityX;
+        this.velocityY = velocityY;
+        this.maxSpeed = maxSpeed;
+        force.set(0, 0);
+        return this;
+    }
+
+    /**
+     * Heads for the target at full speed.
+     */
+    public Steering seek(float targetX, float targetY, float weight) {
+        return steerTowards(targetX - x, targetY - y, maxSpeed, weight);
+    }
+
+    /**
+     * Runs straight away from the target at full speed.
+     */
+    public Steering flee(float targetX, float targetY, float weight) {
+        return steerTowards(x - targetX, y - targetY, maxSpeed, weight);
+    }
+
+    /**
+     * Heads for the target, slowing down within slowingRadius of it so as to
+     * stop on it rather than overshoot.
+     */
+    public Steering arrive(float targetX, float targetY, float slowingRadius, float weight) {
+        float dx = targetX - x;
+        float dy = targetY - y;
+        float distance = (float) Math.sqrt(dx * dx + dy * dy);
+        float speed = distance < slowingRadius ? maxSpeed * distance / slowingRadius : maxSpeed;
+        return steerTowards(dx, dy, speed, weight);
+    }
+
+    /**
+     * Heads for the point where a target moving at a constant velocity can be
+     * intercepted at full speed.
+     */
+    public Steering pursue(float targetX, float targetY, float targetVelocityX, float targetVelocityY, float weight) {
+        float time = interceptTime(targetX, targetY, targetVelocityX, targetVelocityY);
+        return seek(targetX + targetVelocityX * time, targetY + targetVelocityY * time, weight);
+    }
+
+    /**
+     * Runs away from the point where a pursuer moving at a constant velocity
+     * would intercept us.
+     */
+    public Steering evade(float pursuerX, float pursuerY, float pursuerVelocityX, float pursuerVelocityY, float weight) {
+        float time = interceptTime(pursuerX, pursuerY, pursuerVelocityX, pursuerVelocityY);
+        return flee(pursuerX + pursuerVelocityX * time, pursuerY + pursuerVelocityY * time, weight);
+    }
+
+    /**
+     * Heads for a point on a circle of the given radius, distance ahead of the
+     * agent, at the given angle from the agent's heading. Jittering the angle a
+     * little every tick gives a smooth random walk.
+     */
+    public Steering wander(float angle, float distance, float radius, float weight) {
+        float speed = (float) Math.sqrt(velocityX * velocityX + velocityY * velocityY);
+        float headingX = 1;
+        float headingY = 0;
+        if (speed > 0) {
+            headingX = velocityX / speed;
+            headingY = velocityY / speed;
+        }
+
+        float cos = (float) Math.cos(angle);
+        float sin = (float) Math.sin(angle);
+        float offsetX = headingX * distance + (headingX * cos - headingY * sin) * radius;
+        float offsetY = headingY * distance + (headingX * sin + headingY * cos) * radius;
+        return steerTowards(offsetX, offsetY, maxSpeed, weight);
+    }
+
+    /**
+     * Moves away from the neighbours, more strongly from the closer ones.
+     */
+    public Steering separation(float[] positionX, float[] positionY, int[] neighbours, int offset, int count, float weight) {
+        float sumX = 0;
+        float sumY = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int n = neighbours[i];
+            float dx = x - positionX[n];
+            float dy = y - positionY[n];
+            float distanceSquared = dx * dx + dy * dy;
+            if (distanceSquared > 0) {
+                sumX += dx / distanceSquared;
+                sumY += dy / distanceSquared;
+            }
+        }
+        if (sumX == 0 && sumY == 0)
+            return this;
+        return steerTowards(sumX, sumY, maxSpeed, weight);
+    }
+
+    /**
+     * Heads for the center of the neighbours.
+     */
+    public Steering cohesion(float[] positionX, float[] positionY, int[] neighbours, int offset, int count, float weight) {
+        if (count == 0)
+            return this;
+
+        float sumX = 0;
+        float sumY = 0;
+        for (int i = offset; i < offset + count; i++) {
+            sumX += positionX[neighbours[i]];
+            sumY += positionY[neighbours[i]];
+        }
+        return seek(sumX / count, sumY / count, weight);
+    }
+
+    /**
+     * Matches the average velocity of the neighbours.
+     */
+    public Steering alignment(float[] velocityX, float[] velocityY, int[] neighbours, int offset, int count, float weight) {
+        if (count == 0)
+            return this;
+
+        float sumX = 0;
+        float sumY = 0;
+        for (int i = offset; i < offset + count; i++) {
+            sumX += velocityX[neighbours[i]];
+            sumY += velocityY[neighbours[i]];
+        }
+        force.x += (sumX / count - this.velocityX) * weight;
+        force.y += (sumY / count - this.velocityY) * weight;
+        return this;
+    }
+
+    /**
+     * Scales the force down to maxForce if it is longer.
+     */
+    public Steering truncate(float maxForce) {
+        float length = force.len();
+        if (length > maxForce)
+            force.mul(maxForce / length);
+        return this;
+    }
+
+    /**
+     * Adds the force turning the velocity into one of the given speed along
+     * (dx, dy).
+     */
+    private Steering steerTowards(float dx, float dy, float speed, float weight) {
+        float length = (float) Math.sqrt(dx * dx + dy * dy);
+        float desiredX = 0;
+        float desiredY = 0;
+        if (length > 0) {
+            desiredX = dx / length * speed;
+            desiredY = dy / length * speed;
+        }
+        force.x += (desiredX - velocityX) * weight;
+        force.y += (desiredY - velocityY) * weight;
+        return this;
+    }
+
+    /**
+     * Returns how long it takes to reach a target moving at a constant velocity
+     * at full speed, or the time to reach where it is now if it can't be caught.
+     */
+    private float interceptTime(float targetX, float targetY, float targetVelocityX, float targetVelocityY) {
+        float dx = targetX - x;
+        float dy = targetY - y;
+        float distance = (float) Math.sqrt(dx * dx + dy * dy);
+        float direct = maxSpeed > 0 ? distance / maxSpeed : 0;
+
+        // |d + v t| = maxSpeed t, solved for the smallest positive t.
+        float a = targetVelocityX * targetVelocityX + targetVelocityY * targetVelocityY - maxSpeed * maxSpeed;
+        float b = 2 * (dx * targetVelocityX + dy * targetVelocityY);
+        float c = distance * distance;
+
+        if (Math.abs(a) < 1e-6f)
+            return b < 0 ? -c / b : direct;
+
+        float discriminant = b * b - 4 * a * c;
+        if (discriminant < 0)
+            return direct;
+
+        float root = (float) Math.sqrt(discriminant);
+        float t1 = (-b - root) / (2 * a);
+        float t2 = (-b + root) / (2 * a);
+        float time = Math.min(t1, t2);
+        if (time < 0)
+            time = Math.max(t1, t2);
+        return time >= 0 ? time : direct;
+    }
+}
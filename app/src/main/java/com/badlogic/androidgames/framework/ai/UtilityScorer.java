@@ -0,0 +1,230 @@
+package com.badlogic.androidgames.framework.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utility AI over arrays of agents. Every action an agent can take is scored
+ * from considerations, each a ResponseCurve over an input, and every agent
+ * picks the action with the best score.
+ *
+ * Inputs are either per agent, one value per agent that the caller fills in
+ * getValues(input) before scoring, or shared by every agent, such as how fast
+ * the target moves, set once per tick with setSharedInput. Both are mapped
+ * from their [min, max] range to [0, 1] before going through the curves.
+ * Considerations over shared inputs are evaluated once, in begin(), and their
+ * value reused for every agent.
+ *
+ * score() works on a range of agents at once: each consideration is
+ * evaluated for the whole range, then each action multiplies its
+ * considerations together. Like in Dave Mark's "Infinite Axis Utility System",
+ * the product is compensated for the number of considerations, so actions
+ * with many of them are not penalized. Ranges may be scored on several
+ * threads at once, after begin() was called on one.
+ */
+public class UtilityScorer {
+    final int capacity;
+
+    // the inputs: their range, whether they are shared, and their values.
+    final List<String> inputNames = new ArrayList<String>();
+    float[] inputMin = new float[0];
+    float[] inputScale = new float[0];
+    boolean[] inputShared = new boolean[0];
+    float[][] inputValues = new float[0][];
+
+    // the considerations: the input and curve of each, and their value for
+    // every agent, or the shared value.
+    int[] considerationInput = new int[0];
+    ResponseCurve[] considerationCurve = new ResponseCurve[0];
+    float[][] considerationValues = new float[0][];
+    float[] sharedValues = new float[0];
+
+    // the actions, the considerations of each, and the score of the best
+    // action of every agent.
+    final List<String> actionNames = new ArrayList<String>();
+    int[][] actionConsiderations = new int[0][];
+    final int[] best;
+    final float[] bestScore;
+
+    public UtilityScorer(int capacity) {
+        this.capacity = capacity;
+        this.best = new int[capacity];
+        this.bestScore = new float[capacity];
+    }
+
+    /** Adds an input with a value per agent, and returns its index. */
+    public int addInput(String name, float min, float max) {
+        return addInput(name, min, max, false);
+    }
+
+    /** Adds an input shared by every agent, and returns its index. */
+    public int addSharedInput(String name, float min, float max) {
+        return addInput(name, min, max, true);
+    }
+
+    /** Adds a consideration of the given input, and returns its index. */
+    public int addConsideration(int input, ResponseCurve curve) {
+        int n = considerationInput.length;
+        considerationInput = grow(considerationInput);
+        considerationInput[n] = input;
+
+        ResponseCurve[] curves = new ResponseCurve[n + 1];
+        System.arraycopy(considerationCurve, 0, curves, 0, n);
+        curves[n] = curve;
+        considerationCurve = curves;
+
+        float[][] values = new float[n + 1][];
+        System.arraycopy(considerationValues, 0, values, 0, n);
+        values[n] = inputShared[input] ? null : new float[capacity];
+        considerationValues = values;
+
+        sharedValues = grow(sharedValues);
+        return n;
+    }
+
+    /**
+     * Adds an action scored from the given considerations, and returns its
+     * index.
+     */
+    public int addAction(String name, int... considerations) {
+        if (considerations.length == 0)
+            throw new IllegalArgumentException("An action needs a consideration");
+
+        int n = actionConsiderations.length;
+        int[][] actions = new int[n + 1][];
+        System.arraycopy(actionConsiderations, 0, actions, 0, n);
+        actions[n] = considerations.clone();
+        actionConsiderations = actions;
+        actionNames.add(name);
+        return n;
+    }
+
+    public int getActionCount() {
+        return actionConsiderations.length;
+    }
+
+    public String getActionName(int action) {
+        return actionNames.get(action);
+    }
+
+    public String getInputName(int input) {
+        return inputNames.get(input);
+    }
+
+    /** The values of a per agent input, to be filled in before scoring. */
+    public float[] getValues(int input) {
+        return inputValues[input];
+    }
+
+    public void setSharedInput(int input, float value) {
+        inputValues[input][0] = value;
+    }
+
+    /**
+     * Evaluates the considerations shared by every agent. Call once per tick,
+     * after setting the shared inputs and before scoring.
+     */
+    public void begin() {
+        for (int c = 0; c < considerationInput.length; c++) {
+            int input = considerationInput[c];
+            if (inputShared[input])
+                sharedValues[c] = considerationCurve[c].evaluate(normalize(input, inputValues[input][0]));
+        }
+    }
+
+    /**
+     * Scores every action for the agents in [from, to), and keeps the best
+     * one of each, to be read with getBest.
+     */
+    public void score(int from, int to) {
+        for (int c = 0; c < considerationInput.length; c++) {
+            int input = considerationInput[c];
+            if (inputShared[input])
+                continue;
+
+            final ResponseCurve curve = considerationCurve[c];
+            final float[] in = inputValues[input];
+            final float[] out = considerationValues[c];
+            final float min = inputMin[input];
+            final float scale = inputScale[input];
+            for (int i = from; i < to; i++)
+                out[i] = curve.evaluate(clamp((in[i] - min) * scale));
+        }
+
+        for (int i = from; i < to; i++) {
+            best[i] = 0;
+            bestScore[i] = -1;
+        }
+
+        for (int a = 0; a < actionConsiderations.length; a++) {
+            final int[] considerations = actionConsiderations[a];
+            final float compensation = 1 - 1.0f / considerations.length;
+
+            for (int i = from; i < to; i++) {
+                float score = 1;
+                for (int c : considerations) {
+                    float value = considerationValues[c] != null ? considerationValues[c][i] : sharedValues[c];
+                    score *= value + (1 - value) * compensation * value;
+                }
+                if (score > bestScore[i]) {
+                    bestScore[i] = score;
+                    best[i] = a;
+                }
+            }
+        }
+    }
+
+    /** The action with the best score for the given agent. */
+    public int getBest(int agent) {
+        return best[agent];
+    }
+
+    /** The score of the best action of the given agent. */
+    public float getBestScore(int agent) {
+        return bestScore[agent];
+    }
+
+    int addInput(String name, float min, float max, boolean shared) {
+        if (max <= min)
+            throw new IllegalArgumentException("max must be greater than min");
+
+        int n = inputMin.length;
+        inputMin = grow(inputMin);
+        inputMin[n] = min;
+        inputScale = grow(inputScale);
+        inputScale[n] = 1 / (max - min);
+
+        boolean[] isShared = new boolean[n + 1];
+        System.arraycopy(inputShared, 0, isShared, 0, n);
+        isShared[n] = shared;
+        inputShared = isShared;
+
+        float[][] values = new float[n + 1][];
+        System.arraycopy(inputValues, 0, values, 0, n);
+        values[n] = new float[shared ? 1 : capacity];
+        inputValues = values;
+
+        inputNames.add(name);
+        return n;
+    }
+
+    float normalize(int input, float value) {
+        return clamp((value - inputMin[input]) * inputScale[input]);
+    }
+
+    static float clamp(float x) {
+        return x > 0 ? (x < 1 ? x : 1) : 0;
+    }
+
+    static int[] grow(int[] array) {
+        int[] grown = new int[array.length + 1];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    static float[] grow(float[] array) {
+        float[] grown = new float[array.length + 1];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+}
@@ -0,0 +1,278 @@
+package com.badlogic.androidgames.framework.gl;
+
+import com.badlogic.androidgames.framework.GameObject;
+import com.badlogic.androidgames.framework.math.Circle;
+import com.badlogic.androidgames.framework.math.OverlapTester;
+import com.badlogic.androidgames.framework.math.Rectangle;
+
+import java.util.Arrays;
+
+/**
+ * A loose quadtree over a square world: every node holds the objects whose
+ * center is in its square and that are no bigger than it, and its bounds are
+ * loosened by half its size on every side, so that they hold those objects
+ * whole. An object so goes straight to the deepest node as big as it, with
+ * no splitting or pushing down, and moving it only changes node when its
+ * center leaves the square. Queries descend the nodes whose loose bounds
+ * overlap them and which hold anything.
+ *
+ * Unlike a SpatialHashGrid, empty space costs nothing to query, and bunched
+ * up objects or objects of very different sizes don't crowd a few cells.
+ * Objects whose center is outside of the world go in the root.
+ *
+ * The tree is complete, in flat arrays, to the depth at which nodes are no
+ * bigger than minNodeSize: node 0 is the root, and the children of node n are
+ * 4n + 1 to 4n + 4. Like a SpatialHashGrid, objects get an int id stored in
+ * their gridId.
+ */
+public class LooseQuadTree implements SpatialIndex {
+    static final int MAX_DEPTH = 8;
+
+    final float worldSize;
+    final int maxDepth;
+    // the size of the nodes at each depth, and the first node of each depth.
+    final float[] nodeSizes;
+    final int[] levelOffsets;
+
+    // the objects of each node, and how many objects each subtree holds.
+    final int[][] nodeIds;
+    final int[] nodeCounts;
+    final int[] subtreeCounts;
+
+    // the objects by id, their node and where they are in it, and the ids
+    // free for reuse.
+    GameObject[] objects = new GameObject[16];
+    int[] nodeOf = new int[16];
+    int[] slotOf = new int[16];
+    int idCount;
+    int[] freeIds = new int[16];
+    int freeCount;
+
+    // the nodes still to descend during a query, with their corner and depth.
+    final int[] stackNodes = new int[4 * (MAX_DEPTH + 1)];
+    final float[] stackX = new float[4 * (MAX_DEPTH + 1)];
+    final float[] stackY = new float[4 * (MAX_DEPTH + 1)];
+    final int[] stackDepths = new int[4 * (MAX_DEPTH + 1)];
+
+    public LooseQuadTree(float worldWidth, float worldHeight, float minNodeSize) {
+        this.worldSize = Math.max(worldWidth, worldHeight);
+
+        int depth = 0;
+        while(depth < MAX_DEPTH && worldSize / (1 << depth) > minNodeSize)
+            depth++;
+        this.maxDepth = depth;
+
+        nodeSizes = new float[maxDepth + 1];
+        levelOffsets = new int[maxDepth + 2];
+        for(int d = 0; d <= maxDepth; d++) {
+            nodeSizes[d] = worldSize / (1 << d);
+            levelOffsets[d + 1] = levelOffsets[d] * 4 + 1;
+        }
+
+        int numNodes = levelOffsets[maxDepth + 1];
+        nodeIds = new int[numNodes][];
+        nodeCounts = new int[numNodes];
+        subtreeCounts = new int[numNodes];
+    }
+
+    public int getDepth() {
+        return maxDepth;
+    }
+
+    /** The number of objects in the tree. */
+    public int getObjectCount() {
+        return subtreeCounts[0];
+    }
+
+    @Override
+    public void insert(GameObject obj) {
+        if(contains(obj)) {
+            move(obj);
+            return;
+        }
+
+        int id;
+        if(freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            id = idCount++;
+            if(id == objects.length) {
+                objects = Arrays.copyOf(objects, id * 2);
+                nodeOf = Arrays.copyOf(nodeOf, id * 2);
+                slotOf = Arrays.copyOf(slotOf, id * 2);
+            }
+        }
+        objects[id] = obj;
+        obj.gridId = id;
+        addToNode(nodeFor(obj), id);
+    }
+
+    @Override
+    public void remove(GameObject obj) {
+        if(!contains(obj))
+            return;
+
+        int id = obj.gridId;
+        removeFromNode(id);
+        objects[id] = null;
+        obj.gridId = -1;
+        if(freeCount == freeIds.length)
+            freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        freeIds[freeCount++] = id;
+    }
+
+    @Override
+    public void move(GameObject obj) {
+        if(!contains(obj)) {
+            insert(obj);
+            return;
+        }
+
+        int id = obj.gridId;
+        int node = nodeFor(obj);
+        if(node != nodeOf[id]) {
+            removeFromNode(id);
+            addToNode(node, id);
+        }
+    }
+
+    public boolean contains(GameObject obj) {
+        int id = obj.gridId;
+        return id >= 0 && id < idCount && objects[id] == obj;
+    }
+
+    @Override
+    public void query(Rectangle rect, Visitor visitor) {
+        visitNodes(rect.lowerLeft.x, rect.lowerLeft.y, rect.lowerLeft.x + rect.width, rect.lowerLeft.y + rect.height,
+                rect, null, visitor);
+    }
+
+    @Override
+    public void query(Circle circle, Visitor visitor) {
+        float x = circle.center.x;
+        float y = circle.center.y;
+        float r = circle.radius;
+        visitNodes(x - r, y - r, x + r, y + r, null, circle, visitor);
+    }
+
+    /**
+     * Visits the objects overlapping the rectangle, or the circle if there is
+     * one, in the nodes whose loose bounds overlap (minX, minY) to (maxX,
+     * maxY).
+     */
+    void visitNodes(float minX, float minY, float maxX, float maxY, Rectangle rect, Circle circle, Visitor visitor) {
+        if(subtreeCounts[0] == 0)
+            return;
+
+        int top = 0;
+        stackNodes[top] = 0;
+        stackX[top] = 0;
+        stackY[top] = 0;
+        stackDepths[top] = 0;
+        top++;
+
+        while(top > 0) {
+            top--;
+            int node = stackNodes[top];
+            float x = stackX[top];
+            float y = stackY[top];
+            int depth = stackDepths[top];
+
+            int[] ids = nodeIds[node];
+            int len = nodeCounts[node];
+            for(int i = 0; i < len; i++) {
+                GameObject obj = objects[ids[i]];
+                if(circle != null ? OverlapTester.overlapCircleRectangle(circle, obj.bounds) : OverlapTester.overlapRectangles(rect, obj.bounds))
+                    visitor.visit(obj);
+            }
+
+            if(depth == maxDepth)
+                continue;
+
+            float size = nodeSizes[depth + 1];
+            float slack = size * 0.5f;
+            int firstChild = node * 4 + 1;
+            for(int k = 0; k < 4; k++) {
+                int child = firstChild + k;
+                if(subtreeCounts[child] == 0)
+                    continue;
+
+                float childX = x + (k & 1) * size;
+                float childY = y + (k >> 1) * size;
+                if(childX - slack > maxX || childX + size + slack < minX
+                        || childY - slack > maxY || childY + size + slack < minY)
+                    continue;
+
+                stackNodes[top] = child;
+                stackX[top] = childX;
+                stackY[top] = childY;
+                stackDepths[top] = depth + 1;
+                top++;
+            }
+        }
+    }
+
+    /**
+     * The deepest node as big as the object, in which square its center is.
+     */
+    int nodeFor(GameObject obj) {
+        float width = obj.bounds.width;
+        float height = obj.bounds.height;
+        float centerX = obj.bounds.lowerLeft.x + width * 0.5f;
+        float centerY = obj.bounds.lowerLeft.y + height * 0.5f;
+        if(!(centerX >= 0 && centerX < worldSize && centerY >= 0 && centerY < worldSize))
+            return 0;
+
+        float extent = Math.max(width, height);
+        int depth = 0;
+        while(depth < maxDepth && nodeSizes[depth + 1] >= extent)
+            depth++;
+
+        int last = (1 << depth) - 1;
+        int x = Math.min(last, (int) Math.floor(centerX / nodeSizes[depth]));
+        int y = Math.min(last, (int) Math.floor(centerY / nodeSizes[depth]));
+        return levelOffsets[depth] + (spread(x) | (spread(y) << 1));
+    }
+
+    void addToNode(int node, int id) {
+        int count = nodeCounts[node];
+        int[] ids = nodeIds[node];
+        if(ids == null)
+            ids = nodeIds[node] = new int[4];
+        else if(count == ids.length)
+            ids = nodeIds[node] = Arrays.copyOf(ids, count * 2);
+        ids[count] = id;
+        nodeCounts[node] = count + 1;
+        nodeOf[id] = node;
+        slotOf[id] = count;
+
+        for(int n = node; n > 0; n = (n - 1) >> 2)
+            subtreeCounts[n]++;
+        subtreeCounts[0]++;
+    }
+
+    void removeFromNode(int id) {
+        int node = nodeOf[id];
+        int[] ids = nodeIds[node];
+        int last = ids[--nodeCounts[node]];
+        int slot = slotOf[id];
+        ids[slot] = last;
+        slotOf[last] = slot;
+
+        for(int n = node; n > 0; n = (n - 1) >> 2)
+            subtreeCounts[n]--;
+        subtreeCounts[0]--;
+    }
+
+    /**
+     * Spreads the bits of v apart, for the position of a node among those of
+     * its depth in Morton order.
+     */
+    static int spread(int v) {
+        v &= 0xff;
+        v = (v | (v << 4)) & 0x0f0f;
+        v = (v | (v << 2)) & 0x3333;
+        v = (v | (v << 1)) & 0x5555;
+        return v;
+    }
+}
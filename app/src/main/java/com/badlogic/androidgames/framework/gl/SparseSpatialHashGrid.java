@@ -0,0 +1,200 @@
+package com.badlogic.androidgames.framework.gl;
+
+import com.badlogic.androidgames.framework.GameObject;
+import com.badlogic.androidgames.framework.math.Circle;
+import com.badlogic.androidgames.framework.math.Rectangle;
+
+import java.util.Arrays;
+
+/**
+ * A SpatialHashGrid without bounds, which only holds the cells objects are
+ * in. Cells are found through an open addressing hash map from their column
+ * and row, packed in a long, to an index in the arrays of the grid. A cell is
+ * added when the first object enters it and dropped when the last one
+ * leaves, and its index reused, so memory grows with the number of occupied
+ * cells rather than with the size of the world, which may span the whole
+ * range of an int in cells either way.
+ *
+ * Queries over cells nobody is in don't add them. Everything else works like
+ * in a SpatialHashGrid, which this can stand in for.
+ */
+public class SparseSpatialHashGrid extends SpatialHashGrid {
+    static final int EMPTY = -1;
+
+    // the hash map, linearly probed and at most half full: the packed column
+    // and row of each entry, and its cell, or EMPTY.
+    long[] keys;
+    int[] values;
+    int mask;
+    int size;
+
+    // the column and row of each cell, and the cells free for reuse.
+    long[] cellKeys;
+    int cellCount;
+    int[] freeCells;
+    int freeCellCount;
+
+    public SparseSpatialHashGrid(float cellSize) {
+        super(cellSize);
+        keys = new long[32];
+        values = new int[32];
+        Arrays.fill(values, EMPTY);
+        mask = 31;
+        cellKeys = new long[0];
+        freeCells = new int[0];
+    }
+
+    /** The number of cells in use. */
+    public int getCellCount() {
+        return size;
+    }
+
+    @Override
+    public int[] getCellIds(GameObject obj) {
+        return getCellIds(obj, false);
+    }
+
+    @Override
+    int[] getCellIds(GameObject obj, boolean create) {
+        int x1 = (int) Math.floor(obj.bounds.lowerLeft.x / cellSize);
+        int y1 = (int) Math.floor(obj.bounds.lowerLeft.y / cellSize);
+        int x2 = (int) Math.floor((obj.bounds.lowerLeft.x + obj.bounds.width) / cellSize);
+        int y2 = (int) Math.floor((obj.bounds.lowerLeft.y + obj.bounds.height) / cellSize);
+
+        int i = 0;
+        i = addCellId(x1, y1, i, create);
+        if(x2 != x1)
+            i = addCellId(x2, y1, i, create);
+        if(y2 != y1) {
+            if(x2 != x1)
+                i = addCellId(x2, y2, i, create);
+            i = addCellId(x1, y2, i, create);
+        }
+        while(i <= 3) cellIds[i++] = -1;
+        return cellIds;
+    }
+
+    @Override
+    void visitCells(float minX, float minY, float maxX, float maxY, Rectangle rect, Circle circle, Visitor visitor) {
+        int stamp = nextStamp();
+        int x1 = (int) Math.floor(minX / cellSize);
+        int y1 = (int) Math.floor(minY / cellSize);
+        int x2 = (int) Math.floor(maxX / cellSize);
+        int y2 = (int) Math.floor(maxY / cellSize);
+
+        // past as many cells as are in use, going through those is quicker
+        // than looking up every cell of the area.
+        if(((long) x2 - x1 + 1) * ((long) y2 - y1 + 1) > size) {
+            for(int slot = 0; slot < values.length; slot++) {
+                if(values[slot] == EMPTY)
+                    continue;
+                int x = (int) (keys[slot] >> 32);
+                int y = (int) keys[slot];
+                if(x >= x1 && x <= x2 && y >= y1 && y <= y2)
+                    visitCell(values[slot], rect, circle, stamp, visitor);
+            }
+            return;
+        }
+
+        for(int y = y1; y <= y2; y++) {
+            for(int x = x1; x <= x2; x++) {
+                int cellId = find(x, y, false);
+                if(cellId != -1)
+                    visitCell(cellId, rect, circle, stamp, visitor);
+            }
+        }
+    }
+
+    int addCellId(int x, int y, int i, boolean create) {
+        int cellId = find(x, y, create);
+        if(cellId != -1)
+            cellIds[i++] = cellId;
+        return i;
+    }
+
+    /**
+     * The cell at column x and row y, added if missing and create is set, or
+     * -1.
+     */
+    int find(int x, int y, boolean create) {
+        long key = ((long) x << 32) | (y & 0xffffffffL);
+        int slot = hash(key) & mask;
+        while(values[slot] != EMPTY) {
+            if(keys[slot] == key)
+                return values[slot];
+            slot = (slot + 1) & mask;
+        }
+        if(!create)
+            return -1;
+
+        int cellId;
+        if(freeCellCount > 0) {
+            cellId = freeCells[--freeCellCount];
+        } else {
+            cellId = cellCount++;
+            if(cellId == cellKeys.length) {
+                int numCells = Math.max(16, cellId * 2);
+                cellKeys = Arrays.copyOf(cellKeys, numCells);
+                freeCells = Arrays.copyOf(freeCells, numCells);
+                growCells(numCells);
+            }
+        }
+        cellKeys[cellId] = key;
+        keys[slot] = key;
+        values[slot] = cellId;
+        if(++size * 2 > values.length)
+            rehash(values.length * 2);
+        return cellId;
+    }
+
+    @Override
+    void cellEmptied(int cellId) {
+        long key = cellKeys[cellId];
+        int slot = hash(key) & mask;
+        while(keys[slot] != key || values[slot] == EMPTY)
+            slot = (slot + 1) & mask;
+
+        // shift back the entries after it that would no longer be found
+        // across the hole.
+        int next = slot;
+        while(true) {
+            next = (next + 1) & mask;
+            if(values[next] == EMPTY)
+                break;
+            int home = hash(keys[next]) & mask;
+            boolean between = slot <= next ? slot < home && home <= next : slot < home || home <= next;
+            if(between)
+                continue;
+            keys[slot] = keys[next];
+            values[slot] = values[next];
+            slot = next;
+        }
+        values[slot] = EMPTY;
+        size--;
+
+        freeCells[freeCellCount++] = cellId;
+    }
+
+    void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, EMPTY);
+        mask = capacity - 1;
+        for(int i = 0; i < oldValues.length; i++) {
+            if(oldValues[i] == EMPTY)
+                continue;
+            int slot = hash(oldKeys[i]) & mask;
+            while(values[slot] != EMPTY)
+                slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    static int hash(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
+}
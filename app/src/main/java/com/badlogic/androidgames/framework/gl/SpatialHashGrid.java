@@ -1,100 +1,339 @@
 package com.badlogic.androidgames.framework.gl;
 
-import android.util.FloatMath;
-
 import com.badlogic.androidgames.framework.GameObject;
+import com.badlogic.androidgames.framework.math.Circle;
+import com.badlogic.androidgames.framework.math.OverlapTester;
+import com.badlogic.androidgames.framework.math.Rectangle;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
-public class SpatialHashGrid {
-    List<GameObject>[] dynamicCells;
-    List<GameObject>[] staticCells;
+/**
+ * A grid of cells over the world, each listing the static and dynamic objects
+ * that overlap it, to find the objects close to another one. Objects get an
+ * int id when first inserted, stored in their gridId, and the cells hold ids
+ * rather than references. An object belongs to one grid at a time, until it
+ * is removed.
+ *
+ * An object overlapping several cells is listed in each of them. Queries tell
+ * the copies apart by stamping every object they find with the number of the
+ * query, so each object is reported once in constant time, however full the
+ * cells are.
+ *
+ * The grid remembers the cells of every object, so move() only touches the
+ * cells an object entered or left, and the cells that hold dynamic objects,
+ * so clearDynamicCells() only empties those. Keeping objects in the grid and
+ * moving them costs time in the number of objects that cross a cell edge,
+ * clearing it in the number of occupied cells; neither grows with the size
+ * of the world.
+ *
+ * The cells of a world width by height are allocated up front. For large,
+ * sparse or unbounded worlds, see SparseSpatialHashGrid, which only holds the
+ * cells in use.
+ *
+ * Objects are listed in the cells of the corners of their bounds, so they
+ * should be no bigger than a cell, or queries may miss them.
+ */
+public class SpatialHashGrid implements SpatialIndex {
+
+    int[][] dynamicCells;
+    int[] dynamicCounts;
+    int[][] staticCells;
+    int[] staticCounts;
     int cellsPerRow;
     int cellsPerCol;
     float cellSize;
     int[] cellIds = new int[4];
     List<GameObject> foundObjects;
-    
-    @SuppressWarnings("unchecked")
+
+    // the cells holding dynamic objects, and where each is in that list.
+    int[] occupiedCells;
+    int[] occupiedSlots;
+    int occupiedCount;
+
+    // the objects by id, the ids free for reuse, and the query that last
+    // found each object.
+    GameObject[] objects = new GameObject[16];
+    int[] stamps = new int[16];
+    int idCount;
+    int[] freeIds = new int[16];
+    int freeCount;
+    int stamp;
+
+    // the cells of each object, four per id, whether it is static, and, for
+    // dynamic objects, the clear they were inserted after. a dynamic object
+    // inserted before the last clear is in no cell.
+    int[] objectCells = new int[16 * 4];
+    int[] objectCellCounts = new int[16];
+    boolean[] statics = new boolean[16];
+    int[] generations = new int[16];
+    int generation = 1;
+
     public SpatialHashGrid(float worldWidth, float worldHeight, float cellSize) {
+        this(cellSize);
+        this.cellsPerRow = (int) Math.ceil(worldWidth / cellSize);
+        this.cellsPerCol = (int) Math.ceil(worldHeight / cellSize);
+        growCells(cellsPerRow * cellsPerCol);
+    }
+
+    /**
+     * A grid without cells, for grids that add their own.
+     */
+    SpatialHashGrid(float cellSize) {
         this.cellSize = cellSize;
-        this.cellsPerRow = (int) FloatMath.ceil(worldWidth / cellSize);
-        this.cellsPerCol = (int) FloatMath.ceil(worldHeight / cellSize);
-        int numCells = cellsPerRow * cellsPerCol;
-        dynamicCells = new List[numCells];
-        staticCells = new List[numCells];
-        for(int i = 0; i < numCells; i++) {
-            dynamicCells[i] = new ArrayList<GameObject>(10);
-            staticCells[i] = new ArrayList<GameObject>(10);
-        }
+        dynamicCells = new int[0][];
+        dynamicCounts = new int[0];
+        staticCells = new int[0][];
+        staticCounts = new int[0];
+        occupiedCells = new int[0];
+        occupiedSlots = new int[0];
         foundObjects = new ArrayList<GameObject>(10);
     }
-    
+
     public void insertStaticObject(GameObject obj) {
-        int[] cellIds = getCellIds(obj);
-        int i = 0;
-        int cellId = -1;
-        while(i <= 3 && (cellId = cellIds[i++]) != -1) {
-            staticCells[cellId].add(obj);
-        }
+        insert(obj, true);
     }
-    
+
     public void insertDynamicObject(GameObject obj) {
-        int[] cellIds = getCellIds(obj);
-        int i = 0;
+        insert(obj, false);
+    }
+
+    /**
+     * Updates the cells of an object already in the grid after its bounds
+     * changed, only adding it to the cells it entered and removing it from
+     * those it left. An object not in the grid yet is inserted as a dynamic
+     * one.
+     */
+    public void move(GameObject obj) {
+        int id = obj.gridId;
+        if(!contains(obj)) {
+            insertDynamicObject(obj);
+            return;
+        }
+
+        boolean isStatic = statics[id];
+        int base = id * 4;
+        int oldCount = objectCellCounts[id];
+        int[] cellIds = getCellIds(obj, true);
+
+        for(int i = 0; i < oldCount; i++) {
+            int cellId = objectCells[base + i];
+            if(cellId != cellIds[0] && cellId != cellIds[1] && cellId != cellIds[2] && cellId != cellIds[3])
+                removeFromCell(cellId, id, isStatic);
+        }
+
+        int newCount = 0;
         int cellId = -1;
-        while(i <= 3 && (cellId = cellIds[i++]) != -1) {
-            dynamicCells[cellId].add(obj);
+        while(newCount <= 3 && (cellId = cellIds[newCount]) != -1) {
+            boolean wasIn = false;
+            for(int i = 0; i < oldCount; i++) {
+                if(objectCells[base + i] == cellId) {
+                    wasIn = true;
+                    break;
+                }
+            }
+            if(!wasIn)
+                addToCell(cellId, id, isStatic);
+            newCount++;
         }
+
+        for(int i = 0; i < newCount; i++)
+            objectCells[base + i] = cellIds[i];
+        objectCellCounts[id] = newCount;
     }
-    
+
     public void removeObject(GameObject obj) {
-        int[] cellIds = getCellIds(obj);
-        int i = 0;
-        int cellId = -1;
-        while(i <= 3 && (cellId = cellIds[i++]) != -1) {
-            dynamicCells[cellId].remove(obj);
-            staticCells[cellId].remove(obj);
+        if(obj.gridId < 0 || obj.gridId >= idCount || objects[obj.gridId] != obj)
+            return;
+
+        int id = obj.gridId;
+        if(contains(obj)) {
+            int base = id * 4;
+            for(int i = 0; i < objectCellCounts[id]; i++)
+                removeFromCell(objectCells[base + i], id, statics[id]);
         }
+        objectCellCounts[id] = 0;
+
+        objects[id] = null;
+        obj.gridId = -1;
+        if(freeCount == freeIds.length)
+            freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        freeIds[freeCount++] = id;
     }
-    
+
+    /**
+     * Empties the cells holding dynamic objects, leaving the static ones. The
+     * dynamic objects keep their ids, and can be inserted or moved back in.
+     */
     public void clearDynamicCells(GameObject obj) {
-        int len = dynamicCells.length;
-        for(int i = 0; i < len; i++) {
-            dynamicCells[i].clear();
+        for(int i = 0; i < occupiedCount; i++) {
+            int cellId = occupiedCells[i];
+            dynamicCounts[cellId] = 0;
+            if(staticCounts[cellId] == 0)
+                cellEmptied(cellId);
+        }
+        occupiedCount = 0;
+
+        // once the generations wrap around, start over rather than mistake an
+        // old one for the current one.
+        if(++generation == 0) {
+            Arrays.fill(generations, 0);
+            generation = 1;
         }
     }
-    
+
+    /**
+     * Whether the object is in the cells of this grid: inserted, not removed
+     * and, if dynamic, not cleared since.
+     */
+    public boolean contains(GameObject obj) {
+        int id = obj.gridId;
+        if(id < 0 || id >= idCount || objects[id] != obj)
+            return false;
+        return statics[id] || generations[id] == generation;
+    }
+
+    /** The number of cells holding dynamic objects. */
+    public int getOccupiedCellCount() {
+        return occupiedCount;
+    }
+
     public List<GameObject> getPotentialColliders(GameObject obj) {
         foundObjects.clear();
+        int stamp = nextStamp();
         int[] cellIds = getCellIds(obj);
         int i = 0;
         int cellId = -1;
         while(i <= 3 && (cellId = cellIds[i++]) != -1) {
-            int len = dynamicCells[cellId].size();
+            int[] ids = dynamicCells[cellId];
+            int len = dynamicCounts[cellId];
             for(int j = 0; j < len; j++) {
-                GameObject collider = dynamicCells[cellId].get(j);
-                if(!foundObjects.contains(collider))
-                    foundObjects.add(collider);
+                int id = ids[j];
+                if(stamps[id] != stamp) {
+                    stamps[id] = stamp;
+                    foundObjects.add(objects[id]);
+                }
             }
-            
-            len = staticCells[cellId].size();
+
+            ids = staticCells[cellId];
+            len = staticCounts[cellId];
             for(int j = 0; j < len; j++) {
-                GameObject collider = staticCells[cellId].get(j);
-                if(!foundObjects.contains(collider))
-                    foundObjects.add(collider);
+                int id = ids[j];
+                if(stamps[id] != stamp) {
+                    stamps[id] = stamp;
+                    foundObjects.add(objects[id]);
+                }
             }
         }
         return foundObjects;
     }
-    
+
+    /**
+     * Hands the same objects as getPotentialColliders to the visitor, without
+     * building a list.
+     */
+    public void visitPotentialColliders(GameObject obj, Visitor visitor) {
+        int stamp = nextStamp();
+        int[] cellIds = getCellIds(obj);
+        int i = 0;
+        int cellId = -1;
+        while(i <= 3 && (cellId = cellIds[i++]) != -1) {
+            int[] ids = dynamicCells[cellId];
+            int len = dynamicCounts[cellId];
+            for(int j = 0; j < len; j++) {
+                int id = ids[j];
+                if(stamps[id] != stamp) {
+                    stamps[id] = stamp;
+                    visitor.visit(objects[id]);
+                }
+            }
+
+            ids = staticCells[cellId];
+            len = staticCounts[cellId];
+            for(int j = 0; j < len; j++) {
+                int id = ids[j];
+                if(stamps[id] != stamp) {
+                    stamps[id] = stamp;
+                    visitor.visit(objects[id]);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void insert(GameObject obj) {
+        insertDynamicObject(obj);
+    }
+
+    @Override
+    public void remove(GameObject obj) {
+        removeObject(obj);
+    }
+
+    @Override
+    public void query(Rectangle rect, Visitor visitor) {
+        visitCells(rect.lowerLeft.x, rect.lowerLeft.y, rect.lowerLeft.x + rect.width, rect.lowerLeft.y + rect.height,
+                rect, null, visitor);
+    }
+
+    @Override
+    public void query(Circle circle, Visitor visitor) {
+        float x = circle.center.x;
+        float y = circle.center.y;
+        float r = circle.radius;
+        visitCells(x - r, y - r, x + r, y + r, null, circle, visitor);
+    }
+
+    /**
+     * Visits the objects overlapping the rectangle, or the circle if there is
+     * one, in the cells from (minX, minY) to (maxX, maxY).
+     */
+    void visitCells(float minX, float minY, float maxX, float maxY, Rectangle rect, Circle circle, Visitor visitor) {
+        int stamp = nextStamp();
+        int x1 = Math.max(0, (int) Math.floor(minX / cellSize));
+        int y1 = Math.max(0, (int) Math.floor(minY / cellSize));
+        int x2 = Math.min(cellsPerRow - 1, (int) Math.floor(maxX / cellSize));
+        int y2 = Math.min(cellsPerCol - 1, (int) Math.floor(maxY / cellSize));
+        for(int y = y1; y <= y2; y++) {
+            for(int x = x1; x <= x2; x++) {
+                visitCell(x + y * cellsPerRow, rect, circle, stamp, visitor);
+            }
+        }
+    }
+
+    void visitCell(int cellId, Rectangle rect, Circle circle, int stamp, Visitor visitor) {
+        int[] ids = dynamicCells[cellId];
+        int len = dynamicCounts[cellId];
+        for(int j = 0; j < len; j++) {
+            int id = ids[j];
+            if(stamps[id] != stamp) {
+                stamps[id] = stamp;
+                GameObject obj = objects[id];
+                if(circle != null ? OverlapTester.overlapCircleRectangle(circle, obj.bounds) : OverlapTester.overlapRectangles(rect, obj.bounds))
+                    visitor.visit(obj);
+            }
+        }
+
+        ids = staticCells[cellId];
+        len = staticCounts[cellId];
+        for(int j = 0; j < len; j++) {
+            int id = ids[j];
+            if(stamps[id] != stamp) {
+                stamps[id] = stamp;
+                GameObject obj = objects[id];
+                if(circle != null ? OverlapTester.overlapCircleRectangle(circle, obj.bounds) : OverlapTester.overlapRectangles(rect, obj.bounds))
+                    visitor.visit(obj);
+            }
+        }
+    }
+
     public int[] getCellIds(GameObject obj) {
-        int x1 = (int) FloatMath.floor(obj.bounds.lowerLeft.x / cellSize);
-        int y1 = (int) FloatMath.floor(obj.bounds.lowerLeft.y / cellSize);
-        int x2 = (int) FloatMath.floor((obj.bounds.lowerLeft.x + obj.bounds.width) / cellSize);
-        int y2 = (int) FloatMath.floor((obj.bounds.lowerLeft.y + obj.bounds.height) / cellSize);
-        
+        int x1 = (int) Math.floor(obj.bounds.lowerLeft.x / cellSize);
+        int y1 = (int) Math.floor(obj.bounds.lowerLeft.y / cellSize);
+        int x2 = (int) Math.floor((obj.bounds.lowerLeft.x + obj.bounds.width) / cellSize);
+        int y2 = (int) Math.floor((obj.bounds.lowerLeft.y + obj.bounds.height) / cellSize);
+
         if(x1 == x2 && y1 == y2) {
             if(x1 >= 0 && x1 < cellsPerRow && y1 >= 0 && y1 < cellsPerCol)
                 cellIds[0] = x1 + y1 * cellsPerRow;
@@ -122,7 +361,7 @@ public class SpatialHashGrid {
                 if(x2 >= 0 && x2 < cellsPerRow)
                     cellIds[i++] = x2 + y1 * cellsPerRow;
             }
-            while(i <= 3) cellIds[i++] = -1;                       
+            while(i <= 3) cellIds[i++] = -1;
         }
         else {
             int i = 0;
@@ -140,4 +379,148 @@ public class SpatialHashGrid {
         }
         return cellIds;
     }
-}
\ No newline at end of file
+
+    void insert(GameObject obj, boolean isStatic) {
+        if(contains(obj)) {
+            if(statics[obj.gridId] == isStatic) {
+                move(obj);
+                return;
+            }
+            removeObject(obj);
+        }
+
+        int id = register(obj);
+        statics[id] = isStatic;
+        generations[id] = generation;
+
+        int base = id * 4;
+        int[] cellIds = getCellIds(obj, true);
+        int i = 0;
+        int cellId = -1;
+        while(i <= 3 && (cellId = cellIds[i]) != -1) {
+            addToCell(cellId, id, isStatic);
+            objectCells[base + i] = cellId;
+            i++;
+        }
+        objectCellCounts[id] = i;
+    }
+
+    void addToCell(int cellId, int id, boolean isStatic) {
+        if(isStatic) {
+            staticCells[cellId] = add(staticCells[cellId], staticCounts[cellId]++, id);
+            return;
+        }
+
+        if(dynamicCounts[cellId] == 0) {
+            occupiedSlots[cellId] = occupiedCount;
+            occupiedCells[occupiedCount++] = cellId;
+        }
+        dynamicCells[cellId] = add(dynamicCells[cellId], dynamicCounts[cellId]++, id);
+    }
+
+    void removeFromCell(int cellId, int id, boolean isStatic) {
+        if(isStatic) {
+            staticCounts[cellId] = remove(staticCells[cellId], staticCounts[cellId], id);
+            if(staticCounts[cellId] == 0 && dynamicCounts[cellId] == 0)
+                cellEmptied(cellId);
+            return;
+        }
+
+        dynamicCounts[cellId] = remove(dynamicCells[cellId], dynamicCounts[cellId], id);
+        if(dynamicCounts[cellId] == 0) {
+            // the last occupied cell takes the place of this one.
+            int slot = occupiedSlots[cellId];
+            int last = occupiedCells[--occupiedCount];
+            occupiedCells[slot] = last;
+            occupiedSlots[last] = slot;
+            if(staticCounts[cellId] == 0)
+                cellEmptied(cellId);
+        }
+    }
+
+    /**
+     * The cells of the object, for inserting or moving it when create is set.
+     * Grids that only hold the cells in use make those missing.
+     */
+    int[] getCellIds(GameObject obj, boolean create) {
+        return getCellIds(obj);
+    }
+
+    /**
+     * Called when the last object leaves a cell, for grids that only hold the
+     * cells in use to drop it.
+     */
+    void cellEmptied(int cellId) {
+    }
+
+    /**
+     * Makes room for cells up to numCells.
+     */
+    void growCells(int numCells) {
+        dynamicCells = Arrays.copyOf(dynamicCells, numCells);
+        dynamicCounts = Arrays.copyOf(dynamicCounts, numCells);
+        staticCells = Arrays.copyOf(staticCells, numCells);
+        staticCounts = Arrays.copyOf(staticCounts, numCells);
+        occupiedCells = Arrays.copyOf(occupiedCells, numCells);
+        occupiedSlots = Arrays.copyOf(occupiedSlots, numCells);
+    }
+
+    /**
+     * Returns the id of the object, giving it one if it has none yet.
+     */
+    int register(GameObject obj) {
+        int id = obj.gridId;
+        if(id >= 0 && id < idCount && objects[id] == obj)
+            return id;
+
+        if(freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            id = idCount++;
+            if(id == objects.length) {
+                objects = Arrays.copyOf(objects, id * 2);
+                stamps = Arrays.copyOf(stamps, id * 2);
+                objectCells = Arrays.copyOf(objectCells, id * 2 * 4);
+                objectCellCounts = Arrays.copyOf(objectCellCounts, id * 2);
+                statics = Arrays.copyOf(statics, id * 2);
+                generations = Arrays.copyOf(generations, id * 2);
+            }
+        }
+        objects[id] = obj;
+        obj.gridId = id;
+        return id;
+    }
+
+    int nextStamp() {
+        // once the stamps wrap around, start over rather than mistake an old
+        // stamp for the current one.
+        if(++stamp == 0) {
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+        return stamp;
+    }
+
+    static int[] add(int[] ids, int count, int id) {
+        if(ids == null)
+            ids = new int[8];
+        else if(count == ids.length)
+            ids = Arrays.copyOf(ids, count * 2);
+        ids[count] = id;
+        return ids;
+    }
+
+    /**
+     * Removes the id from the first count ids, keeping the others in order,
+     * and returns the new count.
+     */
+    static int remove(int[] ids, int count, int id) {
+        for(int i = 0; i < count; i++) {
+            if(ids[i] == id) {
+                System.arraycopy(ids, i + 1, ids, i, count - i - 1);
+                return count - 1;
+            }
+        }
+        return count;
+    }
+}
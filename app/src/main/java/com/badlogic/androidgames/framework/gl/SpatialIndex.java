@@ -0,0 +1,33 @@
+package com.badlogic.androidgames.framework.gl;
+
+import com.badlogic.androidgames.framework.GameObject;
+import com.badlogic.androidgames.framework.math.Circle;
+import com.badlogic.androidgames.framework.math.Rectangle;
+
+/**
+ * Finds the objects in an area of the world, whatever the structure behind
+ * it: a SpatialHashGrid for objects spread evenly over a bounded world, a
+ * SparseSpatialHashGrid for large or unbounded ones, a LooseQuadTree for
+ * objects bunched up in places or of very different sizes.
+ *
+ * Objects are known by their bounds. After changing the bounds of an object
+ * in the index, move() it. An object belongs to one index at a time.
+ */
+public interface SpatialIndex {
+    /** Receives the objects found by a query, each once. */
+    interface Visitor {
+        void visit(GameObject obj);
+    }
+
+    void insert(GameObject obj);
+
+    void remove(GameObject obj);
+
+    void move(GameObject obj);
+
+    /** Hands the objects whose bounds overlap the rectangle to the visitor. */
+    void query(Rectangle rect, Visitor visitor);
+
+    /** Hands the objects whose bounds overlap the circle to the visitor. */
+    void query(Circle circle, Visitor visitor);
+}
@@ -5,6 +5,7 @@ import javax.microedition.khronos.opengles.GL10;
 import android.util.FloatMath;
 
 import com.badlogic.androidgames.framework.impl.GLGraphics;
+import com.badlogic.androidgames.framework.math.FastTrig;
 import com.badlogic.androidgames.framework.math.Vector2;
 
 public class SpriteBatcher {
@@ -82,8 +83,8 @@ public class SpriteBatcher {
         float halfHeight = height / 2;
 
         float rad = angle * Vector2.TO_RADIANS;
-        float cos = FloatMath.cos(rad);
-        float sin = FloatMath.sin(rad);
+        float cos = FastTrig.enabled ? FastTrig.cos(rad) : FloatMath.cos(rad);
+        float sin = FastTrig.enabled ? FastTrig.sin(rad) : FloatMath.sin(rad);
 
         float x1 = -halfWidth * cos - (-halfHeight) * sin;
         float y1 = -halfWidth * sin + (-halfHeight) * cos;
@@ -0,0 +1,245 @@
+package com.badlogic.androidgames.framework.gl;
+
+import com.badlogic.androidgames.framework.GameObject;
+
+import java.util.Arrays;
+
+/**
+ * A sweep and prune broadphase: finds every pair of objects whose bounds
+ * overlap, for scenes where most objects only move a little each tick.
+ *
+ * The left and right edges of the bounds of every object are kept sorted
+ * along x. Each update() reads the bounds again and sorts the edges back in
+ * order with an insertion sort, which only does work for the edges that
+ * passed each other since the last tick, then sweeps them from left to right.
+ * Objects whose left edge was passed but not their right one are active, and
+ * each object entering is tested against them on y. The overlapping pairs go
+ * in a pair buffer, kept from one update to the next.
+ *
+ * Like a SpatialIndex, objects get an int id stored in their gridId, and so
+ * belong to one broadphase or index at a time. Pairs are given by id, the
+ * lower one first.
+ */
+public class SweepAndPrune {
+    // the edges sorted along x: the id of their object, times two, plus one
+    // for a right edge, and where they are.
+    int[] edges;
+    float[] edgeValues;
+    int edgeCount;
+
+    // the objects by id and their bounds, the ids free for reuse, and the ids
+    // of removed objects, whose edges are still to be taken out.
+    GameObject[] objects;
+    float[] minX;
+    float[] maxX;
+    float[] minY;
+    float[] maxY;
+    int idCount;
+    int[] freeIds;
+    int freeCount;
+    int[] removedIds;
+    int removedCount;
+
+    // the active objects during a sweep, and where each is in that list.
+    int[] active;
+    int[] activeSlots;
+
+    // the overlapping pairs found by the last update, two ids per pair.
+    int[] pairs;
+    int pairCount;
+    int swaps;
+
+    public SweepAndPrune(int capacity, int pairCapacity) {
+        capacity = Math.max(capacity, 1);
+        edges = new int[capacity * 2];
+        edgeValues = new float[capacity * 2];
+        objects = new GameObject[capacity];
+        minX = new float[capacity];
+        maxX = new float[capacity];
+        minY = new float[capacity];
+        maxY = new float[capacity];
+        freeIds = new int[capacity];
+        removedIds = new int[capacity];
+        active = new int[capacity];
+        activeSlots = new int[capacity];
+        pairs = new int[Math.max(pairCapacity, 1) * 2];
+    }
+
+    public void add(GameObject obj) {
+        if(contains(obj))
+            return;
+
+        int id;
+        if(freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            id = idCount++;
+            if(id == objects.length)
+                grow(id * 2);
+        }
+        objects[id] = obj;
+        obj.gridId = id;
+
+        // the new edges go at the end, with values that keep the sort happy
+        // until the next update reads the bounds and sorts them in.
+        float right = edgeCount > 0 ? edgeValues[edgeCount - 1] : 0;
+        edges[edgeCount] = id * 2;
+        edgeValues[edgeCount++] = right;
+        edges[edgeCount] = id * 2 + 1;
+        edgeValues[edgeCount++] = right;
+    }
+
+    public void remove(GameObject obj) {
+        if(!contains(obj))
+            return;
+
+        int id = obj.gridId;
+        objects[id] = null;
+        obj.gridId = -1;
+        removedIds[removedCount++] = id;
+    }
+
+    public boolean contains(GameObject obj) {
+        int id = obj.gridId;
+        return id >= 0 && id < idCount && objects[id] == obj;
+    }
+
+    /**
+     * Reads the bounds of every object again, sorts the edges and finds the
+     * overlapping pairs.
+     */
+    public void update() {
+        if(removedCount > 0)
+            takeOutRemoved();
+
+        for(int id = 0; id < idCount; id++) {
+            GameObject obj = objects[id];
+            if(obj == null)
+                continue;
+            minX[id] = obj.bounds.lowerLeft.x;
+            maxX[id] = obj.bounds.lowerLeft.x + obj.bounds.width;
+            minY[id] = obj.bounds.lowerLeft.y;
+            maxY[id] = obj.bounds.lowerLeft.y + obj.bounds.height;
+        }
+        for(int i = 0; i < edgeCount; i++) {
+            int edge = edges[i];
+            edgeValues[i] = (edge & 1) == 0 ? minX[edge >> 1] : maxX[edge >> 1];
+        }
+
+        sort();
+        sweep();
+    }
+
+    /**
+     * Insertion sort of the edges, left edges before right ones at the same
+     * x, so that objects touching on x are tested against each other.
+     */
+    void sort() {
+        int swaps = 0;
+        for(int i = 1; i < edgeCount; i++) {
+            int edge = edges[i];
+            float value = edgeValues[i];
+            int j = i - 1;
+            while(j >= 0 && (edgeValues[j] > value || (edgeValues[j] == value && (edges[j] & 1) > (edge & 1)))) {
+                edges[j + 1] = edges[j];
+                edgeValues[j + 1] = edgeValues[j];
+                j--;
+            }
+            swaps += i - 1 - j;
+            edges[j + 1] = edge;
+            edgeValues[j + 1] = value;
+        }
+        this.swaps = swaps;
+    }
+
+    void sweep() {
+        pairCount = 0;
+        int activeCount = 0;
+        for(int i = 0; i < edgeCount; i++) {
+            int edge = edges[i];
+            int id = edge >> 1;
+            if((edge & 1) != 0) {
+                int slot = activeSlots[id];
+                int last = active[--activeCount];
+                active[slot] = last;
+                activeSlots[last] = slot;
+                continue;
+            }
+
+            float left = minX[id];
+            float right = maxX[id];
+            float bottom = minY[id];
+            float top = maxY[id];
+            for(int a = 0; a < activeCount; a++) {
+                int other = active[a];
+                if(minY[other] < top && maxY[other] > bottom && minX[other] < right && maxX[other] > left)
+                    addPair(other, id);
+            }
+            activeSlots[id] = activeCount;
+            active[activeCount++] = id;
+        }
+    }
+
+    void addPair(int a, int b) {
+        if(pairCount * 2 == pairs.length)
+            pairs = Arrays.copyOf(pairs, pairs.length * 2);
+        pairs[pairCount * 2] = Math.min(a, b);
+        pairs[pairCount * 2 + 1] = Math.max(a, b);
+        pairCount++;
+    }
+
+    /**
+     * Drops the edges of removed objects, and frees their ids.
+     */
+    void takeOutRemoved() {
+        int kept = 0;
+        for(int i = 0; i < edgeCount; i++) {
+            if(objects[edges[i] >> 1] != null) {
+                edges[kept] = edges[i];
+                edgeValues[kept] = edgeValues[i];
+                kept++;
+            }
+        }
+        edgeCount = kept;
+
+        for(int i = 0; i < removedCount; i++)
+            freeIds[freeCount++] = removedIds[i];
+        removedCount = 0;
+    }
+
+    void grow(int capacity) {
+        edges = Arrays.copyOf(edges, capacity * 2);
+        edgeValues = Arrays.copyOf(edgeValues, capacity * 2);
+        objects = Arrays.copyOf(objects, capacity);
+        minX = Arrays.copyOf(minX, capacity);
+        maxX = Arrays.copyOf(maxX, capacity);
+        minY = Arrays.copyOf(minY, capacity);
+        maxY = Arrays.copyOf(maxY, capacity);
+        freeIds = Arrays.copyOf(freeIds, capacity);
+        removedIds = Arrays.copyOf(removedIds, capacity);
+        active = Arrays.copyOf(active, capacity);
+        activeSlots = Arrays.copyOf(activeSlots, capacity);
+    }
+
+    /** The number of overlapping pairs found by the last update. */
+    public int getPairCount() {
+        return pairCount;
+    }
+
+    /**
+     * The pairs found by the last update: the ids of pair i are at 2i and
+     * 2i + 1.
+     */
+    public int[] getPairs() {
+        return pairs;
+    }
+
+    public GameObject getObject(int id) {
+        return objects[id];
+    }
+
+    /** How many times edges passed each other in the last update's sort. */
+    public int getSwaps() {
+        return swaps;
+    }
+}
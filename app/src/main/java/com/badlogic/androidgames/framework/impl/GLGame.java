@@ -43,6 +43,14 @@ public abstract class GLGame extends OuyaActivity implements Game, Renderer
     Object stateChanged = new Object();
     long startTime = System.nanoTime();
     WakeLock wakeLock;
+
+    // the screen is updated in fixed steps of fixedTimeStep seconds, whatever
+    // the display rate is. time that has passed but was not simulated yet is
+    // kept in accumulator. to avoid a spiral of death on a slow frame, no more
+    // than maxUpdatesPerFrame steps are run per frame; the rest is dropped.
+    float fixedTimeStep = 1.0f / 60.0f;
+    int maxUpdatesPerFrame = 5;
+    float accumulator;
     
     @Override
     public void onCreate(Bundle savedInstanceState)
@@ -83,6 +91,7 @@ public abstract class GLGame extends OuyaActivity implements Game, Renderer
             state = GLGameState.Running;
             screen.resume();
             startTime = System.nanoTime();
+            accumulator = 0;
         }        
     }
     
@@ -105,9 +114,22 @@ public abstract class GLGame extends OuyaActivity implements Game, Renderer
         {
             float deltaTime = (System.nanoTime()-startTime) / 1000000000.0f;
             startTime = System.nanoTime();
-            
-            screen.update(deltaTime);
-            screen.present(deltaTime);
+
+            accumulator += deltaTime;
+
+            int updates = 0;
+            while(accumulator >= fixedTimeStep && updates < maxUpdatesPerFrame)
+            {
+                screen.update(fixedTimeStep);
+                accumulator -= fixedTimeStep;
+                updates++;
+            }
+
+            if(accumulator >= fixedTimeStep)
+                accumulator %= fixedTimeStep;
+
+            // how far we are between the last simulated step and the next one.
+            screen.present(deltaTime, accumulator / fixedTimeStep);
         }
         
         if(state == GLGameState.Paused)
@@ -159,6 +181,22 @@ public abstract class GLGame extends OuyaActivity implements Game, Renderer
         super.onPause();
     }    
     
+    /**
+     * Sets how many times per second the screen is updated, and how many
+     * updates may run in a single frame to catch up after a slow one.
+     */
+    public void setTickRate(int ticksPerSecond, int maxUpdatesPerFrame) {
+        if (ticksPerSecond <= 0 || maxUpdatesPerFrame <= 0)
+            throw new IllegalArgumentException("Tick rate and max updates per frame must be positive");
+
+        this.fixedTimeStep = 1.0f / ticksPerSecond;
+        this.maxUpdatesPerFrame = maxUpdatesPerFrame;
+    }
+
+    public float getFixedTimeStep() {
+        return fixedTimeStep;
+    }
+
     public GLGraphics getGLGraphics() {
         return glGraphics;
     }  
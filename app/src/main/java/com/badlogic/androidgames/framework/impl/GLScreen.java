@@ -9,8 +9,9 @@ public abstract class GLScreen extends Screen {
     
     public GLScreen(Game game) {
         super(game);
-        glGame = (GLGame)game;
-        glGraphics = ((GLGame)game).getGLGraphics();
+        // a HeadlessGame has no GL context, so there is nothing to draw with.
+        glGame = game instanceof GLGame ? (GLGame)game : null;
+        glGraphics = glGame != null ? glGame.getGLGraphics() : null;
     }
 
 }
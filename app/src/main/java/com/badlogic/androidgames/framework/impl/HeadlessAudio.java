@@ -0,0 +1,78 @@
+package com.badlogic.androidgames.framework.impl;
+
+import com.badlogic.androidgames.framework.Audio;
+import com.badlogic.androidgames.framework.Music;
+import com.badlogic.androidgames.framework.Sound;
+
+/**
+ * Audio that plays nothing, but keeps track of the music state so that code
+ * checking isPlaying or isLooping behaves as usual.
+ */
+public class HeadlessAudio implements Audio {
+    @Override
+    public Music newMusic(String filename) {
+        return new HeadlessMusic();
+    }
+
+    @Override
+    public Sound newSound(String filename) {
+        return new Sound() {
+            @Override
+            public void play(float volume) {
+            }
+
+            @Override
+            public void dispose() {
+            }
+        };
+    }
+
+    static class HeadlessMusic implements Music {
+        boolean playing;
+        boolean looping;
+
+        @Override
+        public void play() {
+            playing = true;
+        }
+
+        @Override
+        public void stop() {
+            playing = false;
+        }
+
+        @Override
+        public void pause() {
+            playing = false;
+        }
+
+        @Override
+        public void setLooping(boolean looping) {
+            this.looping = looping;
+        }
+
+        @Override
+        public void setVolume(float volume) {
+        }
+
+        @Override
+        public boolean isPlaying() {
+            return playing;
+        }
+
+        @Override
+        public boolean isStopped() {
+            return !playing;
+        }
+
+        @Override
+        public boolean isLooping() {
+            return looping;
+        }
+
+        @Override
+        public void dispose() {
+            playing = false;
+        }
+    }
+}
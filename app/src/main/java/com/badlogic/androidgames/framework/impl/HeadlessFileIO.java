@@ -0,0 +1,36 @@
+package com.badlogic.androidgames.framework.impl;
+
+import com.badlogic.androidgames.framework.FileIO;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * FileIO over a local directory. Assets are looked up in the same directory.
+ */
+public class HeadlessFileIO implements FileIO {
+    final String directory;
+
+    public HeadlessFileIO(String directory) {
+        this.directory = directory + File.separator;
+    }
+
+    @Override
+    public InputStream readAsset(String fileName) throws IOException {
+        return new FileInputStream(directory + fileName);
+    }
+
+    @Override
+    public InputStream readFile(String fileName) throws IOException {
+        return new FileInputStream(directory + fileName);
+    }
+
+    @Override
+    public OutputStream writeFile(String fileName) throws IOException {
+        return new FileOutputStream(directory + fileName);
+    }
+}
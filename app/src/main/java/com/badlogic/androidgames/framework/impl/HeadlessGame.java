@@ -0,0 +1,78 @@
+package com.badlogic.androidgames.framework.impl;
+
+import com.badlogic.androidgames.framework.Audio;
+import com.badlogic.androidgames.framework.FileIO;
+import com.badlogic.androidgames.framework.Game;
+import com.badlogic.androidgames.framework.Graphics;
+import com.badlogic.androidgames.framework.Input;
+import com.badlogic.androidgames.framework.Screen;
+
+/**
+ * A Game without a window, a GL context or a device. Graphics, audio and input
+ * do nothing, and files are read from and written to a local directory. It is
+ * used to run screens in a plain JVM, for instance to measure how fast the
+ * simulation is. Screens extending GLScreen get a null GLGraphics and must not
+ * draw.
+ */
+public class HeadlessGame implements Game {
+    final Graphics graphics;
+    final Audio audio;
+    final Input input;
+    final FileIO fileIO;
+    Screen screen;
+
+    public HeadlessGame(int width, int height, String directory) {
+        this.graphics = new HeadlessGraphics(width, height);
+        this.audio = new HeadlessAudio();
+        this.input = new HeadlessInput();
+        this.fileIO = new HeadlessFileIO(directory);
+    }
+
+    @Override
+    public Input getInput() {
+        return input;
+    }
+
+    @Override
+    public FileIO getFileIO() {
+        return fileIO;
+    }
+
+    @Override
+    public Graphics getGraphics() {
+        return graphics;
+    }
+
+    @Override
+    public Audio getAudio() {
+        return audio;
+    }
+
+    @Override
+    public void setScreen(Screen screen) {
+        if (screen == null)
+            throw new IllegalArgumentException("Screen must not be null");
+
+        if (this.screen != null) {
+            this.screen.pause();
+            this.screen.dispose();
+        }
+        screen.resume();
+        screen.update(0);
+        this.screen = screen;
+    }
+
+    @Override
+    public Screen getCurrentScreen() {
+        return screen;
+    }
+
+    /**
+     * There is no start screen: the caller builds the screen it wants to run
+     * and hands it to setScreen.
+     */
+    @Override
+    public Screen getStartScreen() {
+        return screen;
+    }
+}
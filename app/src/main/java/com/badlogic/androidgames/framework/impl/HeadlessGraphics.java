@@ -0,0 +1,76 @@
+package com.badlogic.androidgames.framework.impl;
+
+import com.badlogic.androidgames.framework.Graphics;
+import com.badlogic.androidgames.framework.Pixmap;
+
+/**
+ * Graphics that draws nothing. Pixmaps only remember their format.
+ */
+public class HeadlessGraphics implements Graphics {
+    final int width;
+    final int height;
+
+    public HeadlessGraphics(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public Pixmap newPixmap(String fileName, final PixmapFormat format) {
+        return new Pixmap() {
+            @Override
+            public int getWidth() {
+                return 0;
+            }
+
+            @Override
+            public int getHeight() {
+                return 0;
+            }
+
+            @Override
+            public PixmapFormat getFormat() {
+                return format;
+            }
+
+            @Override
+            public void dispose() {
+            }
+        };
+    }
+
+    @Override
+    public void clear(int color) {
+    }
+
+    @Override
+    public void drawPixel(int x, int y, int color) {
+    }
+
+    @Override
+    public void drawLine(int x, int y, int x2, int y2, int color) {
+    }
+
+    @Override
+    public void drawRect(int x, int y, int width, int height, int color) {
+    }
+
+    @Override
+    public void drawPixmap(Pixmap pixmap, int x, int y, int srcX, int srcY,
+                           int srcWidth, int srcHeight) {
+    }
+
+    @Override
+    public void drawPixmap(Pixmap pixmap, int x, int y) {
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,59 @@
+package com.badlogic.androidgames.framework.impl;
+
+import com.badlogic.androidgames.framework.Input;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Input with no keyboard, touch screen or accelerometer attached.
+ */
+public class HeadlessInput implements Input {
+    final List<KeyEvent> keyEvents = new ArrayList<KeyEvent>();
+    final List<TouchEvent> touchEvents = new ArrayList<TouchEvent>();
+
+    @Override
+    public boolean isKeyPressed(int keyCode) {
+        return false;
+    }
+
+    @Override
+    public boolean isTouchDown(int pointer) {
+        return false;
+    }
+
+    @Override
+    public int getTouchX(int pointer) {
+        return 0;
+    }
+
+    @Override
+    public int getTouchY(int pointer) {
+        return 0;
+    }
+
+    @Override
+    public float getAccelX() {
+        return 0;
+    }
+
+    @Override
+    public float getAccelY() {
+        return 0;
+    }
+
+    @Override
+    public float getAccelZ() {
+        return 0;
+    }
+
+    @Override
+    public List<KeyEvent> getKeyEvents() {
+        return keyEvents;
+    }
+
+    @Override
+    public List<TouchEvent> getTouchEvents() {
+        return touchEvents;
+    }
+}
@@ -0,0 +1,95 @@
+package com.badlogic.androidgames.framework.math;
+
+/**
+ * Table based sine, cosine and arc tangent, and branch free angle wrapping, for
+ * code that calls them for every agent or every sprite, every frame.
+ *
+ * Error bounds, for angles within +-1000 radians:
+ *
+ * sin(x), cos(x)  absolute error below 6e-4 (a step and a half of a 16384
+ *                 entry table; one step for positive angles).
+ * atan2(y, x)     absolute error below 1e-6 radians (linear interpolation in a
+ *                 1025 entry table of atan over [0, 1]). atan2(0, 0) is 0.
+ * wrapAngle(x)    result in [-PI, PI], equal to x modulo 2 PI up to float
+ *                 rounding of x (about 1e-4 radians at 1000 radians).
+ *
+ * The tables take about 70 KB and are built when the class is loaded. Callers
+ * check the enabled switch to fall back to java.lang.Math, which is useful to
+ * compare accuracy and speed on a device.
+ */
+public final class FastTrig {
+    public static final float PI = (float) Math.PI;
+    public static final float PI2 = PI * 2;
+    public static final float HALF_PI = PI / 2;
+
+    /** When false, callers use java.lang.Math instead of the tables. */
+    public static boolean enabled = true;
+
+    private static final int SIN_BITS = 14;
+    private static final int SIN_MASK = ~(-1 << SIN_BITS);
+    private static final int SIN_COUNT = SIN_MASK + 1;
+    private static final float RAD_TO_INDEX = SIN_COUNT / PI2;
+    private static final int COS_OFFSET = SIN_COUNT / 4;
+    private static final float[] SIN = new float[SIN_COUNT];
+
+    private static final int ATAN_COUNT = 1024;
+    private static final float[] ATAN = new float[ATAN_COUNT + 1];
+
+    static {
+        // sample in the middle of each slot, so that truncating the index in
+        // sin() rounds to the nearest sample.
+        for (int i = 0; i < SIN_COUNT; i++)
+            SIN[i] = (float) Math.sin((i + 0.5f) / SIN_COUNT * PI2);
+
+        // exact values at the quadrant boundaries.
+        for (int i = 0; i < 4; i++)
+            SIN[i * COS_OFFSET] = (float) Math.sin(i * HALF_PI);
+
+        for (int i = 0; i <= ATAN_COUNT; i++)
+            ATAN[i] = (float) Math.atan((double) i / ATAN_COUNT);
+    }
+
+    private FastTrig() {
+    }
+
+    public static float sin(float radians) {
+        return SIN[(int) (radians * RAD_TO_INDEX) & SIN_MASK];
+    }
+
+    public static float cos(float radians) {
+        return SIN[((int) (radians * RAD_TO_INDEX) + COS_OFFSET) & SIN_MASK];
+    }
+
+    public static float atan2(float y, float x) {
+        float ax = Math.abs(x);
+        float ay = Math.abs(y);
+        float max = Math.max(ax, ay);
+        if (max == 0)
+            return 0;
+
+        // atan of the ratio of the smaller over the larger component, which
+        // lies in [0, 1], interpolated between two table entries.
+        float t = Math.min(ax, ay) / max * ATAN_COUNT;
+        int i = (int) t;
+        if (i == ATAN_COUNT)
+            i--;
+        float angle = ATAN[i] + (ATAN[i + 1] - ATAN[i]) * (t - i);
+
+        // back to the right octant and quadrant.
+        if (ay > ax)
+            angle = HALF_PI - angle;
+        if (x < 0)
+            angle = PI - angle;
+        return y < 0 ? -angle : angle;
+    }
+
+    /**
+     * Returns the angle, in radians, wrapped to [-PI, PI]. Unlike a loop adding
+     * or removing 2 PI, this takes the same time for any input.
+     */
+    public static float wrapAngle(float radians) {
+        float wrapped = radians - PI2 * (float) Math.floor((radians + PI) / PI2);
+        // rounding can leave us a hair outside of the range.
+        return Math.max(-PI, Math.min(wrapped, PI));
+    }
+}
@@ -0,0 +1,659 @@
+package com.guillaumesoft.chaseandevade;
+
+import com.badlogic.androidgames.framework.ai.AgentNeighbours;
+import com.badlogic.androidgames.framework.ai.FlowField;
+import com.badlogic.androidgames.framework.ai.HysteresisStateMachine;
+import com.badlogic.androidgames.framework.ai.InfluenceMap;
+import com.badlogic.androidgames.framework.ai.LineOfSight;
+import com.badlogic.androidgames.framework.ai.ObstacleGrid;
+import com.badlogic.androidgames.framework.ai.Orca;
+import com.badlogic.androidgames.framework.ai.Steering;
+import com.badlogic.androidgames.framework.math.FastRandom;
+import com.badlogic.androidgames.framework.math.FastTrig;
+import com.badlogic.androidgames.framework.math.Vector2;
+
+/// <summary>
+/// AgentSimulation runs the chase, evade and wander behaviors of GameScreen over
+/// every agent of an AgentStore. The decisions are exactly the ones made by
+/// UpdateTank, UpdateMouse and Wander, but they read and write the flat arrays
+/// of the store directly, so a whole swarm is updated without allocating a
+/// single object.
+///
+/// An update is split in passes: Prepare finds who is next to whom, Think
+/// decides what every agent wants to do (state, orientation and speed), Avoid
+/// adjusts that so tanks don't run into each other, and Move then moves every
+/// agent along its heading. All but Prepare take a range of agent indices so
+/// that callers can split a large store in smaller chunks.
+///
+/// Think reads the agents from one store and writes its decisions into another
+/// one, so that every agent of a tick decides from the same, consistent state of
+/// the previous tick (see ParallelAgentUpdater). Passing the same store twice
+/// updates it in place.
+/// </summary>
+public class AgentSimulation
+{
+    // The tuning values, described at the top of GameScreen.
+    // GameScreen.CreateSimulation sets them from its own constants; the
+    // defaults are for the tests.
+    public float MaxTankSpeed       = 5.0f;
+    public float TankTurnSpeed      = 0.10f;
+    public float TankChaseDistance  = 250.0f;
+    public float TankCaughtDistance = 60.0f;
+    public float TankHysteresis     = 15.0f;
+    public float MaxMouseSpeed      = 8.5f;
+    public float MouseTurnSpeed     = 0.20f;
+    public float MouseEvadeDistance = 200.0f;
+    public float MouseHysteresis    = 60.0f;
+
+    // how strongly evading mice keep away from, line up with and stay close to
+    // the mice around them.
+    public float MouseSeparationWeight = 1.5f;
+    public float MouseAlignmentWeight  = 0.5f;
+    public float MouseCohesionWeight   = 0.2f;
+    public float MouseThreatWeight     = 1.0f;
+
+    // tanks avoid each other as discs of TankRadius pixels, looking
+    // AvoidanceHorizon ticks ahead for collisions.
+    public float TankRadius       = 20.0f;
+    public float AvoidanceHorizon = 10.0f;
+
+    // the states of the agents, as the zones of bands around the cat with the
+    // hysteresis as their margin: a tank is caught inside the first band and
+    // chasing inside the second one, a mouse is evading inside its band.
+    final HysteresisStateMachine tankStates  = new HysteresisStateMachine(2);
+    final HysteresisStateMachine mouseStates = new HysteresisStateMachine(1);
+
+    // the agents are kept inside of this area, and wander around its center.
+    final float worldWidth;
+    final float worldHeight;
+    final float screenCenterX;
+    final float screenCenterY;
+
+    // every agent draws its random numbers from its own stream for the tick, so
+    // that the result of a tick is the same however it is split over threads,
+    // and the same seed always plays out the same way.
+    long seed = System.nanoTime();
+    int tick;
+    final ThreadLocal<FastRandom> random = new ThreadLocal<FastRandom>()
+    {
+        @Override
+        protected FastRandom initialValue()
+        {
+            return new FastRandom();
+        }
+    };
+
+    // the walls of the world, and a flow field leading to the cat around them.
+    // when set, chasing tanks follow the field instead of heading straight for
+    // the cat, and nobody moves into a blocked cell.
+    ObstacleGrid obstacles;
+    FlowField chaseField;
+
+    // when set, and there are walls, a wandering tank only starts chasing the
+    // cat, or catches it, if it can see it, casting no more than sightBudget
+    // rays per tick.
+    // the tanks look in turn from sightStart, round-robin, so that when the
+    // rays run out the next tick carries on where this one stopped.
+    LineOfSight sight;
+    int sightBudget;
+    int sightStart;
+    boolean[] tankGuards;
+
+    // when set, the tanks pick their state by utility instead of with the
+    // state machine.
+    TankUtility tankUtility;
+
+    // when set, evading mice flock: they run from where the cat is heading,
+    // keep their distance from the mice around them and run along with them,
+    // instead of each running straight away from the cat.
+    AgentNeighbours neighbours;
+    float catVelocityX;
+    float catVelocityY;
+
+    // when set, evading mice run down the threat map, away from the cat and
+    // from where it has just been, rather than straight away from the cat.
+    InfluenceMap threats;
+
+    // when set, tanks steer clear of the tanks around them once they decided
+    // where to go, rather than piling up on top of each other.
+    AgentNeighbours tankNeighbours;
+
+    // the velocity of every agent that may have neighbours this tick, and a
+    // Steering and an Orca for every thread thinking.
+    float[] velocityX;
+    float[] velocityY;
+    final ThreadLocal<Orca> orca = new ThreadLocal<Orca>();
+    final ThreadLocal<Vector2> gradient = new ThreadLocal<Vector2>()
+    {
+        @Override
+        protected Vector2 initialValue()
+        {
+            return new Vector2();
+        }
+    };
+    final ThreadLocal<Steering> steering = new ThreadLocal<Steering>()
+    {
+        @Override
+        protected Steering initialValue()
+        {
+            return new Steering();
+        }
+    };
+
+    public AgentSimulation(float worldWidth, float worldHeight)
+    {
+        this.worldWidth    = worldWidth;
+        this.worldHeight   = worldHeight;
+        this.screenCenterX = worldWidth  / 2;
+        this.screenCenterY = worldHeight / 2;
+
+        tankStates.setState(AgentStore.TANK_CAUGHT,  "Caught",  0);
+        tankStates.setState(AgentStore.TANK_CHASING, "Chasing", 1);
+        tankStates.setState(AgentStore.TANK_WANDER,  "Wander",  2);
+        tankStates.setGuarded(AgentStore.TANK_CHASING, true);
+        mouseStates.setState(AgentStore.MOUSE_EVADING, "Evading", 0);
+        mouseStates.setState(AgentStore.MOUSE_WANDER,  "Wander",  1);
+    }
+
+    /// <summary>
+    /// Runs one full update of every agent in the store.
+    /// </summary>
+    public void update(AgentStore agents, float catX, float catY)
+    {
+        prepare(agents, catX, catY);
+        think(agents, agents, 0, agents.count, catX, catY);
+        avoid(agents, agents, 0, agents.count);
+        move(agents, 0, agents.count);
+    }
+
+    /// <summary>
+    /// Restarts the random numbers of the agents from the given seed.
+    /// </summary>
+    public void setSeed(long seed)
+    {
+        this.seed = seed;
+        this.tick = 0;
+    }
+
+    /// <summary>
+    /// Sets how far the cat moved since the last tick, so mice can tell where it
+    /// is heading.
+    /// </summary>
+    public void setCatVelocity(float x, float y)
+    {
+        catVelocityX = x;
+        catVelocityY = y;
+    }
+
+    /// <summary>
+    /// Does the work of a tick that is shared by all agents, before any of them
+    /// thinks: moves on to the random numbers of the next tick, finds which
+    /// tanks can see the cat, and finds the neighbours of the mice close enough
+    /// to the cat to be evading it, and of the tanks. Must be called once per
+    /// tick, from a single thread.
+    /// </summary>
+    public void prepare(AgentStore previous, float catX, float catY)
+    {
+        prepare(previous, catX, catY, true);
+    }
+
+    /// <summary>
+    /// Same as above, but unless findNeighbours is set, the neighbours of the
+    /// agents are left for findNeighbours() to find one agent at a time, for
+    /// callers that only let a few agents think every tick.
+    /// </summary>
+    public void prepare(AgentStore previous, float catX, float catY, boolean findNeighbours)
+    {
+        tick++;
+
+        // the tuning values may have changed since the last tick.
+        tankStates.setBand(0, TankCaughtDistance - TankHysteresis / 2, TankCaughtDistance + TankHysteresis / 2);
+        tankStates.setBand(1, TankChaseDistance  - TankHysteresis / 2, TankChaseDistance  + TankHysteresis / 2);
+        mouseStates.setBand(0, MouseEvadeDistance - MouseHysteresis, MouseEvadeDistance + MouseHysteresis);
+
+        tankGuards = null;
+        if (sight != null && obstacles.getBlockedCount() > 0)
+            prepareSight(previous, catX, catY);
+        if (tankUtility != null)
+            tankUtility.begin(catVelocityX, catVelocityY);
+
+        if (neighbours == null && tankNeighbours == null)
+            return;
+
+        if (velocityX == null || velocityX.length < previous.capacity)
+        {
+            velocityX = new float[previous.capacity];
+            velocityY = new float[previous.capacity];
+        }
+
+        if (neighbours != null)
+            prepareMice(previous, catX, catY, findNeighbours);
+        if (tankNeighbours != null)
+            prepareTanks(previous, findNeighbours);
+    }
+
+    /// <summary>
+    /// Finds the neighbours of agent i, after a prepare() that left them out.
+    /// Must be called before the agent thinks, from the thread that prepared
+    /// the tick.
+    /// </summary>
+    public void findNeighbours(AgentStore previous, int i, float catX, float catY)
+    {
+        float x = previous.positionX[i];
+        float y = previous.positionY[i];
+
+        if (previous.kind[i] == AgentStore.TANK)
+        {
+            if (tankNeighbours != null)
+                tankNeighbours.find(i, x, y);
+        }
+        else if (neighbours != null)
+        {
+            float findRange = MouseEvadeDistance + MouseHysteresis;
+            float dx = x - catX;
+            float dy = y - catY;
+            if (dx * dx + dy * dy <= findRange * findRange)
+                neighbours.find(i, x, y);
+        }
+    }
+
+    /// <summary>
+    /// Finds which of the wandering tanks close enough to start chasing the cat
+    /// can see it. The tanks look starting from sightStart; if the rays run out
+    /// before all of them had their turn, the next tick starts with the tank
+    /// after the last one that cast a ray, so that every tank gets to look
+    /// however small the budget is.
+    /// </summary>
+    void prepareSight(AgentStore previous, float catX, float catY)
+    {
+        final byte[] kind       = previous.kind;
+        final byte[] state      = previous.state;
+        final float[] positionX = previous.positionX;
+        final float[] positionY = previous.positionY;
+        final int count         = previous.count;
+        float lookRange   = TankChaseDistance - TankHysteresis / 2;
+        float lookSquared = lookRange * lookRange;
+
+        if (sightStart >= count)
+            sightStart = 0;
+        int firstRay = sight.rays;
+        int lastRay  = -1;
+
+        sight.begin(catX, catY, sightBudget);
+        for (int n = 0, i = sightStart; n < count; n++, i = i + 1 < count ? i + 1 : 0)
+        {
+            if (kind[i] != AgentStore.TANK || state[i] != AgentStore.TANK_WANDER)
+                continue;
+
+            float dx = positionX[i] - catX;
+            float dy = positionY[i] - catY;
+            if (dx * dx + dy * dy >= lookSquared)
+                continue;
+
+            int rays = sight.rays;
+            sight.look(i, positionX[i], positionY[i]);
+            if (sight.rays != rays)
+                lastRay = i;
+        }
+        if (sight.rays - firstRay >= sightBudget && lastRay >= 0)
+            sightStart = lastRay + 1;
+        tankGuards = sight.getVisible();
+    }
+
+    void prepareMice(AgentStore previous, float catX, float catY, boolean find)
+    {
+        final byte[] kind         = previous.kind;
+        final float[] positionX   = previous.positionX;
+        final float[] positionY   = previous.positionY;
+        final float[] orientation = previous.orientation;
+        final float[] speed       = previous.speed;
+        final boolean fastTrig    = FastTrig.enabled;
+        final int count           = previous.count;
+
+        // only mice that may evade need neighbours, and only mice that close to
+        // them can be one.
+        float findRange     = MouseEvadeDistance + MouseHysteresis;
+        float insertRange   = findRange + neighbours.radius;
+        float findSquared   = findRange * findRange;
+        float insertSquared = insertRange * insertRange;
+
+        neighbours.clear();
+        for (int i = 0; i < count; i++)
+        {
+            if (kind[i] != AgentStore.MOUSE)
+                continue;
+
+            float dx = positionX[i] - catX;
+            float dy = positionY[i] - catY;
+            if (dx * dx + dy * dy > insertSquared)
+                continue;
+
+            float cos = fastTrig ? FastTrig.cos(orientation[i]) : (float) Math.cos(orientation[i]);
+            float sin = fastTrig ? FastTrig.sin(orientation[i]) : (float) Math.sin(orientation[i]);
+            velocityX[i] = cos * speed[i];
+            velocityY[i] = sin * speed[i];
+            neighbours.insert(i, positionX[i], positionY[i]);
+        }
+
+        if (!find)
+            return;
+
+        for (int i = 0; i < count; i++)
+        {
+            if (kind[i] != AgentStore.MOUSE)
+                continue;
+
+            float dx = positionX[i] - catX;
+            float dy = positionY[i] - catY;
+            if (dx * dx + dy * dy <= findSquared)
+                neighbours.find(i, positionX[i], positionY[i]);
+        }
+    }
+
+    void prepareTanks(AgentStore previous, boolean find)
+    {
+        final byte[] kind         = previous.kind;
+        final float[] positionX   = previous.positionX;
+        final float[] positionY   = previous.positionY;
+        final float[] orientation = previous.orientation;
+        final float[] speed       = previous.speed;
+        final boolean fastTrig    = FastTrig.enabled;
+        final int count           = previous.count;
+
+        tankNeighbours.clear();
+        for (int i = 0; i < count; i++)
+        {
+            if (kind[i] != AgentStore.TANK)
+                continue;
+
+            float cos = fastTrig ? FastTrig.cos(orientation[i]) : (float) Math.cos(orientation[i]);
+            float sin = fastTrig ? FastTrig.sin(orientation[i]) : (float) Math.sin(orientation[i]);
+            velocityX[i] = cos * speed[i];
+            velocityY[i] = sin * speed[i];
+            tankNeighbours.insert(i, positionX[i], positionY[i]);
+        }
+
+        if (!find)
+            return;
+
+        for (int i = 0; i < count; i++)
+        {
+            if (kind[i] == AgentStore.TANK)
+                tankNeighbours.find(i, positionX[i], positionY[i]);
+        }
+    }
+
+    /// <summary>
+    /// Decides the state, orientation and speed of the agents in [from, to) of
+    /// the previous store, and writes the result into the same agents of the
+    /// next store, together with their unchanged kind and position.
+    /// </summary>
+    public void think(AgentStore previous, AgentStore next, int from, int to, float catX, float catY)
+    {
+        think(previous, next, from, to, catX, catY, 1);
+    }
+
+    /// <summary>
+    /// Same as above, for agents that last thought the given number of ticks
+    /// ago: they may turn that many times as far, so that they turn as fast as
+    /// agents that think every tick (see AiScheduler).
+    /// </summary>
+    public void think(AgentStore previous, AgentStore next, int from, int to, float catX, float catY, int ticks)
+    {
+        final byte[] kind = previous.kind;
+        final Steering steering = neighbours != null ? this.steering.get() : null;
+        final Vector2 gradient  = threats != null ? this.gradient.get() : null;
+
+        // first the new state of every agent, then what it does in that state.
+        if (tankUtility != null)
+            tankUtility.decide(previous, next, from, to, catX, catY, tankGuards);
+        else
+            tankStates.update(previous.state, next.state, previous.positionX, previous.positionY, kind, AgentStore.TANK, from, to, catX, catY, tankGuards);
+        mouseStates.update(previous.state, next.state, previous.positionX, previous.positionY, kind, AgentStore.MOUSE, from, to, catX, catY);
+
+        for (int i = from; i < to; i++)
+        {
+            next.kind[i]      = kind[i];
+            next.positionX[i] = previous.positionX[i];
+            next.positionY[i] = previous.positionY[i];
+
+            if (kind[i] == AgentStore.TANK)
+                thinkTank(previous, next, i, catX, catY, ticks * TankTurnSpeed);
+            else
+                thinkMouse(previous, next, i, catX, catY, ticks * MouseTurnSpeed, steering, gradient);
+        }
+    }
+
+    /// <summary>
+    /// Adjusts the heading and speed the tanks in [from, to) of the next store
+    /// decided on, so that they don't run into the tanks around them. Each tank
+    /// assumes the others keep the velocity they had on the previous tick, and
+    /// takes half of the effort of avoiding them (see Orca).
+    /// </summary>
+    public void avoid(AgentStore previous, AgentStore next, int from, int to)
+    {
+        if (tankNeighbours == null)
+            return;
+
+        Orca solver = orca.get();
+        if (solver == null)
+        {
+            solver = new Orca(tankNeighbours.maxNeighbours);
+            orca.set(solver);
+        }
+
+        final byte[] kind         = next.kind;
+        final float[] orientation = next.orientation;
+        final float[] speed       = next.speed;
+        final int[] around        = tankNeighbours.getNeighbours();
+        final boolean fastTrig    = FastTrig.enabled;
+
+        for (int i = from; i < to; i++)
+        {
+            if (kind[i] != AgentStore.TANK)
+                continue;
+
+            int count = tankNeighbours.getCount(i);
+            if (count == 0)
+                continue;
+
+            float cos = fastTrig ? FastTrig.cos(orientation[i]) : (float) Math.cos(orientation[i]);
+            float sin = fastTrig ? FastTrig.sin(orientation[i]) : (float) Math.sin(orientation[i]);
+
+            Vector2 velocity = solver.solve(i, previous.positionX, previous.positionY, velocityX, velocityY,
+                    around, tankNeighbours.getOffset(i), count,
+                    cos * speed[i], sin * speed[i], MaxTankSpeed, TankRadius, AvoidanceHorizon);
+
+            float length = velocity.len();
+            speed[i] = length;
+
+            // a tank barely nudged aside keeps facing the same way.
+            if (length > .1f * MaxTankSpeed)
+                orientation[i] = fastTrig ? FastTrig.atan2(velocity.y, velocity.x) : (float) Math.atan2(velocity.y, velocity.x);
+        }
+    }
+
+    /// <summary>
+    /// Moves the agents in [from, to) along their heading, at their current
+    /// speed, and keeps them inside of the world.
+    /// </summary>
+    public void move(AgentStore agents, int from, int to)
+    {
+        final float[] positionX   = agents.positionX;
+        final float[] positionY   = agents.positionY;
+        final float[] orientation = agents.orientation;
+        final float[] speed       = agents.speed;
+        final boolean fastTrig    = FastTrig.enabled;
+        final ObstacleGrid walls  = obstacles != null && obstacles.getBlockedCount() > 0 ? obstacles : null;
+
+        for (int i = from; i < to; i++)
+        {
+            float cos = fastTrig ? FastTrig.cos(orientation[i]) : (float) Math.cos(orientation[i]);
+            float sin = fastTrig ? FastTrig.sin(orientation[i]) : (float) Math.sin(orientation[i]);
+
+            float x = positionX[i] + cos * speed[i];
+            float y = positionY[i] + sin * speed[i];
+
+            x = Math.max(Math.min(x, worldWidth),  0.0f);
+            y = Math.max(Math.min(y, worldHeight), 0.0f);
+
+            // walls stop agents dead; they'll turn away on their own.
+            if (walls != null && walls.isBlockedAt(x, y))
+                continue;
+
+            positionX[i] = x;
+            positionY[i] = y;
+        }
+    }
+
+    /// <summary>
+    /// Same decisions as GameScreen.UpdateTank, for the tank at index i, turning
+    /// by no more than turnSpeed.
+    /// </summary>
+    void thinkTank(AgentStore previous, AgentStore next, int i, float catX, float catY, float turnSpeed)
+    {
+        float x  = previous.positionX[i];
+        float y  = previous.positionY[i];
+        byte state = next.state[i];
+
+        if (state == AgentStore.TANK_CHASING)
+        {
+            // head for the cat, or around the walls that are in the way.
+            float faceX = catX;
+            float faceY = catY;
+
+            if (chaseField != null && obstacles.getBlockedCount() > 0)
+            {
+                int direction = chaseField.getFlow(obstacles.cellX(x), obstacles.cellY(y));
+                if (direction != FlowField.NONE)
+                {
+                    faceX = x + FlowField.DIRECTION_X[direction];
+                    faceY = y + FlowField.DIRECTION_Y[direction];
+                }
+            }
+
+            next.orientation[i] = GameScreen.TurnToFace(x, y, faceX, faceY, previous.orientation[i], turnSpeed);
+            next.wanderX[i]     = previous.wanderX[i];
+            next.wanderY[i]     = previous.wanderY[i];
+            next.speed[i]       = MaxTankSpeed;
+        }
+        else if (state == AgentStore.TANK_WANDER)
+        {
+            wander(previous, next, i, turnSpeed);
+            next.speed[i] = .25f * MaxTankSpeed;
+        }
+        else
+        {
+            // the tank has caught the cat, so it stops instead of running laps
+            // around it.
+            next.orientation[i] = previous.orientation[i];
+            next.wanderX[i]     = previous.wanderX[i];
+            next.wanderY[i]     = previous.wanderY[i];
+            next.speed[i]       = 0.0f;
+        }
+    }
+
+    /// <summary>
+    /// Same decisions as GameScreen.UpdateMouse, for the mouse at index i,
+    /// turning by no more than turnSpeed.
+    /// </summary>
+    void thinkMouse(AgentStore previous, AgentStore next, int i, float catX, float catY, float turnSpeed, Steering steering, Vector2 gradient)
+    {
+        float x  = previous.positionX[i];
+        float y  = previous.positionY[i];
+        float dx = x - catX;
+        float dy = y - catY;
+        byte state = next.state[i];
+
+        if (state == AgentStore.MOUSE_EVADING)
+        {
+            // turn towards the point on the line from the cat through the mouse,
+            // on the far side of the mouse: 2 * mousePosition - catPosition.
+            float faceX = x + dx;
+            float faceY = y + dy;
+
+            // or down the threat map, where there is a way down.
+            float fleeX = 0;
+            float fleeY = 0;
+            if (gradient != null)
+            {
+                threats.getGradient(x, y, gradient);
+                float length = gradient.len();
+                if (length > 0)
+                {
+                    fleeX = -gradient.x / length;
+                    fleeY = -gradient.y / length;
+                    faceX = x + fleeX;
+                    faceY = y + fleeY;
+                }
+            }
+
+            if (steering != null)
+            {
+                // or towards where the flock steers the mouse.
+                int[] around = neighbours.getNeighbours();
+                int offset   = neighbours.getOffset(i);
+                int count    = neighbours.getCount(i);
+
+                steering.begin(x, y, velocityX[i], velocityY[i], MaxMouseSpeed)
+                        .evade(catX, catY, catVelocityX, catVelocityY, 1.0f)
+                        .separation(previous.positionX, previous.positionY, around, offset, count, MouseSeparationWeight)
+                        .alignment(velocityX, velocityY, around, offset, count, MouseAlignmentWeight)
+                        .cohesion(previous.positionX, previous.positionY, around, offset, count, MouseCohesionWeight);
+                if (fleeX != 0 || fleeY != 0)
+                    steering.seek(x + fleeX, y + fleeY, MouseThreatWeight);
+
+                faceX = x + velocityX[i] + steering.force.x;
+                faceY = y + velocityY[i] + steering.force.y;
+            }
+
+            next.orientation[i] = GameScreen.TurnToFace(x, y, faceX, faceY, previous.orientation[i], turnSpeed);
+            next.wanderX[i]     = previous.wanderX[i];
+            next.wanderY[i]     = previous.wanderY[i];
+            next.speed[i]       = MaxMouseSpeed;
+        }
+        else
+        {
+            wander(previous, next, i, turnSpeed);
+            next.speed[i] = .25f * MaxMouseSpeed;
+        }
+    }
+
+    /// <summary>
+    /// Same behavior as GameScreen.Wander: nudge the wander direction by a random
+    /// amount, turn slowly towards it, and then turn back towards the center of
+    /// the world, more strongly the further away the agent is.
+    /// </summary>
+    void wander(AgentStore previous, AgentStore next, int i, float turnSpeed)
+    {
+        float x = previous.positionX[i];
+        float y = previous.positionY[i];
+
+        FastRandom random = this.random.get();
+        random.setStream(seed, ((long) tick << 32) | i);
+
+        float wanderX = previous.wanderX[i] + (random.nextFloat() - .5f) * .5f;
+        float wanderY = previous.wanderY[i] + (random.nextFloat() - .5f) * .5f;
+
+        float length = (float) Math.sqrt(wanderX * wanderX + wanderY * wanderY);
+        if (length != 0)
+        {
+            wanderX /= length;
+            wanderY /= length;
+        }
+        next.wanderX[i] = wanderX;
+        next.wanderY[i] = wanderY;
+
+        float orientation = GameScreen.TurnToFace(x, y, x + wanderX, y + wanderY, previous.orientation[i], .15f * turnSpeed);
+
+        float cx = screenCenterX - x;
+        float cy = screenCenterY - y;
+        float distanceFromScreenCenter = (float) Math.sqrt(cx * cx + cy * cy);
+        float MaxDistanceFromScreenCenter = Math.min(screenCenterX, screenCenterY);
+
+        float normalizedDistance = distanceFromScreenCenter / MaxDistanceFromScreenCenter;
+        float turnToCenterSpeed = .3f * normalizedDistance * normalizedDistance * turnSpeed;
+
+        next.orientation[i] = GameScreen.TurnToFace(x, y, screenCenterX, screenCenterY, orientation, turnToCenterSpeed);
+    }
+}
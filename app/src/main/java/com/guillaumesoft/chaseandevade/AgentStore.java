@@ -0,0 +1,130 @@
+package com.guillaumesoft.chaseandevade;
+
+import com.guillaumesoft.chaseandevade.GameScreen.MouseAiState;
+import com.guillaumesoft.chaseandevade.GameScreen.TankAiState;
+
+/// <summary>
+/// AgentStore keeps every tank and mouse of a scene in flat primitive arrays,
+/// one array per attribute, instead of one object per agent. The i-th entry of
+/// every array belongs to agent i. Keeping the data this way lets the batch
+/// update in AgentSimulation walk thousands of agents without touching the
+/// heap, and keeps the values it reads next to each other in memory.
+/// </summary>
+public class AgentStore
+{
+    // the kind of agent stored at a given index.
+    public static final byte TANK  = 0;
+    public static final byte MOUSE = 1;
+
+    // the state arrays hold the ordinal of TankAiState or MouseAiState,
+    // depending on the kind of the agent.
+    public static final byte TANK_CHASING  = (byte) TankAiState.Chasing.ordinal();
+    public static final byte TANK_CAUGHT   = (byte) TankAiState.Caught.ordinal();
+    public static final byte TANK_WANDER   = (byte) TankAiState.Wander.ordinal();
+    public static final byte MOUSE_EVADING = (byte) MouseAiState.Evading.ordinal();
+    public static final byte MOUSE_WANDER  = (byte) MouseAiState.Wander.ordinal();
+
+    // values() clones its array on every call, so we keep our own copy.
+    private static final TankAiState[]  TANK_STATES  = TankAiState.values();
+    private static final MouseAiState[] MOUSE_STATES = MouseAiState.values();
+
+    public final int capacity;
+    public int count;
+
+    public final byte[]  kind;
+    public final byte[]  state;
+    public final float[] positionX;
+    public final float[] positionY;
+    public final float[] orientation;
+    public final float[] speed;
+    public final float[] wanderX;
+    public final float[] wanderY;
+
+    public AgentStore(int capacity)
+    {
+        this.capacity    = capacity;
+        this.count       = 0;
+        this.kind        = new byte[capacity];
+        this.state       = new byte[capacity];
+        this.positionX   = new float[capacity];
+        this.positionY   = new float[capacity];
+        this.orientation = new float[capacity];
+        this.speed       = new float[capacity];
+        this.wanderX     = new float[capacity];
+        this.wanderY     = new float[capacity];
+    }
+
+    /// <summary>
+    /// Adds a wandering tank at the given position and returns its index.
+    /// </summary>
+    public int addTank(float x, float y, float orientation)
+    {
+        return add(TANK, TANK_WANDER, x, y, orientation);
+    }
+
+    /// <summary>
+    /// Adds a wandering mouse at the given position and returns its index.
+    /// </summary>
+    public int addMouse(float x, float y, float orientation)
+    {
+        return add(MOUSE, MOUSE_WANDER, x, y, orientation);
+    }
+
+    private int add(byte kind, byte state, float x, float y, float orientation)
+    {
+        if (count == capacity)
+            throw new IllegalStateException("AgentStore is full (" + capacity + " agents)");
+
+        int i = count++;
+        this.kind[i]        = kind;
+        this.state[i]       = state;
+        this.positionX[i]   = x;
+        this.positionY[i]   = y;
+        this.orientation[i] = orientation;
+        this.speed[i]       = 0.0f;
+        this.wanderX[i]     = 0.0f;
+        this.wanderY[i]     = 0.0f;
+        return i;
+    }
+
+    /// <summary>
+    /// Removes every agent. The arrays are kept, so refilling the store does
+    /// not allocate.
+    /// </summary>
+    public void clear()
+    {
+        count = 0;
+    }
+
+    /// <summary>
+    /// Copies every agent of another store into this one. Both stores must have
+    /// the same capacity; this is used to line up the two buffers of a
+    /// ParallelAgentUpdater after agents were added or removed.
+    /// </summary>
+    public void copyFrom(AgentStore other)
+    {
+        if (other.capacity != capacity)
+            throw new IllegalArgumentException("AgentStore capacities differ: " + other.capacity + " != " + capacity);
+
+        int n = other.count;
+        System.arraycopy(other.kind,        0, kind,        0, n);
+        System.arraycopy(other.state,       0, state,       0, n);
+        System.arraycopy(other.positionX,   0, positionX,   0, n);
+        System.arraycopy(other.positionY,   0, positionY,   0, n);
+        System.arraycopy(other.orientation, 0, orientation, 0, n);
+        System.arraycopy(other.speed,       0, speed,       0, n);
+        System.arraycopy(other.wanderX,     0, wanderX,     0, n);
+        System.arraycopy(other.wanderY,     0, wanderY,     0, n);
+        count = n;
+    }
+
+    public TankAiState getTankState(int i)
+    {
+        return TANK_STATES[state[i]];
+    }
+
+    public MouseAiState getMouseState(int i)
+    {
+        return MOUSE_STATES[state[i]];
+    }
+}
@@ -0,0 +1,133 @@
+package com.guillaumesoft.chaseandevade;
+
+/// <summary>
+/// AiScheduler decides which agents get to think on a given tick, so that the
+/// cost of the AI does not grow with every agent added to the scene.
+///
+/// - The agents are split in BucketCount round-robin buckets (agent i is in
+///   bucket i % BucketCount), and only one bucket thinks per tick.
+/// - Agents far from the cat, more than FarMargin beyond the chase band of the
+///   tanks or the evade band of the mice, think at most once every
+///   FarInterval visits of their bucket; nothing much happens to them until
+///   the cat comes closer.
+/// - Thinking stops once FrameBudgetNanos have been spent on a tick, counting
+///   the work shared by all agents. The next tick resumes where this one
+///   stopped, so no agent is starved.
+///
+/// Every agent still moves every tick, along the heading and at the speed it
+/// picked the last time it thought. Tanks steer around their neighbours right
+/// after thinking; those that did not think keep the velocity they steered to
+/// then, rather than steering the steered velocity again. An agent that last
+/// thought n ticks ago may turn n times as far as on a single tick, so agents
+/// turn as fast as the tuning values say whichever way the swarm is updated,
+/// only in fewer, larger steps.
+///
+/// Neighbours are only found for the agents that get to think.
+/// </summary>
+public class AiScheduler
+{
+    public int BucketCount = 4;
+    public int FarInterval = 2;
+    public long FrameBudgetNanos = 2000000;
+
+    // how far, in pixels, beyond the chase band of the tanks and the evade band
+    // of the mice the agents count as far. this must be more than the cat and
+    // an agent can close in on each other between two thoughts of a far agent,
+    // FarInterval * BucketCount ticks.
+    public float FarMargin = 100.0f;
+
+    // how often the clock is read while thinking; reading it for every agent
+    // would cost more than some of the thinking.
+    static final int BudgetCheckInterval = 32;
+
+    final AgentSimulation simulation;
+
+    // the tick on which each agent last thought, counting from 1.
+    final int[] lastThought;
+
+    int tick;
+    int bucket;
+    int cursor;
+
+    // statistics of the last tick, for tuning.
+    public int thoughtLastTick;
+    public boolean budgetExceededLastTick;
+
+    public AiScheduler(AgentSimulation simulation, int capacity)
+    {
+        this.simulation  = simulation;
+        this.lastThought = new int[capacity];
+        this.bucket      = 0;
+        this.cursor      = 0;
+    }
+
+    /// <summary>
+    /// Runs one tick: carries every agent over from previous to next, lets the
+    /// scheduled agents think, and moves all of them.
+    /// </summary>
+    public void update(AgentStore previous, AgentStore next, float catX, float catY)
+    {
+        long deadline = System.nanoTime() + FrameBudgetNanos;
+
+        int count = previous.count;
+        tick++;
+        next.copyFrom(previous);
+        simulation.prepare(previous, catX, catY, false);
+
+        float tankFar    = simulation.TankChaseDistance + simulation.TankHysteresis + FarMargin;
+        float mouseFar   = simulation.MouseEvadeDistance + simulation.MouseHysteresis + FarMargin;
+        float tankFarSq  = tankFar * tankFar;
+        float mouseFarSq = mouseFar * mouseFar;
+        int farTicks     = FarInterval * BucketCount;
+
+        int thought = 0;
+        int visited = 0;
+        boolean exceeded = false;
+
+        if (cursor >= count)
+            nextBucket();
+
+        int i = cursor;
+        while (i < count)
+        {
+            if (visited > 0 && visited % BudgetCheckInterval == 0 && System.nanoTime() >= deadline)
+            {
+                exceeded = true;
+                break;
+            }
+            visited++;
+
+            float dx = previous.positionX[i] - catX;
+            float dy = previous.positionY[i] - catY;
+            float farSquared = previous.kind[i] == AgentStore.TANK ? tankFarSq : mouseFarSq;
+            boolean far = dx * dx + dy * dy > farSquared;
+
+            if (!far || lastThought[i] == 0 || tick - lastThought[i] >= farTicks)
+            {
+                simulation.findNeighbours(previous, i, catX, catY);
+                simulation.think(previous, next, i, i + 1, catX, catY, tick - lastThought[i]);
+                simulation.avoid(previous, next, i, i + 1);
+                lastThought[i] = tick;
+                thought++;
+            }
+
+            i += BucketCount;
+        }
+
+        if (exceeded)
+            cursor = i;
+        else
+            nextBucket();
+
+        simulation.move(next, 0, count);
+
+        thoughtLastTick = thought;
+        budgetExceededLastTick = exceeded;
+    }
+
+    private void nextBucket()
+    {
+        bucket = (bucket + 1) % BucketCount;
+        cursor = bucket;
+    }
+}
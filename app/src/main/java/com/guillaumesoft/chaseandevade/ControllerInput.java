@@ -0,0 +1,14 @@
+package com.guillaumesoft.chaseandevade;
+
+/// <summary>
+/// The part of a game controller that GameScreen.HandleInput reads. Axis and
+/// button ids are the ones defined by OuyaController. Putting this behind an
+/// interface lets GameScreen be driven by something other than a real OUYA
+/// controller, such as the scripted input of the HeadlessRunner.
+/// </summary>
+public interface ControllerInput
+{
+    public float getAxisValue(int axis);
+
+    public boolean getButton(int button);
+}
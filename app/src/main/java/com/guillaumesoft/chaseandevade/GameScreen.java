@@ -1,15 +1,26 @@
 package com.guillaumesoft.chaseandevade;
 
 import android.graphics.Point;
+import android.util.Log;
 import com.badlogic.androidgames.framework.Game;
+import com.badlogic.androidgames.framework.ai.AgentNeighbours;
+import com.badlogic.androidgames.framework.ai.FlowField;
+import com.badlogic.androidgames.framework.ai.InfluenceMap;
+import com.badlogic.androidgames.framework.ai.LineOfSight;
+import com.badlogic.androidgames.framework.ai.ObstacleGrid;
 import com.badlogic.androidgames.framework.gl.Camera2D;
 import com.badlogic.androidgames.framework.gl.SpriteBatcher;
+import com.badlogic.androidgames.framework.gl.TextureRegion;
 import com.badlogic.androidgames.framework.impl.GLScreen;
 import com.badlogic.androidgames.framework.math.Clamp;
+import com.badlogic.androidgames.framework.math.FastRandom;
+import com.badlogic.androidgames.framework.math.FastTrig;
 import com.badlogic.androidgames.framework.math.Vector2;
 import com.badlogic.androidgames.framework.math.Lerp;
 import com.badlogic.androidgames.framework.XOBJ;
-import java.util.Random;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import javax.microedition.khronos.opengles.GL10;
 import tv.ouya.console.api.OuyaController;
 
@@ -25,41 +36,94 @@ public class GameScreen extends GLScreen
     // in pixels, angles are specified in radians.
 
     // how fast can the cat move?
-    final float MaxCatSpeed = 7.5f;
+    static final float MaxCatSpeed = 7.5f;
 
     // how fast can the tank move?
-    final float MaxTankSpeed = 5.0f;
+    static final float MaxTankSpeed = 5.0f;
 
     // how fast can he turn?
-    final float TankTurnSpeed = 0.10f;
+    static final float TankTurnSpeed = 0.10f;
 
     // this value controls the distance at which the tank will start to chase the
     // cat.
-    final float TankChaseDistance = 250.0f;
+    static final float TankChaseDistance = 250.0f;
 
     // TankCaughtDistance controls the distance at which the tank will stop because
     // he has "caught" the cat.
-    final float TankCaughtDistance = 60.0f;
+    static final float TankCaughtDistance = 60.0f;
 
     // this finalant is used to avoid hysteresis, which is common in ai programming.
     // see the doc for more details.
-    final float TankHysteresis = 15.0f;
+    static final float TankHysteresis = 15.0f;
 
     // how fast can the mouse move?
-    final float MaxMouseSpeed = 8.5f;
+    static final float MaxMouseSpeed = 8.5f;
 
     // and how fast can it turn?
-    final float MouseTurnSpeed = 0.20f;
+    static final float MouseTurnSpeed = 0.20f;
 
     // MouseEvadeDistance controls the distance at which the mouse will flee from
     // cat. If the mouse is further than "MouseEvadeDistance" pixels away, he will
     // consider himself safe.
-    final float MouseEvadeDistance = 200.0f;
+    static final float MouseEvadeDistance = 200.0f;
 
     // this finalant is similar to TankHysteresis. The value is larger than the
     // tank's hysteresis value because the mouse is faster than the tank: with a
     // higher velocity, small fluctuations are much more visible.
-    final float MouseHysteresis = 60.0f;
+    static final float MouseHysteresis = 60.0f;
+
+    // how many extra tanks and mice roam the screen. they are kept in an
+    // AgentStore and updated as one batch by an AgentSimulation.
+    static final int SwarmTankCount = 500;
+    static final int SwarmMouseCount = 500;
+
+    // when set, the swarm is updated through the AiScheduler, which only lets
+    // part of the agents think every tick. otherwise every agent thinks every
+    // tick, on several threads if there are enough of them.
+    boolean UseAiScheduler = true;
+
+    // when set, the tanks of the swarm weigh up chasing, stopping and wandering
+    // with a TankUtility, rather than switching at fixed distances.
+    boolean UseUtilityAi = false;
+
+    // when set, the controller input of the session is recorded, and saved to
+    // RecordingFileName when the game is paused, so that it can be played back
+    // exactly by the HeadlessRunner.
+    static final boolean RecordInput = false;
+    static final String RecordingFileName = "input.rec";
+
+    // when above zero, a snapshot of the world is kept for each of the last
+    // HistoryTicks ticks, so that the game can be rewound while debugging.
+    static final int HistoryTicks = 0;
+
+    // the walls are kept in a grid of square cells this many pixels wide. the
+    // flow field leading the tanks to the cat around them is rebuilt over as
+    // many frames as it takes, FlowFieldBudget cells per frame.
+    static final float ObstacleCellSize = 40.0f;
+    static final int FlowFieldBudget = 2000;
+
+    // wandering tanks only start chasing the cat, or catch it, when they can
+    // see it past the walls. no more than SightBudget rays are cast per frame;
+    // a tank keeps what it saw as long as neither it nor the cat moved to
+    // another cell.
+    static final int SightBudget = 200;
+
+    // the mice fear the cat through a threat map over the cells of the walls:
+    // the cat's threat spreads out, falling off by ThreatDecay per pixel, and
+    // fades from where the cat was, each cell following its neighbours by
+    // ThreatMomentum per frame.
+    static final float ThreatDecay = 0.01f;
+    static final float ThreatMomentum = 0.3f;
+
+    // evading mice flock with the mice within MouseNeighbourRadius pixels of
+    // them, looking at no more than MaxMouseNeighbours of them.
+    static final float MouseNeighbourRadius = 30.0f;
+    static final int MaxMouseNeighbours = 8;
+
+    // tanks steer clear of the MaxTankNeighbours closest tanks within
+    // TankNeighbourRadius pixels of them.
+    static final float TankNeighbourRadius = 80.0f;
+    static final int MaxTankNeighbours = 10;
 
     Vector2 tankTextureCenter;
     Vector2 tankPosition;
@@ -71,8 +135,7 @@ public class GameScreen extends GLScreen
     Vector2 cameraPosition;
     Vector2 mouseWanderDirection;
     Vector2 scrollOffset;
-    OuyaController currentGamePadState;
-    OuyaController previousGamePadState;
+    ControllerInput currentGamePadState;
     TankAiState tankState = TankAiState.Wander;
     MouseAiState mouseState = MouseAiState.Wander;
 
@@ -84,7 +147,35 @@ public class GameScreen extends GLScreen
     float tankOrientation;
     float mouseOrientation;
 
-    Random random = new Random();
+    // the size of the screen, in pixels, and of the swarm.
+    final int screenWidth;
+    final int screenHeight;
+    final int swarmTankCount;
+    final int swarmMouseCount;
+
+    // the swarm is double buffered: agents holds the current tick, and the
+    // updater writes the next one into nextAgents before the two are swapped.
+    AgentStore agents;
+    AgentStore nextAgents;
+    AgentSimulation simulation;
+    ParallelAgentUpdater updater;
+    AiScheduler scheduler;
+    ObstacleGrid obstacles;
+    FlowField chaseField;
+    InfluenceMap threats;
+    AgentNeighbours mouseNeighbours;
+    AgentNeighbours tankNeighbours;
+
+    // the seed of every random number of the session, and the recording of
+    // the session or the one being played back, if any.
+    final long seed;
+    FastRandom random;
+    InputRecorder recorder;
+    InputPlayback playback;
+
+    // the number of ticks run so far, and the snapshots of the last ones.
+    int tick;
+    SnapshotHistory history;
 
     /// <summary>
     /// TankAiState is used to keep track of what the tank is currently doing.
@@ -114,10 +205,38 @@ public class GameScreen extends GLScreen
     /// standard everyday finalructor, nothing too fancy here.
     /// </summary>
     public GameScreen(Game game)
+    {
+        this(game, DisplayWidth(), DisplayHeight(), SwarmTankCount, SwarmMouseCount);
+    }
+
+    /// <summary>
+    /// Creates the screen for a screen of the given size, with a swarm of the
+    /// given size. Unlike the constructor above, this one does not need a
+    /// display, nor loaded Assets, so that the HeadlessRunner can build a
+    /// GameScreen on a HeadlessGame.
+    /// </summary>
+    GameScreen(Game game, int screenWidth, int screenHeight, int swarmTankCount, int swarmMouseCount)
+    {
+        this(game, screenWidth, screenHeight, swarmTankCount, swarmMouseCount, System.nanoTime());
+    }
+
+    /// <summary>
+    /// Same as above, with the seed of every random number of the session, so
+    /// that a recorded session can be played again exactly.
+    /// </summary>
+    GameScreen(Game game, int screenWidth, int screenHeight, int swarmTankCount, int swarmMouseCount, long seed)
     {
         super(game);
 
-        this.batcher = new SpriteBatcher(glGraphics, 1000);
+        this.screenWidth     = screenWidth;
+        this.screenHeight    = screenHeight;
+        this.swarmTankCount  = swarmTankCount;
+        this.swarmMouseCount = swarmMouseCount;
+        this.seed            = seed;
+        this.random          = new FastRandom(seed);
+        this.currentGamePadState = new OuyaControllerInput(0);
+
+        this.batcher = new SpriteBatcher(glGraphics, 1000 + swarmTankCount + swarmMouseCount);
         guiCam       = new Camera2D(glGraphics, 1920, 1080);
 
         // once all the content is loaded, we can calculate the centers of each
@@ -127,54 +246,131 @@ public class GameScreen extends GLScreen
         // center the sprite on the vector that we pass in as the "origin"
         // parameter, so we'll just calculate that to be the middle of
         // the texture.
-        tankTextureCenter  = new Vector2(Assets.tankRegion.texture.width  / 2, Assets.tankRegion.texture.height / 2);
-        catTextureCenter   = new Vector2(Assets.catRegion.texture.width   / 2, Assets.catRegion.texture.height / 2);
-        mouseTextureCenter = new Vector2(Assets.mouseRegion.texture.width / 2, Assets.mouseRegion.texture.height / 2);
-
-        // once base.Initialize has finished, the GraphicsDevice will have been
-        // created, and we'll know how big the Viewport is. We want the tank, cat
-        // and mouse to be spread out across the screen, so we'll use the viewport
-        // to figure out where they should be.
-        Point size = new Point();
-        ScreenManager.display.getSize(size);
+        tankTextureCenter  = TextureCenter(Assets.tankRegion);
+        catTextureCenter   = TextureCenter(Assets.catRegion);
+        mouseTextureCenter = TextureCenter(Assets.mouseRegion);
+
+        // We want the tank, cat and mouse to be spread out across the screen, so
+        // we'll use the screen size to figure out where they should be.
+        tankPosition  = new Vector2(screenWidth / 4, screenHeight / 2);
+        catPosition   = new Vector2(screenWidth / 2, screenHeight / 2);
+        mousePosition = new Vector2(3 * screenWidth / 4, screenHeight / 2);
+
+        // the swarm is spread randomly across the whole screen.
+        agents     = new AgentStore(swarmTankCount + swarmMouseCount);
+        nextAgents = new AgentStore(swarmTankCount + swarmMouseCount);
+        simulation = CreateSimulation(agents.capacity, UseUtilityAi);
+        simulation.setSeed(seed);
+
+        updater    = new ParallelAgentUpdater(simulation);
+        scheduler  = new AiScheduler(simulation, agents.capacity);
+
+        obstacles       = simulation.obstacles;
+        chaseField      = simulation.chaseField;
+        threats         = simulation.threats;
+        mouseNeighbours = simulation.neighbours;
+        tankNeighbours  = simulation.tankNeighbours;
+
+        for (int i = 0; i < swarmTankCount; i++)
+        {
+            agents.addTank(random.nextFloat() * 1920, random.nextFloat() * 1080, random.nextFloat() * (float) Math.PI * 2);
+        }
+        for (int i = 0; i < swarmMouseCount; i++)
+        {
+            agents.addMouse(random.nextFloat() * 1920, random.nextFloat() * 1080, random.nextFloat() * (float) Math.PI * 2);
+        }
+        nextAgents.copyFrom(agents);
 
-        tankPosition  = new Vector2(size.x / 4, size.y / 2);
-        catPosition   = new Vector2(size.x / 2, size.y / 2);
-        mousePosition = new Vector2(3 * size.x / 4, size.y / 2);
+        if (HistoryTicks > 0)
+            history = new SnapshotHistory(HistoryTicks, agents.capacity);
 
+        if (RecordInput)
+            startRecording();
     }
 
     /// <summary>
-    /// Updates the camera position, scrolling the
-    /// screen if the cat gets too close to the edge.
+    /// Builds the simulation of a swarm of up to capacity agents, with the
+    /// tuning values at the top of this screen, and the walls, line of sight,
+    /// threat map and neighbours it plays with. The ParameterSweep builds its
+    /// matches here too, so that it sweeps the game as it is played.
     /// </summary>
-    void UpdateCamera()
+    static AgentSimulation CreateSimulation(int capacity, boolean useUtilityAi)
     {
-        Point size = new Point();
-        ScreenManager.display.getSize(size);
+        AgentSimulation simulation = new AgentSimulation(1920, 1080);
+
+        // the swarm moves with the tuning values at the top of this screen.
+        simulation.MaxTankSpeed       = MaxTankSpeed;
+        simulation.TankTurnSpeed      = TankTurnSpeed;
+        simulation.TankChaseDistance  = TankChaseDistance;
+        simulation.TankCaughtDistance = TankCaughtDistance;
+        simulation.TankHysteresis     = TankHysteresis;
+        simulation.MaxMouseSpeed      = MaxMouseSpeed;
+        simulation.MouseTurnSpeed     = MouseTurnSpeed;
+        simulation.MouseEvadeDistance = MouseEvadeDistance;
+        simulation.MouseHysteresis    = MouseHysteresis;
+
+        ObstacleGrid obstacles = new ObstacleGrid(1920, 1080, ObstacleCellSize);
+        simulation.obstacles  = obstacles;
+        simulation.chaseField = new FlowField(obstacles);
+
+        simulation.sight       = new LineOfSight(obstacles, capacity);
+        simulation.sightBudget = SightBudget;
+
+        if (useUtilityAi)
+            simulation.tankUtility = new TankUtility(simulation, capacity, MaxCatSpeed);
+
+        InfluenceMap threats = new InfluenceMap(1920, 1080, ObstacleCellSize);
+        threats.setSpread(ThreatDecay, ThreatMomentum);
+        threats.setObstacles(obstacles);
+        simulation.threats = threats;
+
+        simulation.neighbours     = new AgentNeighbours(1920, 1080, MouseNeighbourRadius, capacity, MaxMouseNeighbours);
+        simulation.tankNeighbours = new AgentNeighbours(1920, 1080, TankNeighbourRadius, capacity, MaxTankNeighbours);
+        return simulation;
+    }
 
-        // How far away from the camera should we allow the cat
-        // to move before we scroll the camera to follow it?
-        Vector2 maxScroll = new Vector2(size.x /2, size.y /2);
+    /// <summary>
+    /// Moves what the swarm of a simulation built by CreateSimulation reacts
+    /// to along with the cat, before the swarm is updated for the tick.
+    /// </summary>
+    static void UpdateSurroundings(AgentSimulation simulation, float catX, float catY, float catVelocityX, float catVelocityY)
+    {
+        // keep the tanks' way around the walls pointed at the cat.
+        simulation.chaseField.setTarget(catX, catY);
+        simulation.chaseField.update(FlowFieldBudget);
 
-        // Apply a safe area to prevent the cat getting too close to the edge
-        // of the screen. Note that this is even more restrictive than the 80%
-        // safe area used for the overlays, because we want to start scrolling
-        // even before the cat gets right up to the edge of the legal area.
-        final float catSafeArea = 0.7f;
+        // and the threat the mice run from following it.
+        simulation.threats.update();
+        simulation.threats.addSource(catX, catY, 1.0f);
 
-        maxScroll.mul(catSafeArea);
+        // the mice run from where the cat is heading.
+        simulation.setCatVelocity(catVelocityX, catVelocityY);
+    }
 
-        // Adjust for the size of the cat sprite, so we will start
-        // scrolling based on the edge rather than center of the cat.
-        maxScroll.sub(new Vector2(Assets.catRegion.texture.width /2, Assets.catRegion.texture.height /2));
+    private static int DisplayWidth()
+    {
+        Point size = new Point();
+        ScreenManager.display.getSize(size);
+        return size.x;
+    }
+
+    private static int DisplayHeight()
+    {
+        Point size = new Point();
+        ScreenManager.display.getSize(size);
+        return size.y;
+    }
 
-        // Make sure the camera stays within the desired distance of the cat.
-        Vector2 min = catPosition.sub(maxScroll);
-        Vector2 max = catPosition.sub(maxScroll);
+    /// <summary>
+    /// Returns the center of the texture of a region, or the origin when the
+    /// Assets were not loaded, as is the case when running headless.
+    /// </summary>
+    private static Vector2 TextureCenter(TextureRegion region)
+    {
+        if (region == null)
+            return new Vector2();
 
-        //cameraPosition.x =  Clamp.clamp(cameraPosition.x, min.x, max.x);
-       // cameraPosition.y =  Clamp.clamp(cameraPosition.y, min.y, max.y);
+        return new Vector2(region.texture.width / 2, region.texture.height / 2);
     }
 
     /// <summary>
@@ -183,13 +379,20 @@ public class GameScreen extends GLScreen
     @Override
     public void update(float gameTime)
     {
-        // Work out how far to scroll based on the current camera position.
-        Vector2 screenCenter = new Vector2(1920 /2, 1080  / 2);
-       // scrollOffset.add(screenCenter.sub(cameraPosition));
-
         // handle input will read the controller input, and update the cat
         // to move according to the user's whim.
-        currentGamePadState = OuyaController.getControllerByPlayer(0);
+        if (history != null)
+            history.save(this);
+        tick++;
+
+        float lastCatX = catPosition.x;
+        float lastCatY = catPosition.y;
+
+        if (recorder != null)
+            recorder.nextTick();
+        if (playback != null)
+            playback.nextTick();
+
         HandleInput(currentGamePadState);
 
         // UpdateTank will run the AI code that controls the tank's movement...
@@ -201,11 +404,22 @@ public class GameScreen extends GLScreen
         // Once we've finished that, we'll use the ClampToViewport helper function
         // to clamp everyone's position so that they stay on the screen.
         // tankPosition  = ClampToViewport(tankPosition);
-        //catPosition   = ClampToViewport(catPosition);
+        catPosition   = ClampToViewport(catPosition);
         // mousePosition = ClampToViewport(mousePosition);
 
-        UpdateCamera();
+        UpdateSurroundings(simulation, catPosition.x, catPosition.y, catPosition.x - lastCatX, catPosition.y - lastCatY);
 
+        // the swarm runs the same chase, evade and wander logic, either spread
+        // over several ticks by the scheduler, or all at once, spread over
+        // several threads when it is big enough.
+        if (UseAiScheduler)
+            scheduler.update(agents, nextAgents, catPosition.x, catPosition.y);
+        else
+            updater.update(agents, nextAgents, catPosition.x, catPosition.y);
+
+        AgentStore swap = agents;
+        agents     = nextAgents;
+        nextAgents = swap;
     }
 
     /// <summary>
@@ -218,11 +432,8 @@ public class GameScreen extends GLScreen
 /// viewport.</returns>
     private Vector2 ClampToViewport(Vector2 vector)
     {
-        Point size = new Point();
-        ScreenManager.display.getSize(size);
-
-        vector.x = Clamp.clamp(vector.x, size.x, size.x);// + vp.Width);
-        vector.y = Clamp.clamp(vector.y, size.y, size.y);// + vp.Height);
+        vector.x = Clamp.clamp(vector.x, 0, screenWidth);
+        vector.y = Clamp.clamp(vector.y, 0, screenHeight);
         return vector;
     }
 
@@ -311,7 +522,9 @@ public class GameScreen extends GLScreen
         // angle. To do this, we'll use Cosine and Sine to tell us the x and y
         // components of the heading vector. See the accompanying doc for more
         // information.
-        Vector2 heading = new Vector2((float)Math.cos(mouseOrientation), (float)Math.sin(mouseOrientation));
+        Vector2 heading = FastTrig.enabled
+                ? new Vector2(FastTrig.cos(mouseOrientation), FastTrig.sin(mouseOrientation))
+                : new Vector2((float)Math.cos(mouseOrientation), (float)Math.sin(mouseOrientation));
 
         // by multiplying the heading and speed, we can get a velocity vector. the
         // velocity vector is then added to the mouse's current position, moving him
@@ -414,7 +627,9 @@ public class GameScreen extends GLScreen
         // this calculation is also just like the mouse's: we finalruct a heading
         // vector based on the tank's orientation, and then make the tank move along
         // that heading.
-        Vector2 heading = new Vector2((float)Math.cos(tankOrientation), (float)Math.sin(tankOrientation));
+        Vector2 heading = FastTrig.enabled
+                ? new Vector2(FastTrig.cos(tankOrientation), FastTrig.sin(tankOrientation))
+                : new Vector2((float)Math.cos(tankOrientation), (float)Math.sin(tankOrientation));
         tankPosition.add(heading.mul(currentTankSpeed));
     }
 
@@ -495,6 +710,15 @@ public class GameScreen extends GLScreen
     /// target's position, its current angle, and its maximum turning speed.
     /// </summary>
     private static float TurnToFace(Vector2 position, Vector2 faceThis, float currentAngle, float turnSpeed)
+    {
+        return TurnToFace(position.x, position.y, faceThis.x, faceThis.y, currentAngle, turnSpeed);
+    }
+
+    /// <summary>
+    /// Same as TurnToFace above, taking the coordinates of both points instead of
+    /// vectors, so that AgentSimulation can call it straight from its arrays.
+    /// </summary>
+    static float TurnToFace(float positionX, float positionY, float faceThisX, float faceThisY, float currentAngle, float turnSpeed)
     {
         // consider this diagram:
         //         B
@@ -515,14 +739,16 @@ public class GameScreen extends GLScreen
         //      o                = arctan( y / x )
         // so, we can use x and y to find o, our "desiredAngle."
         // x and y are just the differences in position between the two objects.
-        float x = faceThis.x - position.x;
-        float y = faceThis.y - position.y;
+        float x = faceThisX - positionX;
+        float y = faceThisY - positionY;
 
         // we'll use the Atan2 function. Atan will calculates the arc tangent of
         // y / x for us, and has the added benefit that it will use the signs of x
         // and y to determine what cartesian quadrant to put the result in.
         // http://msdn2.microsoft.com/en-us/library/system.math.atan2.aspx
-        float desiredAngle = (float)Math.atan2(y, x);
+        // FastTrig looks the angle up in a table instead, which is a lot cheaper
+        // when thousands of agents do this every frame.
+        float desiredAngle = FastTrig.enabled ? FastTrig.atan2(y, x) : (float)Math.atan2(y, x);
 
         // so now we know where we WANT to be facing, and where we ARE facing...
         // if we weren't finalrained by turnSpeed, this would be easy: we'd just
@@ -549,6 +775,11 @@ public class GameScreen extends GLScreen
     /// </summary>
     private static float WrapAngle(float radians)
     {
+        if (FastTrig.enabled)
+        {
+            return FastTrig.wrapAngle(radians);
+        }
+
         while (radians < -Math.PI)
         {
             radians += Math.PI * 2;
@@ -568,6 +799,18 @@ public class GameScreen extends GLScreen
     /// </summary>
     @Override
     public void present(float deltaTime)
+    {
+        present(deltaTime, 1.0f);
+    }
+
+    /// <summary>
+    /// GLGame updates the game at a fixed rate, and tells us through alpha how
+    /// far this frame lies between the previous update and the latest one. The
+    /// swarm is drawn in between the two, so that it moves smoothly whatever the
+    /// display rate is.
+    /// </summary>
+    @Override
+    public void present(float deltaTime, float alpha)
     {
 
         // Work out how far to scroll based on the current camera position.
@@ -593,6 +836,23 @@ public class GameScreen extends GLScreen
 
 
            batcher.drawSprite(mousePosition.x, mousePosition.y, 100.0f, 100.0f, Assets.mouseRegion);
+
+           // then the whole swarm, rotated to face the way each agent is heading.
+           // after the swap in update, nextAgents still holds the previous tick.
+           for (int i = 0; i < agents.count; i++)
+           {
+               TextureRegion region = agents.kind[i] == AgentStore.TANK ? Assets.tankRegion : Assets.mouseRegion;
+
+               float previousX = nextAgents.positionX[i];
+               float previousY = nextAgents.positionY[i];
+               float previousOrientation = nextAgents.orientation[i];
+
+               float x = previousX + (agents.positionX[i] - previousX) * alpha;
+               float y = previousY + (agents.positionY[i] - previousY) * alpha;
+               float orientation = previousOrientation + WrapAngle(agents.orientation[i] - previousOrientation) * alpha;
+
+               batcher.drawSprite(x, y, 50.0f, 50.0f, orientation * Vector2.TO_DEGREES, region);
+           }
            //this.batcher.drawSprite(mouseTexture, mousePosition, null, Color.White, mouseOrientation, mouseTextureCenter, 1.0f, SpriteEffects.None, 0.0f);
 
            // and then draw some text showing the tank's and mouse's current state.
@@ -640,7 +900,7 @@ public class GameScreen extends GLScreen
     /// <summary>
     /// Handles input for quitting the game.
     /// </summary>
-    void HandleInput(OuyaController gamePadState)
+    void HandleInput(ControllerInput gamePadState)
     {
 
         float axisX = gamePadState.getAxisValue(OuyaController.AXIS_LS_X);
@@ -655,7 +915,7 @@ public class GameScreen extends GLScreen
         // called catMovement, which will store the sum of all the user's inputs.
         Vector2 catMovement = new Vector2(axisX, axisY);
 
-        // flip y: on the thumbsticks, down is -1, but on the screen, down is bigger
+        // flip y: on the thumbsticks, up is -1, but on the screen, up is bigger
         // numbers.
         catMovement.y *= -1;
 
@@ -664,12 +924,12 @@ public class GameScreen extends GLScreen
             catMovement.x -= 1.0f;
         }
 
-        if (gamePadState.getButton(OuyaController.BUTTON_DPAD_LEFT))
+        if (gamePadState.getButton(OuyaController.BUTTON_DPAD_RIGHT))
         {
             catMovement.x += 1.0f;
         }
 
-        if (gamePadState.getButton(OuyaController.BUTTON_DPAD_UP))
+        if (gamePadState.getButton(OuyaController.BUTTON_DPAD_DOWN))
         {
             catMovement.y -= 1.0f;
         }
@@ -693,26 +953,90 @@ public class GameScreen extends GLScreen
 */
         // normalize the user's input, so the cat can never be going faster than
         // CatSpeed.
-        if (catMovement != Vector2.Zero())
+        if (catMovement.len() > 1.0f)
         {
-            //catMovement.Normalize();
+            catMovement.nor();
         }
 
         // catPosition += catMovement * MaxCatSpeed * smoothStop;
 
-        //catPosition.add(catMovement).mul(MaxCatSpeed);
+        catPosition.add(catMovement.mul(MaxCatSpeed));
 
     }
 
 
     @Override
-    public void pause() {   }
+    public void pause()
+    {
+        if (recorder == null)
+            return;
+
+        try
+        {
+            saveRecording();
+        }
+        catch (IOException e)
+        {
+            Log.e("ChaseAndEvade", "could not save the recording to " + RecordingFileName, e);
+        }
+    }
 
     @Override
     public void resume() {  }
 
     @Override
-    public void dispose()  {  }
+    public void dispose()
+    {
+        updater.dispose();
+    }
+
+    /// <summary>
+    /// Starts recording the controller input, from the next tick on. Only a
+    /// recording started before the first tick can be played back exactly.
+    ///
+    /// Like playback, recording lifts the scheduler's time budget: otherwise
+    /// the agents that think on a tick would depend on how fast the device
+    /// was, and the recording would not play back the same.
+    /// </summary>
+    void startRecording()
+    {
+        InputRecording recording = new InputRecording(seed, screenWidth, screenHeight, swarmTankCount, swarmMouseCount);
+        recorder = new InputRecorder(currentGamePadState, recording);
+        currentGamePadState = recorder;
+        scheduler.FrameBudgetNanos = Long.MAX_VALUE / 2;
+    }
+
+    /// <summary>
+    /// Plays the given recording back instead of reading the controller. The
+    /// screen must have been created with the seed, screen and swarm sizes of
+    /// the recording, and not have been updated yet.
+    ///
+    /// The scheduler's time budget is lifted while playing back: which agents
+    /// think on a tick must not depend on how fast the machine is.
+    /// </summary>
+    void startPlayback(InputRecording recording)
+    {
+        playback = new InputPlayback(recording);
+        currentGamePadState = playback;
+        scheduler.FrameBudgetNanos = Long.MAX_VALUE / 2;
+    }
+
+    /// <summary>
+    /// Writes the recording so far to RecordingFileName. Throws if it could not
+    /// be written, in which case the file may hold only part of it.
+    /// </summary>
+    void saveRecording() throws IOException
+    {
+        OutputStream out = new BufferedOutputStream(game.getFileIO().writeFile(RecordingFileName));
+        try
+        {
+            recorder.getRecording().write(out);
+        }
+        finally
+        {
+            out.close();
+        }
+    }
 }
 
 
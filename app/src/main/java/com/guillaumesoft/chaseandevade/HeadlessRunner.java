@@ -0,0 +1,230 @@
+package com.guillaumesoft.chaseandevade;
+
+import com.badlogic.androidgames.framework.ai.HysteresisStateMachine;
+import com.badlogic.androidgames.framework.impl.HeadlessGame;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/// <summary>
+/// HeadlessRunner measures how fast GameScreen simulates, without a device. It
+/// builds a GameScreen on a HeadlessGame, feeds it a ScriptedControllerInput and
+/// calls update as fast as it can for a number of ticks, timing every tick. It
+/// then prints the ticks per second and the per-tick latency percentiles, and a
+/// checksum of the final state of the swarm.
+///
+/// With --record, the scripted input is saved as an InputRecording. With --play,
+/// a recording, saved here or by the game, is played back instead of the script,
+/// for as many ticks as it holds; the swarm size comes from the recording. Two
+/// runs of the same recording play out exactly the same, so their checksums
+/// match and their timings can be compared.
+///
+/// It runs on a plain JVM, with the android.jar of the SDK and the OUYA SDK on
+/// the classpath to resolve the framework classes GameScreen refers to:
+///
+///   java -cp classes:android.jar:ouya-sdk.jar \
+///       com.guillaumesoft.chaseandevade.HeadlessRunner [ticks] [agents] [warmup]
+///       [--record file | --play file]
+/// </summary>
+public class HeadlessRunner
+{
+    public static final float TickTime = 1.0f / 60.0f;
+
+    // the seed of the scripted sessions, so that they are repeatable too.
+    static final long ScriptSeed = 42;
+
+    public static void main(String[] args) throws IOException
+    {
+        String recordFile = null;
+        String playFile   = null;
+        int[] numbers     = { 10000, GameScreen.SwarmTankCount + GameScreen.SwarmMouseCount, 1000 };
+        int numberCount   = 0;
+
+        for (int i = 0; i < args.length; i++)
+        {
+            if (args[i].equals("--record") && i + 1 < args.length)
+                recordFile = args[++i];
+            else if (args[i].equals("--play") && i + 1 < args.length)
+                playFile = args[++i];
+            else if (numberCount < numbers.length)
+                numbers[numberCount++] = Integer.parseInt(args[i]);
+        }
+
+        int ticks  = numbers[0];
+        int agents = numbers[1];
+        int warmup = numbers[2];
+
+        InputRecording recording = null;
+        if (playFile != null)
+        {
+            recording = load(playFile);
+            // the first tick of the recording is played when the screen is set.
+            ticks  = recording.getTickCount() - 1;
+            agents = recording.tankCount + recording.mouseCount;
+        }
+
+        // let the JIT compile the update before we start timing it, on a
+        // screen of its own so that the timed session starts from scratch.
+        GameScreen screen = createScreen(agents, recording, false);
+        for (int i = 0; i < warmup; i++)
+            tick(screen);
+        screen.dispose();
+
+        screen = createScreen(agents, recording, recordFile != null);
+
+        long[] tickTimes = new long[ticks];
+        long start = System.nanoTime();
+
+        for (int i = 0; i < ticks; i++)
+        {
+            long tickStart = System.nanoTime();
+            tick(screen);
+            tickTimes[i] = System.nanoTime() - tickStart;
+        }
+
+        long elapsed = System.nanoTime() - start;
+        screen.dispose();
+
+        if (recordFile != null)
+            save(screen.recorder.getRecording(), recordFile);
+
+        Arrays.sort(tickTimes);
+
+        System.out.println("agents:       " + agents);
+        System.out.println("ticks:        " + ticks);
+        System.out.println("ticks/second: " + String.format("%.1f", ticks / (elapsed / 1000000000.0)));
+        System.out.println("p50:          " + micros(percentile(tickTimes, 0.50)));
+        System.out.println("p90:          " + micros(percentile(tickTimes, 0.90)));
+        System.out.println("p99:          " + micros(percentile(tickTimes, 0.99)));
+        System.out.println("p99.9:        " + micros(percentile(tickTimes, 0.999)));
+        System.out.println("max:          " + micros(tickTimes[ticks - 1]));
+        System.out.println("checksum:     " + Long.toHexString(checksum(screen)));
+        System.out.println("tank states:  " + states(screen.simulation.tankStates));
+        System.out.println("mouse states: " + states(screen.simulation.mouseStates));
+    }
+
+    /// <summary>
+    /// Describes how much of the time the agents spent in each state of the
+    /// machine, and how often they changed state.
+    /// </summary>
+    static String states(HysteresisStateMachine states)
+    {
+        int stateCount = states.getStateCount();
+        long total   = 0;
+        long changes = 0;
+        for (int from = 0; from < stateCount; from++)
+        {
+            total += states.getOccupancy(from);
+            for (int to = 0; to < stateCount; to++)
+                if (from != to)
+                    changes += states.getTransitions(from, to);
+        }
+
+        StringBuilder description = new StringBuilder();
+        for (int state = 0; state < stateCount; state++)
+            description.append(String.format("%s %.1f%%, ", states.getName(state), 100.0 * states.getOccupancy(state) / Math.max(total, 1)));
+        return description.append(changes).append(" changes").toString();
+    }
+
+    /// <summary>
+    /// Builds a screen on a HeadlessGame, playing the given recording back, or
+    /// the script if there is none, and recording the script if asked to.
+    /// Setting the screen of a game runs its first update, so the input is set
+    /// up before.
+    /// </summary>
+    static GameScreen createScreen(int agents, InputRecording recording, boolean record)
+    {
+        GameScreen screen;
+        if (recording != null)
+        {
+            HeadlessGame game = new HeadlessGame(recording.screenWidth, recording.screenHeight, ".");
+            screen = new GameScreen(game, recording.screenWidth, recording.screenHeight,
+                                    recording.tankCount, recording.mouseCount, recording.seed);
+            screen.startPlayback(recording);
+            game.setScreen(screen);
+        }
+        else
+        {
+            HeadlessGame game = new HeadlessGame(1920, 1080, ".");
+            screen = new GameScreen(game, 1920, 1080, agents / 2, agents - agents / 2, ScriptSeed);
+            screen.currentGamePadState = new ScriptedControllerInput(600);
+
+            if (record)
+                screen.startRecording();
+            game.setScreen(screen);
+        }
+        return screen;
+    }
+
+    static void tick(GameScreen screen)
+    {
+        screen.update(TickTime);
+
+        ControllerInput input = screen.recorder != null ? screen.recorder.source : screen.currentGamePadState;
+        if (input instanceof ScriptedControllerInput)
+            ((ScriptedControllerInput) input).advance();
+    }
+
+    /// <summary>
+    /// Hashes the position of the cat and of every agent.
+    /// </summary>
+    static long checksum(GameScreen screen)
+    {
+        long hash = Float.floatToIntBits(screen.catPosition.x) * 31L + Float.floatToIntBits(screen.catPosition.y);
+        AgentStore agents = screen.agents;
+        for (int i = 0; i < agents.count; i++)
+        {
+            hash = hash * 31 + Float.floatToIntBits(agents.positionX[i]);
+            hash = hash * 31 + Float.floatToIntBits(agents.positionY[i]);
+            hash = hash * 31 + Float.floatToIntBits(agents.orientation[i]);
+        }
+        return hash;
+    }
+
+    static InputRecording load(String fileName) throws IOException
+    {
+        InputStream in = new BufferedInputStream(new FileInputStream(fileName));
+        try
+        {
+            return InputRecording.read(in);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    static void save(InputRecording recording, String fileName) throws IOException
+    {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(fileName));
+        try
+        {
+            recording.write(out);
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /// <summary>
+    /// Returns the given percentile of an array of sorted values, using the
+    /// nearest rank.
+    /// </summary>
+    static long percentile(long[] sorted, double percentile)
+    {
+        int rank = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(rank, sorted.length - 1))];
+    }
+
+    static String micros(long nanos)
+    {
+        return String.format("%.1f us", nanos / 1000.0);
+    }
+}
@@ -0,0 +1,99 @@
+package com.guillaumesoft.chaseandevade;
+
+/// <summary>
+/// ControllerInput that plays an InputRecording back, one tick per call to
+/// nextTick. Once the recording is over, the stick is centered and no button is
+/// held.
+/// </summary>
+public class InputPlayback implements ControllerInput
+{
+    final InputRecording recording;
+
+    int tick;
+    int cursor;
+
+    // ticks left before the next change, or -1 if there is none.
+    int unchangedTicks;
+
+    int axisX;
+    int axisY;
+    int buttons;
+
+    public InputPlayback(InputRecording recording)
+    {
+        this.recording      = recording;
+        this.unchangedTicks = nextUnchangedTicks();
+    }
+
+    public InputRecording getRecording()
+    {
+        return recording;
+    }
+
+    public boolean isFinished()
+    {
+        return tick >= recording.tickCount;
+    }
+
+    public void nextTick()
+    {
+        if (isFinished())
+        {
+            axisX = axisY = buttons = 0;
+            return;
+        }
+        tick++;
+
+        if (unchangedTicks > 0)
+        {
+            unchangedTicks--;
+            return;
+        }
+        if (unchangedTicks < 0)
+            return;
+
+        byte[] data = recording.data;
+        int changed = data[cursor++];
+        if ((changed & InputRecording.ChangedX) != 0)
+            axisX += InputRecording.unzigzag(readVarint());
+        if ((changed & InputRecording.ChangedY) != 0)
+            axisY += InputRecording.unzigzag(readVarint());
+        if ((changed & InputRecording.ChangedButtons) != 0)
+            buttons = data[cursor++] & 0xFF;
+
+        unchangedTicks = nextUnchangedTicks();
+    }
+
+    @Override
+    public float getAxisValue(int axis)
+    {
+        return InputRecording.getAxisValue(axis, axisX, axisY);
+    }
+
+    @Override
+    public boolean getButton(int button)
+    {
+        return InputRecording.getButton(button, buttons);
+    }
+
+    private int nextUnchangedTicks()
+    {
+        return cursor < recording.length ? readVarint() : -1;
+    }
+
+    private int readVarint()
+    {
+        byte[] data = recording.data;
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do
+        {
+            b = data[cursor++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        }
+        while (b < 0);
+        return value;
+    }
+}
@@ -0,0 +1,57 @@
+package com.guillaumesoft.chaseandevade;
+
+import tv.ouya.console.api.OuyaController;
+
+/// <summary>
+/// ControllerInput that passes another ControllerInput through, and records
+/// what it read into an InputRecording. Call nextTick once per update, before
+/// HandleInput reads it; the controller is read then, and HandleInput sees the
+/// same values, rounded the way they are recorded, however often it asks.
+/// </summary>
+public class InputRecorder implements ControllerInput
+{
+    final ControllerInput source;
+    final InputRecording recording;
+
+    int axisX;
+    int axisY;
+    int buttons;
+
+    public InputRecorder(ControllerInput source, InputRecording recording)
+    {
+        this.source    = source;
+        this.recording = recording;
+    }
+
+    public InputRecording getRecording()
+    {
+        return recording;
+    }
+
+    public void nextTick()
+    {
+        axisX = InputRecording.quantize(source.getAxisValue(OuyaController.AXIS_LS_X));
+        axisY = InputRecording.quantize(source.getAxisValue(OuyaController.AXIS_LS_Y));
+
+        buttons = 0;
+        for (int i = 0; i < InputRecording.Buttons.length; i++)
+        {
+            if (source.getButton(InputRecording.Buttons[i]))
+                buttons |= 1 << i;
+        }
+
+        recording.append(axisX, axisY, buttons);
+    }
+
+    @Override
+    public float getAxisValue(int axis)
+    {
+        return InputRecording.getAxisValue(axis, axisX, axisY);
+    }
+
+    @Override
+    public boolean getButton(int button)
+    {
+        return InputRecording.getButton(button, buttons);
+    }
+}
@@ -0,0 +1,226 @@
+package com.guillaumesoft.chaseandevade;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import tv.ouya.console.api.OuyaController;
+
+/// <summary>
+/// InputRecording holds the controller input GameScreen.HandleInput read on
+/// every tick of a session, together with everything else needed to play the
+/// session again exactly: the seed of its random numbers and the size of its
+/// screen and swarm. See InputRecorder and InputPlayback.
+///
+/// The left stick axes are stored as 16 bit integers, and HandleInput sees the
+/// same rounded values when recording as when playing back. Ticks are encoded
+/// as changes from the tick before:
+///
+///   varint  number of ticks unchanged since the last change
+///   byte    which of x, y and the buttons changed (bits 0, 1 and 2)
+///   varint  zigzag encoded change of x, if it changed
+///   varint  zigzag encoded change of y, if it changed
+///   byte    the buttons held, one bit each, if they changed
+///
+/// so a cat standing still costs nothing, and a cat moving costs two to five
+/// bytes a tick.
+/// </summary>
+public class InputRecording
+{
+    static final int Magic = 0x43454952;
+    static final int Version = 1;
+
+    // the buttons HandleInput reads, in the order of the bits of a button mask.
+    static final int[] Buttons =
+    {
+        OuyaController.BUTTON_DPAD_LEFT,
+        OuyaController.BUTTON_DPAD_RIGHT,
+        OuyaController.BUTTON_DPAD_DOWN,
+        OuyaController.BUTTON_DPAD_UP
+    };
+
+    static final float AxisScale = 32767.0f;
+
+    static final int ChangedX = 1;
+    static final int ChangedY = 2;
+    static final int ChangedButtons = 4;
+
+    public final long seed;
+    public final int screenWidth;
+    public final int screenHeight;
+    public final int tankCount;
+    public final int mouseCount;
+
+    int tickCount;
+    byte[] data;
+    int length;
+
+    // the last tick written, and how many ticks it has been unchanged for.
+    int lastX;
+    int lastY;
+    int lastButtons;
+    int unchangedTicks;
+
+    public InputRecording(long seed, int screenWidth, int screenHeight, int tankCount, int mouseCount)
+    {
+        this.seed         = seed;
+        this.screenWidth  = screenWidth;
+        this.screenHeight = screenHeight;
+        this.tankCount    = tankCount;
+        this.mouseCount   = mouseCount;
+        this.data         = new byte[1024];
+    }
+
+    public int getTickCount()
+    {
+        return tickCount;
+    }
+
+    /// <summary>
+    /// The number of bytes the ticks take, without the header.
+    /// </summary>
+    public int getLength()
+    {
+        return length;
+    }
+
+    /// <summary>
+    /// Adds a tick with the given stick position and buttons.
+    /// </summary>
+    void append(int x, int y, int buttons)
+    {
+        tickCount++;
+
+        if (x == lastX && y == lastY && buttons == lastButtons)
+        {
+            unchangedTicks++;
+            return;
+        }
+
+        int changed = 0;
+        if (x != lastX)
+            changed |= ChangedX;
+        if (y != lastY)
+            changed |= ChangedY;
+        if (buttons != lastButtons)
+            changed |= ChangedButtons;
+
+        writeVarint(unchangedTicks);
+        writeByte(changed);
+        if ((changed & ChangedX) != 0)
+            writeVarint(zigzag(x - lastX));
+        if ((changed & ChangedY) != 0)
+            writeVarint(zigzag(y - lastY));
+        if ((changed & ChangedButtons) != 0)
+            writeByte(buttons);
+
+        lastX          = x;
+        lastY          = y;
+        lastButtons    = buttons;
+        unchangedTicks = 0;
+    }
+
+    public void write(OutputStream stream) throws IOException
+    {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(Magic);
+        out.writeByte(Version);
+        out.writeLong(seed);
+        out.writeInt(screenWidth);
+        out.writeInt(screenHeight);
+        out.writeInt(tankCount);
+        out.writeInt(mouseCount);
+        out.writeInt(tickCount);
+        out.writeInt(length);
+        out.write(data, 0, length);
+        out.flush();
+    }
+
+    public static InputRecording read(InputStream stream) throws IOException
+    {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != Magic)
+            throw new IOException("Not an input recording");
+        int version = in.readUnsignedByte();
+        if (version != Version)
+            throw new IOException("Unsupported input recording version " + version);
+
+        InputRecording recording = new InputRecording(in.readLong(), in.readInt(), in.readInt(), in.readInt(), in.readInt());
+        recording.tickCount = in.readInt();
+        recording.length    = in.readInt();
+        if (recording.tickCount < 0 || recording.length < 0)
+            throw new IOException("Corrupt input recording");
+
+        recording.data = new byte[recording.length];
+        in.readFully(recording.data);
+        return recording;
+    }
+
+    /// <summary>
+    /// Rounds a stick axis to the value stored for it.
+    /// </summary>
+    static int quantize(float axis)
+    {
+        return Math.round(Math.max(-1.0f, Math.min(axis, 1.0f)) * AxisScale);
+    }
+
+    /// <summary>
+    /// Returns what ControllerInput.getAxisValue returns for the given stick
+    /// position.
+    /// </summary>
+    static float getAxisValue(int axis, int x, int y)
+    {
+        if (axis == OuyaController.AXIS_LS_X)
+            return x / AxisScale;
+        else if (axis == OuyaController.AXIS_LS_Y)
+            return y / AxisScale;
+        else
+            return 0.0f;
+    }
+
+    /// <summary>
+    /// Returns what ControllerInput.getButton returns for the given buttons.
+    /// </summary>
+    static boolean getButton(int button, int buttons)
+    {
+        for (int i = 0; i < Buttons.length; i++)
+        {
+            if (Buttons[i] == button)
+                return (buttons & (1 << i)) != 0;
+        }
+        return false;
+    }
+
+    private void writeByte(int value)
+    {
+        if (length == data.length)
+        {
+            byte[] grown = new byte[data.length * 2];
+            System.arraycopy(data, 0, grown, 0, length);
+            data = grown;
+        }
+        data[length++] = (byte) value;
+    }
+
+    private void writeVarint(int value)
+    {
+        while ((value & ~0x7F) != 0)
+        {
+            writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        writeByte(value);
+    }
+
+    static int zigzag(int value)
+    {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int unzigzag(int value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
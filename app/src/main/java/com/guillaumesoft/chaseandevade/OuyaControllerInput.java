@@ -0,0 +1,32 @@
+package com.guillaumesoft.chaseandevade;
+
+import tv.ouya.console.api.OuyaController;
+
+/// <summary>
+/// ControllerInput reading the OUYA controller of a given player. When no
+/// controller is connected for that player, the sticks are centered and no
+/// button is pressed.
+/// </summary>
+public class OuyaControllerInput implements ControllerInput
+{
+    final int player;
+
+    public OuyaControllerInput(int player)
+    {
+        this.player = player;
+    }
+
+    @Override
+    public float getAxisValue(int axis)
+    {
+        OuyaController controller = OuyaController.getControllerByPlayer(player);
+        return controller != null ? controller.getAxisValue(axis) : 0.0f;
+    }
+
+    @Override
+    public boolean getButton(int button)
+    {
+        OuyaController controller = OuyaController.getControllerByPlayer(player);
+        return controller != null && controller.getButton(button);
+    }
+}
@@ -0,0 +1,199 @@
+package com.guillaumesoft.chaseandevade;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/// <summary>
+/// ParallelAgentUpdater runs an AgentSimulation over a double-buffered pair of
+/// AgentStores. Every agent reads the previous tick from one store and writes the
+/// next tick into the other, so the result of a tick does not depend on the
+/// order in which agents are visited. That lets us split the agents in chunks
+/// and update the chunks on several threads at once.
+///
+/// Small scenes are not worth waking up other threads for: below
+/// ParallelThreshold agents, everything runs on the calling thread.
+/// </summary>
+public class ParallelAgentUpdater
+{
+    // below this many agents the update stays on the calling thread.
+    public int ParallelThreshold = 2048;
+
+    // chunks are never made smaller than this, so that each task has enough
+    // work to pay for handing it over to a worker.
+    public int MinChunkSize = 512;
+
+    final AgentSimulation simulation;
+    final ExecutorService executor;
+    final Chunk[] chunks;
+
+    // the number of chunks still running, guarded by chunksDone.
+    int pendingChunks;
+    Throwable failure;
+    final Object chunksDone = new Object();
+
+    // the tick being processed, read by the workers.
+    AgentStore previous;
+    AgentStore next;
+    float catX;
+    float catY;
+
+    /// <summary>
+    /// Creates an updater with the given number of worker threads. The calling
+    /// thread also works on a chunk, so the update uses threads + 1 cores.
+    /// </summary>
+    public ParallelAgentUpdater(AgentSimulation simulation, int threads)
+    {
+        this.simulation = simulation;
+        this.executor   = Executors.newFixedThreadPool(Math.max(threads, 1), new ThreadFactory()
+        {
+            int count = 0;
+
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "AgentUpdater-" + count++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        this.chunks = new Chunk[Math.max(threads, 1) + 1];
+        for (int i = 0; i < chunks.length; i++)
+            chunks[i] = new Chunk();
+    }
+
+    /// <summary>
+    /// Creates an updater using one worker per available core, minus the one
+    /// the caller runs on.
+    /// </summary>
+    public ParallelAgentUpdater(AgentSimulation simulation)
+    {
+        this(simulation, Runtime.getRuntime().availableProcessors() - 1);
+    }
+
+    /// <summary>
+    /// Runs one tick: reads every agent from previous and writes the result into
+    /// next. previous is left untouched, so the caller swaps the two stores once
+    /// this returns.
+    /// </summary>
+    public void update(AgentStore previous, AgentStore next, float catX, float catY)
+    {
+        int count  = previous.count;
+        next.count = count;
+
+        int chunkCount = Math.min(chunks.length, count / Math.max(MinChunkSize, 1));
+
+        simulation.prepare(previous, catX, catY);
+
+        if (count < ParallelThreshold || chunkCount < 2)
+        {
+            simulation.think(previous, next, 0, count, catX, catY);
+            simulation.avoid(previous, next, 0, count);
+            simulation.move(next, 0, count);
+            return;
+        }
+
+        this.previous = previous;
+        this.next     = next;
+        this.catX     = catX;
+        this.catY     = catY;
+
+        synchronized (chunksDone)
+        {
+            pendingChunks = chunkCount - 1;
+            failure = null;
+        }
+
+        for (int i = 0; i < chunkCount; i++)
+        {
+            chunks[i].from = (int) ((long) count * i / chunkCount);
+            chunks[i].to   = (int) ((long) count * (i + 1) / chunkCount);
+        }
+
+        // hand all but the last chunk to the workers, and do the last one here.
+        for (int i = 0; i < chunkCount - 1; i++)
+            executor.execute(chunks[i]);
+
+        Chunk last = chunks[chunkCount - 1];
+        simulation.think(previous, next, last.from, last.to, catX, catY);
+        simulation.avoid(previous, next, last.from, last.to);
+        simulation.move(next, last.from, last.to);
+
+        // the workers are writing into next: wait for all of them even when
+        // interrupted, or the caller would swap in a store still being written,
+        // and tell the caller about the interrupt afterwards.
+        boolean interrupted = false;
+        try
+        {
+            synchronized (chunksDone)
+            {
+                while (pendingChunks > 0)
+                {
+                    try
+                    {
+                        chunksDone.wait();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        interrupted = true;
+                    }
+                }
+
+                if (failure != null)
+                    throw new RuntimeException("Agent update failed", failure);
+            }
+        }
+        finally
+        {
+            this.previous = null;
+            this.next     = null;
+
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /// <summary>
+    /// Stops the worker threads.
+    /// </summary>
+    public void dispose()
+    {
+        executor.shutdownNow();
+    }
+
+    /// <summary>
+    /// A range of agents handed to a worker. Chunks are allocated once and
+    /// reused every tick.
+    /// </summary>
+    class Chunk implements Runnable
+    {
+        int from;
+        int to;
+
+        @Override
+        public void run()
+        {
+            Throwable error = null;
+            try
+            {
+                simulation.think(previous, next, from, to, catX, catY);
+                simulation.avoid(previous, next, from, to);
+                simulation.move(next, from, to);
+            }
+            catch (Throwable t)
+            {
+                error = t;
+            }
+
+            synchronized (chunksDone)
+            {
+                if (error != null && failure == null)
+                    failure = error;
+
+                pendingChunks--;
+                chunksDone.notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.guillaumesoft.chaseandevade;
+
+import com.badlogic.androidgames.framework.math.FastRandom;
+
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/// <summary>
+/// ParameterSweep plays many short, headless chase and evade matches for every
+/// combination of a grid of tuning values, on all cores, and writes how each
+/// combination did to a CSV file. The values are the public tuning fields of
+/// AgentSimulation, which start out as the constants at the top of GameScreen:
+///
+///   java -cp classes:android.jar:ouya-sdk.jar \
+///       com.guillaumesoft.chaseandevade.ParameterSweep [--matches 100] [--out sweep.csv] \
+///       [--threads n] [--seed 42] [--tanks 4] [--mice 4] [--ticks 3600] \
+///       TankChaseDistance=200,250,300 TankHysteresis=0,15,30 ...
+///
+/// In a match, a few tanks and mice are spread at random over the world, and
+/// the cat takes a random walk through it, as a player idly steering it would.
+/// The match ends when a tank catches the cat, or after a number of ticks. The
+/// matches of every combination start the same way and the cat takes the same
+/// walk, so the differences between combinations come from the values alone.
+///
+/// Every match is played the way GameScreen plays the swarm: its simulation
+/// comes from GameScreen.CreateSimulation, with the walls, line of sight, threat
+/// map, flocking and avoidance of the game, and the agents think through the
+/// AiScheduler. The scheduler's time budget is lifted, as when recording, so
+/// that the results don't depend on how fast the machine is.
+///
+/// The CSV file has one row per combination, with the swept values followed by:
+///
+///   catch_rate              the share of matches in which the cat was caught
+///   time_to_catch           the mean time, in seconds, to catch it, when it was
+///   state_flips_per_second  how often an agent changed state, per agent and
+///                           per second of game time; high values mean jitter
+///   ticks_per_second        how fast the matches were simulated, per thread
+///
+/// A combination the simulation refuses, such as one with a negative
+/// hysteresis, gets a row with the results left empty, and the reason is
+/// printed; the rest of the grid is still played.
+/// </summary>
+public class ParameterSweep
+{
+    static final float WorldWidth = 1920.0f;
+    static final float WorldHeight = 1080.0f;
+
+    // the cat's speed and how erratic its walk is.
+    static final float CatSpeed = GameScreen.MaxCatSpeed;
+    static final float CatTurnJitter = 0.3f;
+
+    int matches = 100;
+    String out = "sweep.csv";
+    int threads = Runtime.getRuntime().availableProcessors();
+    long seed = 42;
+    int tanks = 4;
+    int mice = 4;
+    int maxTicks = 60 * 60;
+
+    final List<String> names = new ArrayList<String>();
+    final List<float[]> values = new ArrayList<float[]>();
+
+    public static void main(String[] args) throws Exception
+    {
+        ParameterSweep sweep = new ParameterSweep();
+        sweep.parse(args);
+        sweep.run();
+    }
+
+    void parse(String[] args)
+    {
+        for (int i = 0; i < args.length; i++)
+        {
+            String arg = args[i];
+            if (arg.startsWith("--") && i + 1 < args.length)
+            {
+                String value = args[++i];
+                if (arg.equals("--matches"))
+                    matches = Integer.parseInt(value);
+                else if (arg.equals("--out"))
+                    out = value;
+                else if (arg.equals("--threads"))
+                    threads = Integer.parseInt(value);
+                else if (arg.equals("--seed"))
+                    seed = Long.parseLong(value);
+                else if (arg.equals("--tanks"))
+                    tanks = Integer.parseInt(value);
+                else if (arg.equals("--mice"))
+                    mice = Integer.parseInt(value);
+                else if (arg.equals("--ticks"))
+                    maxTicks = Integer.parseInt(value);
+                else
+                    throw new IllegalArgumentException("Unknown option " + arg);
+            }
+            else
+            {
+                int equals = arg.indexOf('=');
+                if (equals < 0)
+                    throw new IllegalArgumentException("Expected name=value,value,... but got " + arg);
+
+                String name = arg.substring(0, equals);
+                tuningField(name);
+
+                String[] parts = arg.substring(equals + 1).split(",");
+                float[] parsed = new float[parts.length];
+                for (int j = 0; j < parts.length; j++)
+                    parsed[j] = Float.parseFloat(parts[j]);
+
+                names.add(name);
+                values.add(parsed);
+            }
+        }
+    }
+
+    void run() throws Exception
+    {
+        int combinations = 1;
+        for (float[] v : values)
+            combinations *= v.length;
+
+        System.out.println(combinations + " combinations, " + matches + " matches each, on " + threads + " threads");
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<String>> rows = new ArrayList<Future<String>>(combinations);
+        long start = System.nanoTime();
+
+        try
+        {
+            for (int i = 0; i < combinations; i++)
+            {
+                final float[] combination = combination(i);
+                rows.add(executor.submit(new Callable<String>()
+                {
+                    @Override
+                    public String call() throws Exception
+                    {
+                        try
+                        {
+                            return playCombination(combination);
+                        }
+                        catch (IllegalArgumentException e)
+                        {
+                            System.err.println("skipped " + describe(combination) + ": " + e.getMessage());
+                            return startRow(combination) + ",,,";
+                        }
+                    }
+                }));
+            }
+
+            PrintWriter writer = new PrintWriter(new FileWriter(out));
+            try
+            {
+                StringBuilder header = new StringBuilder();
+                for (String name : names)
+                    header.append(name).append(',');
+                header.append("catch_rate,time_to_catch,state_flips_per_second,ticks_per_second");
+                writer.println(header);
+
+                // the rows are written in the order of the grid, whichever
+                // thread finished first.
+                for (Future<String> row : rows)
+                    writer.println(row.get());
+            }
+            finally
+            {
+                writer.close();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        System.out.println(String.format(Locale.US, "wrote %s in %.1f s", out, (System.nanoTime() - start) / 1e9));
+    }
+
+    /// <summary>
+    /// Returns the values of the i-th combination of the grid, the first
+    /// parameter varying the slowest.
+    /// </summary>
+    float[] combination(int i)
+    {
+        float[] combination = new float[names.size()];
+        for (int p = names.size() - 1; p >= 0; p--)
+        {
+            float[] v = values.get(p);
+            combination[p] = v[i % v.length];
+            i /= v.length;
+        }
+        return combination;
+    }
+
+    /// <summary>
+    /// Plays every match with the given values, and returns the CSV row of the
+    /// results.
+    /// </summary>
+    String playCombination(float[] combination) throws IllegalAccessException
+    {
+        AgentStore agents = new AgentStore(tanks + mice);
+        AgentStore next = new AgentStore(tanks + mice);
+        FastRandom random = new FastRandom();
+
+        int caught = 0;
+        long ticksToCatch = 0;
+        long totalTicks = 0;
+        long flips = 0;
+        long agentTicks = 0;
+        long start = System.nanoTime();
+
+        for (int match = 0; match < matches; match++)
+        {
+            // every match starts from a world of its own: the threat map, the
+            // neighbours and the scheduler carry what they knew from tick to tick.
+            AgentSimulation simulation = GameScreen.CreateSimulation(tanks + mice, false);
+            for (int p = 0; p < names.size(); p++)
+                tuningField(names.get(p)).setFloat(simulation, combination[p]);
+
+            AiScheduler scheduler = new AiScheduler(simulation, tanks + mice);
+            scheduler.FrameBudgetNanos = Long.MAX_VALUE / 2;
+
+            random.setStream(seed, match);
+            simulation.setSeed(random.nextLong());
+
+            agents.clear();
+            for (int i = 0; i < tanks; i++)
+                agents.addTank(random.nextFloat() * WorldWidth, random.nextFloat() * WorldHeight, random.nextFloat() * (float) Math.PI * 2);
+            for (int i = 0; i < mice; i++)
+                agents.addMouse(random.nextFloat() * WorldWidth, random.nextFloat() * WorldHeight, random.nextFloat() * (float) Math.PI * 2);
+            next.copyFrom(agents);
+
+            float catX = WorldWidth / 2;
+            float catY = WorldHeight / 2;
+            float catHeading = random.nextFloat() * (float) Math.PI * 2;
+            int tick = 0;
+            boolean isCaught = false;
+
+            while (tick < maxTicks && !isCaught)
+            {
+                // the cat's random walk, turning around at the edges.
+                catHeading += (random.nextFloat() - .5f) * 2 * CatTurnJitter;
+                float dx = (float) Math.cos(catHeading) * CatSpeed;
+                float dy = (float) Math.sin(catHeading) * CatSpeed;
+                catX += dx;
+                catY += dy;
+                if (catX < 0 || catX > WorldWidth || catY < 0 || catY > WorldHeight)
+                {
+                    catHeading += (float) Math.PI;
+                    catX = Math.max(0, Math.min(catX, WorldWidth));
+                    catY = Math.max(0, Math.min(catY, WorldHeight));
+                }
+
+                GameScreen.UpdateSurroundings(simulation, catX, catY, dx, dy);
+                scheduler.update(agents, next, catX, catY);
+
+                for (int i = 0; i < agents.count; i++)
+                {
+                    if (next.state[i] != agents.state[i])
+                        flips++;
+                    if (next.kind[i] == AgentStore.TANK && next.state[i] == AgentStore.TANK_CAUGHT)
+                        isCaught = true;
+                }
+
+                AgentStore swap = agents;
+                agents = next;
+                next   = swap;
+                tick++;
+            }
+
+            totalTicks += tick;
+            agentTicks += (long) tick * agents.count;
+            if (isCaught)
+            {
+                caught++;
+                ticksToCatch += tick;
+            }
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        StringBuilder row = startRow(combination);
+        row.append(String.format(Locale.US, "%.3f,%.2f,%.4f,%.0f",
+                (double) caught / matches,
+                caught > 0 ? ticksToCatch * HeadlessRunner.TickTime / caught : Double.NaN,
+                agentTicks > 0 ? flips / (agentTicks * (double) HeadlessRunner.TickTime) : 0,
+                totalTicks / seconds));
+        return row.toString();
+    }
+
+    /// <summary>
+    /// Returns the start of the CSV row of a combination: its values, each
+    /// followed by a comma.
+    /// </summary>
+    static StringBuilder startRow(float[] combination)
+    {
+        StringBuilder row = new StringBuilder();
+        for (float value : combination)
+            row.append(value).append(',');
+        return row;
+    }
+
+    /// <summary>
+    /// Returns the names and values of a combination, as given on the
+    /// command line.
+    /// </summary>
+    String describe(float[] combination)
+    {
+        StringBuilder description = new StringBuilder();
+        for (int p = 0; p < combination.length; p++)
+        {
+            if (p > 0)
+                description.append(' ');
+            description.append(names.get(p)).append('=').append(combination[p]);
+        }
+        return description.toString();
+    }
+
+    /// <summary>
+    /// Returns the public float field of AgentSimulation with the given name.
+    /// </summary>
+    static Field tuningField(String name)
+    {
+        try
+        {
+            Field field = AgentSimulation.class.getField(name);
+            if (field.getType() != float.class)
+                throw new IllegalArgumentException(name + " is not a tuning value");
+            return field;
+        }
+        catch (NoSuchFieldException e)
+        {
+            throw new IllegalArgumentException("AgentSimulation has no tuning value named " + name);
+        }
+    }
+}
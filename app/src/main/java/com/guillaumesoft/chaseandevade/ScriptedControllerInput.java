@@ -0,0 +1,50 @@
+package com.guillaumesoft.chaseandevade;
+
+import tv.ouya.console.api.OuyaController;
+
+/// <summary>
+/// ControllerInput that plays a fixed script instead of reading a controller:
+/// the left stick sweeps the cat around in a slow figure of eight, and every
+/// few seconds it lets go of the stick so that the cat stands still. The script
+/// only depends on the number of ticks, so two runs see the same input.
+/// Call advance once per update to move on to the next tick.
+/// </summary>
+public class ScriptedControllerInput implements ControllerInput
+{
+    // how many ticks a full figure of eight takes.
+    final int period;
+    int tick;
+
+    public ScriptedControllerInput(int period)
+    {
+        this.period = period;
+    }
+
+    public void advance()
+    {
+        tick++;
+    }
+
+    @Override
+    public float getAxisValue(int axis)
+    {
+        // rest for the last quarter of every period.
+        if (tick % period >= 3 * period / 4)
+            return 0.0f;
+
+        double t = 2 * Math.PI * tick / period;
+
+        if (axis == OuyaController.AXIS_LS_X)
+            return (float) Math.sin(t);
+        else if (axis == OuyaController.AXIS_LS_Y)
+            return (float) Math.sin(2 * t);
+        else
+            return 0.0f;
+    }
+
+    @Override
+    public boolean getButton(int button)
+    {
+        return false;
+    }
+}
@@ -0,0 +1,64 @@
+package com.guillaumesoft.chaseandevade;
+
+/// <summary>
+/// SnapshotHistory keeps a WorldSnapshot of each of the last few ticks of a
+/// GameScreen in a ring, to rewind the game while debugging or to roll it back
+/// and play it forward again with corrected input. The snapshots are created
+/// up front and reused, so keeping a history does not allocate.
+/// </summary>
+public class SnapshotHistory
+{
+    final WorldSnapshot[] snapshots;
+
+    // the slot the next snapshot goes in, and how many slots hold one.
+    int next;
+    int size;
+
+    public SnapshotHistory(int ticks, int capacity)
+    {
+        snapshots = new WorldSnapshot[ticks];
+        for (int i = 0; i < ticks; i++)
+            snapshots[i] = new WorldSnapshot(capacity);
+    }
+
+    /// <summary>
+    /// Takes a snapshot of the screen, replacing the oldest one once the
+    /// history is full.
+    /// </summary>
+    public void save(GameScreen screen)
+    {
+        snapshots[next].save(screen);
+        next = (next + 1) % snapshots.length;
+        size = Math.min(size + 1, snapshots.length);
+    }
+
+    /// <summary>
+    /// The number of ticks the history can go back.
+    /// </summary>
+    public int size()
+    {
+        return size;
+    }
+
+    /// <summary>
+    /// Puts the screen back the given number of snapshots ago (1 being the most
+    /// recent one), and forgets the snapshots after it. Returns false, leaving
+    /// the screen alone, if the history does not go back that far.
+    /// </summary>
+    public boolean rewind(GameScreen screen, int ticks)
+    {
+        if (ticks < 1 || ticks > size)
+            return false;
+
+        next = (next - ticks + snapshots.length) % snapshots.length;
+        size -= ticks;
+        snapshots[next].restore(screen);
+        return true;
+    }
+
+    public void clear()
+    {
+        next = 0;
+        size = 0;
+    }
+}
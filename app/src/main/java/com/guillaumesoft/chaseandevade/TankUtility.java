@@ -0,0 +1,126 @@
+package com.guillaumesoft.chaseandevade;
+
+import com.badlogic.androidgames.framework.ai.ResponseCurve;
+import com.badlogic.androidgames.framework.ai.UtilityScorer;
+
+/// <summary>
+/// TankUtility decides what the tanks of the swarm do with a UtilityScorer,
+/// in place of the hysteresis state machine of AgentSimulation. It only picks
+/// the state; chasing, wandering and stopping, and the TurnToFace steering
+/// behind them, stay the same.
+///
+/// Every state is an action, scored from curves over how far the tank is from
+/// the cat and from the center of the screen, how fast it is going, whether it
+/// can see the cat, and how fast the cat is going:
+///
+///   Chasing  the cat is within the chase distance but not caught, the tank is
+///            already under way, it can see the cat, and the cat is slow
+///            enough to be worth chasing.
+///   Caught   the cat is within the caught distance, the tank has stopped, and
+///            it can see the cat.
+///   Wander   the cat is out of the chase distance, the more so the further
+///            the tank has strayed from the center.
+///
+/// Preferring the state the tank's speed shows it is in does what the
+/// hysteresis does for the state machine: it keeps tanks on the edge of a
+/// distance from flipping back and forth.
+///
+/// The curves are laid out from the tuning values of the simulation when the
+/// TankUtility is created.
+/// </summary>
+public class TankUtility
+{
+    // how sharply the distance curves step around their thresholds.
+    static final float Steepness = 40.0f;
+
+    final UtilityScorer scorer;
+    final byte[] states = { AgentStore.TANK_CHASING, AgentStore.TANK_CAUGHT, AgentStore.TANK_WANDER };
+
+    final int distanceFromCat;
+    final int distanceFromCenter;
+    final int speed;
+    final int seesCat;
+    final int catSpeed;
+
+    final float screenCenterX;
+    final float screenCenterY;
+
+    public TankUtility(AgentSimulation simulation, int capacity, float maxCatSpeed)
+    {
+        this.screenCenterX = simulation.screenCenterX;
+        this.screenCenterY = simulation.screenCenterY;
+
+        float range = 2 * simulation.TankChaseDistance;
+        float chase = simulation.TankChaseDistance / range;
+        float caught = simulation.TankCaughtDistance / range;
+
+        scorer = new UtilityScorer(capacity);
+        distanceFromCat    = scorer.addInput("DistanceFromCat", 0, range);
+        distanceFromCenter = scorer.addInput("DistanceFromCenter", 0, (float) Math.hypot(screenCenterX, screenCenterY));
+        speed              = scorer.addInput("Speed", 0, simulation.MaxTankSpeed);
+        seesCat            = scorer.addInput("SeesCat", 0, 1);
+        catSpeed           = scorer.addSharedInput("CatSpeed", 0, maxCatSpeed);
+
+        int near      = scorer.addConsideration(distanceFromCat, ResponseCurve.step(chase, -Steepness));
+        int far       = scorer.addConsideration(distanceFromCat, ResponseCurve.step(chase, Steepness));
+        int close     = scorer.addConsideration(distanceFromCat, ResponseCurve.step(caught, -2 * Steepness));
+        int notClose  = scorer.addConsideration(distanceFromCat, ResponseCurve.step(caught, 2 * Steepness));
+        int moving    = scorer.addConsideration(speed, ResponseCurve.linear(0.3f, 0.7f));
+        int stopped   = scorer.addConsideration(speed, ResponseCurve.linear(-0.3f, 1.0f));
+        int straying  = scorer.addConsideration(distanceFromCenter, ResponseCurve.linear(0.5f, 0.5f));
+        int visible   = scorer.addConsideration(seesCat, ResponseCurve.linear(1.0f, 0.0f));
+        int catnap    = scorer.addConsideration(catSpeed, ResponseCurve.linear(-0.3f, 1.0f));
+
+        scorer.addAction("Chasing", near, notClose, moving, visible, catnap);
+        scorer.addAction("Caught", close, stopped, visible);
+        scorer.addAction("Wander", far, straying);
+    }
+
+    /// <summary>
+    /// Sets the inputs shared by every tank for this tick. Must be called once
+    /// per tick, from a single thread, before any tank decides.
+    /// </summary>
+    public void begin(float catVelocityX, float catVelocityY)
+    {
+        scorer.setSharedInput(catSpeed, (float) Math.hypot(catVelocityX, catVelocityY));
+        scorer.begin();
+    }
+
+    /// <summary>
+    /// Picks the state of the tanks in [from, to) of the previous store, and
+    /// writes it into the next store. Tanks whose guard is false, if there are
+    /// guards, can't see the cat; wandering tanks then neither start chasing it
+    /// nor catch it.
+    /// </summary>
+    public void decide(AgentStore previous, AgentStore next, int from, int to, float catX, float catY, boolean[] guards)
+    {
+        final float[] distanceFromCat    = scorer.getValues(this.distanceFromCat);
+        final float[] distanceFromCenter = scorer.getValues(this.distanceFromCenter);
+        final float[] speed              = scorer.getValues(this.speed);
+        final float[] seesCat            = scorer.getValues(this.seesCat);
+
+        for (int i = from; i < to; i++)
+        {
+            float x  = previous.positionX[i];
+            float y  = previous.positionY[i];
+            float dx = x - catX;
+            float dy = y - catY;
+            float cx = x - screenCenterX;
+            float cy = y - screenCenterY;
+
+            distanceFromCat[i]    = (float) Math.sqrt(dx * dx + dy * dy);
+            distanceFromCenter[i] = (float) Math.sqrt(cx * cx + cy * cy);
+            speed[i]              = previous.speed[i];
+            seesCat[i]            = guards == null || guards[i] || previous.state[i] != AgentStore.TANK_WANDER ? 1 : 0;
+        }
+
+        scorer.score(from, to);
+
+        final byte[] kind = previous.kind;
+        for (int i = from; i < to; i++)
+        {
+            if (kind[i] == AgentStore.TANK)
+                next.state[i] = states[scorer.getBest(i)];
+        }
+    }
+}
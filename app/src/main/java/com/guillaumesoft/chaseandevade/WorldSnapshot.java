@@ -0,0 +1,135 @@
+package com.guillaumesoft.chaseandevade;
+
+import com.badlogic.androidgames.framework.ai.FlowField;
+import com.badlogic.androidgames.framework.ai.LineOfSight;
+
+/// <summary>
+/// WorldSnapshot holds a copy of everything a GameScreen tick depends on: both
+/// buffers of the swarm, with the positions, orientations, speeds and states
+/// of every agent; the cat and the threat it left behind; the random numbers;
+/// where the scheduler is in its round of the agents, and when each of them
+/// last thought; what each tank last saw of the cat, and whose turn it is to
+/// look; and the chase flow field, with any rebuild it has in progress. Restoring it puts the game back exactly
+/// where it was, so the ticks that follow play out the same again, given the
+/// same input.
+///
+/// All the memory a snapshot needs is allocated when it is created or first
+/// taken, and taking or restoring one only copies arrays, so a game can
+/// afford to take one every tick. See SnapshotHistory.
+///
+/// Some things are left out:
+/// - the controller input. A rewound screen reads the controller from where
+///   it is, so a recording being played back or made goes on from its own
+///   tick; rewind the input too to replay the same ticks.
+/// - the walls, which the game does not change once set.
+/// - the path cache and the neighbour lists: they are caches that follow the
+///   state, and are brought up to date by the ticks after a restore.
+/// </summary>
+public class WorldSnapshot
+{
+    final AgentStore agents;
+    final AgentStore nextAgents;
+
+    float catX;
+    float catY;
+    float[] threats;
+
+    // the random numbers of the screen and of the simulation.
+    final long[] randomState = new long[2];
+    long simulationSeed;
+    int simulationTick;
+
+    // the scheduler's round, and when each agent last thought.
+    int schedulerTick;
+    int schedulerBucket;
+    int schedulerCursor;
+    final int[] lastThought;
+
+    // the line of sight of the tanks, and the chase flow field.
+    LineOfSight sight;
+    int sightStart;
+    FlowField chaseField;
+
+    int tick;
+
+    public WorldSnapshot(int capacity)
+    {
+        this.agents      = new AgentStore(capacity);
+        this.nextAgents  = new AgentStore(capacity);
+        this.lastThought = new int[capacity];
+    }
+
+    /// <summary>
+    /// The number of ticks the screen had run when the snapshot was taken.
+    /// </summary>
+    public int getTick()
+    {
+        return tick;
+    }
+
+    /// <summary>
+    /// Copies the state of the screen into this snapshot.
+    /// </summary>
+    public void save(GameScreen screen)
+    {
+        agents.copyFrom(screen.agents);
+        nextAgents.copyFrom(screen.nextAgents);
+
+        catX = screen.catPosition.x;
+        catY = screen.catPosition.y;
+
+        float[] values = screen.threats.getValues();
+        if (threats == null)
+            threats = new float[values.length];
+        System.arraycopy(values, 0, threats, 0, values.length);
+
+        screen.random.getState(randomState, 0);
+        simulationSeed = screen.simulation.seed;
+        simulationTick = screen.simulation.tick;
+
+        AiScheduler scheduler = screen.scheduler;
+        schedulerTick   = scheduler.tick;
+        schedulerBucket = scheduler.bucket;
+        schedulerCursor = scheduler.cursor;
+        System.arraycopy(scheduler.lastThought, 0, lastThought, 0, lastThought.length);
+
+        if (sight == null)
+        {
+            sight      = new LineOfSight(screen.obstacles, agents.capacity);
+            chaseField = new FlowField(screen.obstacles);
+        }
+        sight.copyFrom(screen.simulation.sight);
+        sightStart = screen.simulation.sightStart;
+        chaseField.copyFrom(screen.chaseField);
+
+        tick = screen.tick;
+    }
+
+    /// <summary>
+    /// Puts the screen back in the state this snapshot was taken in.
+    /// </summary>
+    public void restore(GameScreen screen)
+    {
+        screen.agents.copyFrom(agents);
+        screen.nextAgents.copyFrom(nextAgents);
+
+        screen.catPosition.set(catX, catY);
+        System.arraycopy(threats, 0, screen.threats.getValues(), 0, threats.length);
+
+        screen.random.setState(randomState, 0);
+        screen.simulation.seed = simulationSeed;
+        screen.simulation.tick = simulationTick;
+
+        AiScheduler scheduler = screen.scheduler;
+        scheduler.tick   = schedulerTick;
+        scheduler.bucket = schedulerBucket;
+        scheduler.cursor = schedulerCursor;
+        System.arraycopy(lastThought, 0, scheduler.lastThought, 0, lastThought.length);
+
+        screen.simulation.sight.copyFrom(sight);
+        screen.simulation.sightStart = sightStart;
+        screen.chaseField.copyFrom(chaseField);
+
+        screen.tick = tick;
+    }
+}